@@ -7,11 +7,10 @@ package com.example.hnp.jakarta;
 
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.enterprise.context.SessionScoped;
+import jakarta.enterprise.context.Dependent;
 import jakarta.enterprise.inject.Produces;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
-import jakarta.mail.*;
-import jakarta.mail.internet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.ws.rs.*;
@@ -21,16 +20,19 @@ import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriInfo;
 
 import java.io.Serializable;
-import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import com.example.hnp.context.HostContext;
+import jakarta.mail.*;
+import jakarta.mail.internet.*;
+import com.example.hnp.mail.ResetMailer;
 
 @Path("/")
 @RequestScoped
 public class JakartaEEHnpApplication {
 
     @Inject
-    private HnpContext hnpContext;
+    private HostContext hostContext;
 
     @Context
     private HttpServletRequest request;
@@ -41,49 +43,41 @@ public class JakartaEEHnpApplication {
     @Context
     private UriInfo uriInfo;
 
-    // Jakarta EE CDI bean for context pollution
+    // Jakarta EE CDI bean for context pollution: the latest request's context, kept for the session
     @Named
     @SessionScoped
     public static class HnpContext implements Serializable {
         private static final long serialVersionUID = 1L;
         
-        private String pollutedHost;
-        private String userAgent;
-        private Long requestTime;
-        private String sessionId;
-        
-        public String getPollutedHost() { return pollutedHost; }
-        public void setPollutedHost(String pollutedHost) { this.pollutedHost = pollutedHost; }
-        
-        public String getUserAgent() { return userAgent; }
-        public void setUserAgent(String userAgent) { this.userAgent = userAgent; }
-        
-        public Long getRequestTime() { return requestTime; }
-        public void setRequestTime(Long requestTime) { this.requestTime = requestTime; }
+        private HostContext hostContext;
         
-        public String getSessionId() { return sessionId; }
-        public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+        public HostContext getHostContext() { return hostContext; }
+        public void setHostContext(HostContext hostContext) { this.hostContext = hostContext; }
     }
 
-    // Jakarta EE interceptor for HNP
-    @Produces
+    // Jakarta EE interceptor for HNP: captures the request's HostContext once for the resource to inject
     @RequestScoped
-    public HnpContext produceHnpContext() {
-        // SOURCE: extract host from request headers
-        String host = request.getHeader("Host");
-        String forwardedHost = request.getHeader("X-Forwarded-Host");
-        
-        if (forwardedHost != null && !forwardedHost.isEmpty()) {
-            host = forwardedHost;
+    public static class HostContextProducer {
+        @Inject
+        private HttpServletRequest request;
+
+        @Inject
+        private HnpContext hnpContext;
+
+        // Dependent scope: the context is immutable, so it is handed out directly rather than through a proxy
+        @Produces
+        @Dependent
+        public HostContext produceHostContext() {
+            // SOURCE: extract host from request headers
+            String host = request.getHeader("Host");
+            String forwardedHost = request.getHeader("X-Forwarded-Host");
+            HostContext hostContext = HostContext.capture(host, forwardedHost,
+                () -> request.getHeader("User-Agent"), () -> request.getSession().getId());
+            
+            // Pollute Jakarta EE context
+            hnpContext.setHostContext(hostContext.detach());
+            return hostContext;
         }
-        
-        // Pollute Jakarta EE context
-        hnpContext.setPollutedHost(host);
-        hnpContext.setUserAgent(request.getHeader("User-Agent"));
-        hnpContext.setRequestTime(System.currentTimeMillis());
-        hnpContext.setSessionId(request.getSession().getId());
-        
-        return hnpContext;
     }
 
     @GET
@@ -110,10 +104,10 @@ public class JakartaEEHnpApplication {
         String token = "jakarta-token-123";
 
         // Get polluted host from Jakarta EE context
-        String pollutedHost = hnpContext.getPollutedHost();
-        String userAgent = hnpContext.getUserAgent();
-        Long requestTime = hnpContext.getRequestTime();
-        String sessionId = hnpContext.getSessionId();
+        String pollutedHost = hostContext.host();
+        String userAgent = hostContext.userAgent();
+        long requestTime = hostContext.requestTime();
+        String sessionId = hostContext.sessionId();
 
         // ADDITION: build reset URL with Jakarta EE context
         String resetUrl = "http://" + pollutedHost + "/reset/" + token;
@@ -151,10 +145,10 @@ public class JakartaEEHnpApplication {
     @Produces(MediaType.APPLICATION_JSON)
     public Response reset(@PathParam("token") String token) {
         // Get polluted host from Jakarta EE context
-        String pollutedHost = hnpContext.getPollutedHost();
-        String userAgent = hnpContext.getUserAgent();
-        Long requestTime = hnpContext.getRequestTime();
-        String sessionId = hnpContext.getSessionId();
+        String pollutedHost = hostContext.host();
+        String userAgent = hostContext.userAgent();
+        long requestTime = hostContext.requestTime();
+        String sessionId = hostContext.sessionId();
 
         String response = String.format("""
             {
@@ -177,6 +171,11 @@ public class JakartaEEHnpApplication {
     @Path("/context")
     @Produces(MediaType.APPLICATION_JSON)
     public Response context() {
+        String pollutedHost = hostContext.host();
+        String userAgent = hostContext.userAgent();
+        long requestTime = hostContext.requestTime();
+        String sessionId = hostContext.sessionId();
+
         String response = String.format("""
             {
                 "jakarta_context": {
@@ -188,26 +187,14 @@ public class JakartaEEHnpApplication {
                 "jakarta_ee": true,
                 "context_exposed": true
             }
-            """, hnpContext.getPollutedHost(), 
-                 hnpContext.getUserAgent(), 
-                 hnpContext.getRequestTime(), 
-                 hnpContext.getSessionId());
+            """, pollutedHost, userAgent, requestTime, sessionId);
 
         return Response.ok(response).build();
     }
 
     private void sendResetEmail(String to, String htmlBody) throws Exception {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication("no-reply@example.com", "password");
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        Session session = ResetMailer.shared().getSession();
 
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress("no-reply@example.com"));
@@ -12,24 +12,29 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.CookieValue;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Properties;
-import javax.mail.*;
-import javax.mail.internet.*;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
 import java.util.Base64;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import com.example.hnp.crypto.DigestSigner;
+import com.example.hnp.jwt.JwtView;
+import javax.mail.*;
+import javax.mail.internet.*;
+import com.example.hnp.mail.ResetMailer;
+import com.example.hnp.store.ExpiringStore;
+import com.example.hnp.store.TokenBinding;
 
 @SpringBootApplication
 @Controller
 public class JwtBypassHnpApplication {
 
-    // JWT store for demonstration
-    private static final ConcurrentHashMap<String, String> jwtStore = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<String, String> userJwts = new ConcurrentHashMap<>();
+    // JWT store for demonstration: token -> (host, email), TTL- and size-bounded
+    private static final ExpiringStore<String, TokenBinding> jwtStore =
+        ExpiringStore.create("jwt", 100_000, Duration.ofMinutes(30));
     private static final String JWT_SECRET = "vulnerable-secret-key";
+    private static final Base64.Encoder URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    // Weak algorithm (MD5 unless hnp.crypto.jwt.algorithm says otherwise), digests cached across calls
+    private static final DigestSigner weakSigner = DigestSigner.fromEnvironment("jwt", "MD5", JWT_SECRET);
 
     public static void main(String[] args) {
         SpringApplication.run(JwtBypassHnpApplication.class, args);
@@ -60,20 +65,23 @@ public class JwtBypassHnpApplication {
         }
 
         // ADDITION: JWT bypass vulnerability
-        if (jwtToken == null || jwtToken.isEmpty()) {
+        // One parsed view per request, re-pointed whenever the token changes
+        JwtView jwt = JwtView.parse(jwtToken);
+        if (jwt.isEmpty()) {
             // Generate new JWT token (vulnerable to bypass)
             jwtToken = generateVulnerableJWT(email, host);
             response.addCookie(new javax.servlet.http.Cookie("jwt_token", jwtToken));
+            jwt.reset(jwtToken);
         } else {
             // Validate and potentially bypass JWT
-            if (isJwtBypassable(jwtToken)) {
-                jwtToken = bypassJWT(jwtToken, host);
+            if (isJwtBypassable(jwt)) {
+                jwtToken = bypassJWT(jwt, host);
+                jwt.reset(jwtToken);
             }
         }
 
         // Store JWT information (vulnerable to manipulation)
-        jwtStore.put(jwtToken, host);
-        userJwts.put(jwtToken, email);
+        jwtStore.put(jwtToken, new TokenBinding(host, email));
 
         // ADDITION: build reset URL with JWT bypass context
         String resetUrl = "http://" + host + "/reset/" + token;
@@ -82,8 +90,8 @@ public class JwtBypassHnpApplication {
         resetUrl += "&polluted_host=" + host;
 
         // Add JWT bypass indicators
-        resetUrl += "&jwt_bypassable=" + isJwtBypassable(jwtToken);
-        resetUrl += "&jwt_algorithm=" + getJwtAlgorithm(jwtToken);
+        resetUrl += "&jwt_bypassable=" + isJwtBypassable(jwt);
+        resetUrl += "&jwt_algorithm=" + getJwtAlgorithm(jwt);
 
         String html = "<p>Reset your password: <a href='" + resetUrl + "'>" + resetUrl + "</a></p>";
 
@@ -106,8 +114,11 @@ public class JwtBypassHnpApplication {
         String userEmail = null;
         
         if (jwtToken != null) {
-            pollutedHost = jwtStore.get(jwtToken);
-            userEmail = userJwts.get(jwtToken);
+            TokenBinding binding = jwtStore.get(jwtToken);
+            if (binding != null) {
+                pollutedHost = binding.host();
+                userEmail = binding.email();
+            }
         }
 
         // Fallback to request headers
@@ -130,15 +141,17 @@ public class JwtBypassHnpApplication {
     @ResponseBody
     public String getJwtInfo(@PathVariable String jwtToken) {
         // Vulnerable endpoint that exposes JWT information
-        String host = jwtStore.get(jwtToken);
-        String email = userJwts.get(jwtToken);
+        TokenBinding binding = jwtStore.get(jwtToken);
+        String host = binding != null ? binding.host() : null;
+        String email = binding != null ? binding.email() : null;
         
+        JwtView jwt = JwtView.parse(jwtToken);
         Map<String, Object> jwtInfo = new HashMap<>();
         jwtInfo.put("jwt_token", jwtToken);
         jwtInfo.put("polluted_host", host);
         jwtInfo.put("user_email", email);
-        jwtInfo.put("jwt_bypassable", isJwtBypassable(jwtToken));
-        jwtInfo.put("jwt_algorithm", getJwtAlgorithm(jwtToken));
+        jwtInfo.put("jwt_bypassable", isJwtBypassable(jwt));
+        jwtInfo.put("jwt_algorithm", getJwtAlgorithm(jwt));
         jwtInfo.put("jwt_exposed", true);
         
         return jwtInfo.toString();
@@ -169,8 +182,7 @@ public class JwtBypassHnpApplication {
             }
 
             // Update JWT with authenticated user info
-            jwtStore.put(jwtToken, host);
-            userJwts.put(jwtToken, email);
+            jwtStore.put(jwtToken, new TokenBinding(host, email));
 
             return "{\"success\": true, \"jwt_token\": \"" + jwtToken + 
                    "\", \"polluted_host\": \"" + host + 
@@ -186,8 +198,8 @@ public class JwtBypassHnpApplication {
             String header = "{\"alg\":\"HS256\",\"typ\":\"JWT\"}";
             String payload = "{\"email\":\"" + email + "\",\"host\":\"" + host + "\",\"iat\":" + System.currentTimeMillis() / 1000 + "}";
             
-            String encodedHeader = Base64.getUrlEncoder().withoutPadding().encodeToString(header.getBytes());
-            String encodedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes());
+            String encodedHeader = URL_ENCODER.encodeToString(header.getBytes());
+            String encodedPayload = URL_ENCODER.encodeToString(payload.getBytes());
             
             // Vulnerable: weak signature
             String signature = generateWeakSignature(encodedHeader + "." + encodedPayload);
@@ -199,68 +211,51 @@ public class JwtBypassHnpApplication {
     }
 
     // Weak signature generation (vulnerable to bypass)
-    private String generateWeakSignature(String data) throws NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance("MD5"); // Weak algorithm
-        byte[] hash = md.digest((data + JWT_SECRET).getBytes());
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    private String generateWeakSignature(String data) {
+        return weakSigner.sign(data); // base64url(MD5(data + JWT_SECRET))
     }
 
     // Check if JWT is bypassable
-    private boolean isJwtBypassable(String jwtToken) {
-        if (jwtToken == null || jwtToken.isEmpty()) {
+    private boolean isJwtBypassable(JwtView jwt) {
+        if (jwt.isEmpty()) {
             return false;
         }
         
-        String[] parts = jwtToken.split("\\.");
-        if (parts.length != 3) {
+        if (jwt.getSegmentCount() != 3) {
             return false;
         }
         
         // Check for weak algorithms or missing signature
         try {
-            String header = new String(Base64.getUrlDecoder().decode(parts[0]));
-            return header.contains("\"alg\":\"none\"") || 
-                   header.contains("\"alg\":\"HS256\"") ||
-                   parts[2].equals("") ||
-                   parts[2].equals("null");
+            return jwt.headerContains("\"alg\":\"none\"") || 
+                   jwt.headerContains("\"alg\":\"HS256\"") ||
+                   jwt.signatureEquals("") ||
+                   jwt.signatureEquals("null");
         } catch (Exception e) {
             return true; // Malformed JWT is bypassable
         }
     }
 
     // Bypass JWT by manipulating the token
-    private String bypassJWT(String originalJwt, String newHost) {
+    private String bypassJWT(JwtView jwt, String newHost) {
         try {
-            String[] parts = originalJwt.split("\\.");
-            if (parts.length == 3) {
-                // Decode payload
-                String payload = new String(Base64.getUrlDecoder().decode(parts[1]));
-                
-                // Replace host in payload
-                payload = payload.replaceAll("\"host\":\"[^\"]*\"", "\"host\":\"" + newHost + "\"");
-                
-                // Re-encode payload
-                String newPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes());
-                
-                // Create new JWT with manipulated payload
-                return parts[0] + "." + newPayload + "." + parts[2];
+            if (jwt.getSegmentCount() == 3) {
+                // Replace host in the decoded payload and re-encode it between the original header and signature
+                return jwt.withPayloadHost(newHost);
             }
         } catch (Exception e) {
             // If bypass fails, return original
         }
-        return originalJwt;
+        return jwt.getToken();
     }
 
     // Get JWT algorithm
-    private String getJwtAlgorithm(String jwtToken) {
+    private String getJwtAlgorithm(JwtView jwt) {
         try {
-            String[] parts = jwtToken.split("\\.");
-            if (parts.length >= 1) {
-                String header = new String(Base64.getUrlDecoder().decode(parts[0]));
-                if (header.contains("\"alg\":")) {
-                    int start = header.indexOf("\"alg\":\"") + 7;
-                    int end = header.indexOf("\"", start);
-                    return header.substring(start, end);
+            if (jwt.getSegmentCount() >= 1) {
+                String algorithm = jwt.algorithm();
+                if (algorithm != null) {
+                    return algorithm;
                 }
             }
         } catch (Exception e) {
@@ -270,17 +265,8 @@ public class JwtBypassHnpApplication {
     }
 
     private void sendResetEmail(String to, String htmlBody) throws Exception {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication("no-reply@example.com", "password");
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        Session session = ResetMailer.shared().getSession();
 
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress("no-reply@example.com"));
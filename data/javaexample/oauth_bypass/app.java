@@ -13,24 +13,34 @@ import org.springframework.web.bind.annotation.CookieValue;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
-import java.util.Properties;
-import javax.mail.*;
-import javax.mail.internet.*;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.UUID;
+import java.time.Duration;
 import java.net.URLEncoder;
 import java.net.URLDecoder;
+import com.example.hnp.crypto.TokenFormat;
+import com.example.hnp.crypto.TokenGenerator;
+import javax.mail.*;
+import javax.mail.internet.*;
+import com.example.hnp.mail.ResetMailer;
+import com.example.hnp.store.ExpiringStore;
+import com.example.hnp.store.TokenBinding;
 
 @SpringBootApplication
 @Controller
 public class OAuthBypassHnpApplication {
 
-    // OAuth store for demonstration
-    private static final ConcurrentHashMap<String, String> oauthStore = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<String, String> userOAuths = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<String, String> redirectUris = new ConcurrentHashMap<>();
+    // OAuth store for demonstration: token -> (host, email), TTL- and size-bounded
+    private static final ExpiringStore<String, TokenBinding> oauthStore =
+        ExpiringStore.create("oauth", 100_000, Duration.ofHours(1));
+    // Authorization code -> redirect URI; codes are short-lived
+    private static final ExpiringStore<String, String> redirectUris =
+        ExpiringStore.create("oauth-codes", 50_000, Duration.ofMinutes(10));
+    // Codes and tokens from per-thread CSPRNGs; UUID-shaped by default (hnp.crypto.oauth.format / .bytes)
+    private static final TokenGenerator oauthTokens = TokenGenerator.fromEnvironment("oauth", TokenFormat.UUID, 16);
+    // The 32 hex characters generateVulnerableOAuthToken embeds (hnp.crypto.oauth-vulnerable.format / .bytes)
+    private static final TokenGenerator vulnerableTokens =
+        TokenGenerator.fromEnvironment("oauth-vulnerable", TokenFormat.HEX, 16);
     private static final String OAUTH_CLIENT_ID = "vulnerable-client-id";
     private static final String OAUTH_CLIENT_SECRET = "vulnerable-client-secret";
 
@@ -75,8 +85,7 @@ public class OAuthBypassHnpApplication {
         }
 
         // Store OAuth information (vulnerable to manipulation)
-        oauthStore.put(oauthToken, host);
-        userOAuths.put(oauthToken, email);
+        oauthStore.put(oauthToken, new TokenBinding(host, email));
 
         // ADDITION: build reset URL with OAuth bypass context
         String resetUrl = "http://" + host + "/reset/" + token;
@@ -109,8 +118,11 @@ public class OAuthBypassHnpApplication {
         String userEmail = null;
         
         if (oauthToken != null) {
-            pollutedHost = oauthStore.get(oauthToken);
-            userEmail = userOAuths.get(oauthToken);
+            TokenBinding binding = oauthStore.get(oauthToken);
+            if (binding != null) {
+                pollutedHost = binding.host();
+                userEmail = binding.email();
+            }
         }
 
         // Fallback to request headers
@@ -152,13 +164,12 @@ public class OAuthBypassHnpApplication {
         }
 
         // Generate authorization code
-        String authCode = UUID.randomUUID().toString();
+        String authCode = oauthTokens.next();
         redirectUris.put(authCode, pollutedRedirectUri);
 
         // Store OAuth context
-        String oauthToken = UUID.randomUUID().toString();
-        oauthStore.put(oauthToken, host);
-        userOAuths.put(oauthToken, "user@example.com");
+        String oauthToken = oauthTokens.next();
+        oauthStore.put(oauthToken, new TokenBinding(host, "user@example.com"));
 
         // Build redirect URL with polluted URI
         String redirectUrl = pollutedRedirectUri + "?code=" + authCode;
@@ -192,12 +203,11 @@ public class OAuthBypassHnpApplication {
         String storedRedirectUri = redirectUris.get(code);
         if (storedRedirectUri != null && isRedirectUriBypassable(redirect_uri, storedRedirectUri)) {
             // Vulnerable: allow redirect URI bypass
-            String accessToken = UUID.randomUUID().toString();
-            String refreshToken = UUID.randomUUID().toString();
+            String accessToken = oauthTokens.next();
+            String refreshToken = oauthTokens.next();
 
             // Store OAuth context
-            oauthStore.put(accessToken, host);
-            userOAuths.put(accessToken, "user@example.com");
+            oauthStore.put(accessToken, new TokenBinding(host, "user@example.com"));
 
             return "{\"access_token\": \"" + accessToken + 
                    "\", \"token_type\": \"Bearer\", " +
@@ -214,8 +224,9 @@ public class OAuthBypassHnpApplication {
     @ResponseBody
     public String getOAuthInfo(@PathVariable String oauthToken) {
         // Vulnerable endpoint that exposes OAuth information
-        String host = oauthStore.get(oauthToken);
-        String email = userOAuths.get(oauthToken);
+        TokenBinding binding = oauthStore.get(oauthToken);
+        String host = binding != null ? binding.host() : null;
+        String email = binding != null ? binding.email() : null;
         
         Map<String, Object> oauthInfo = new HashMap<>();
         oauthInfo.put("oauth_token", oauthToken);
@@ -230,7 +241,7 @@ public class OAuthBypassHnpApplication {
 
     // Vulnerable OAuth token generation
     private String generateVulnerableOAuthToken(String email, String host) {
-        return "vulnerable_oauth_token_" + UUID.randomUUID().toString().replace("-", "") + 
+        return "vulnerable_oauth_token_" + vulnerableTokens.next() + 
                "_" + email.hashCode() + "_" + host.hashCode();
     }
 
@@ -283,17 +294,8 @@ public class OAuthBypassHnpApplication {
     }
 
     private void sendResetEmail(String to, String htmlBody) throws Exception {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication("no-reply@example.com", "password");
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        Session session = ResetMailer.shared().getSession();
 
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress("no-reply@example.com"));
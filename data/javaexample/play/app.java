@@ -18,14 +18,26 @@ import play.data.FormFactory;
 import play.i18n.MessagesApi;
 import play.twirl.api.Html;
 
+import com.example.hnp.concurrent.ContextCarrier;
+import com.example.hnp.concurrent.ExecutorSettings;
+import com.example.hnp.concurrent.InstrumentedExecutor;
+import com.example.hnp.concurrent.RejectionPolicy;
+import com.example.hnp.context.HostContext;
 import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 
 public class PlayFrameworkHnpApplication extends Controller {
 
+    // Blocking SMTP sends get their own bounded pool (hnp.executor.play-mail.*) instead of
+    // ForkJoinPool.commonPool(); when it is full the request is refused rather than queued or run inline
+    private static final InstrumentedExecutor mailExecutor = InstrumentedExecutor.create("play-mail",
+        ExecutorSettings.fromEnvironment("play-mail", 16, 256, RejectionPolicy.ABORT), ContextCarrier.none());
+
     private final MailerClient mailerClient;
     private final FormFactory formFactory;
     private final MessagesApi messagesApi;
@@ -47,19 +59,19 @@ public class PlayFrameworkHnpApplication extends Controller {
             String host = request.header("Host").orElse("localhost:9000");
             String forwardedHost = request.header("X-Forwarded-Host").orElse(null);
             
-            if (forwardedHost != null && !forwardedHost.isEmpty()) {
-                host = forwardedHost;
-            }
-            
             // Store polluted host in Play context
-            ctx.args.put("polluted_host", host);
-            ctx.args.put("play_framework", true);
-            ctx.args.put("request_time", System.currentTimeMillis());
+            ctx.args.put(HostContext.ATTRIBUTE,
+                HostContext.capture(host, forwardedHost, () -> request.header("User-Agent").orElse(null)));
             
             return delegate.call(ctx);
         }
     }
 
+    // Typed view of what HnpAction captured for the current request
+    static HostContext hostContext(Http.Context ctx) {
+        return (HostContext) ctx.args.get(HostContext.ATTRIBUTE);
+    }
+
     @With(HnpAction.class)
     public Result forgotForm() {
         return ok(views.html.forgot.render());
@@ -81,8 +93,9 @@ public class PlayFrameworkHnpApplication extends Controller {
         String token = "play-token-123";
 
         // Get polluted host from Play context
-        String pollutedHost = (String) ctx.args.get("polluted_host");
-        Long requestTime = (Long) ctx.args.get("request_time");
+        HostContext hostContext = hostContext(ctx);
+        String pollutedHost = hostContext.host();
+        long requestTime = hostContext.requestTime();
 
         // ADDITION: build reset URL with Play Framework context
         String resetUrl = "http://" + pollutedHost + "/reset/" + token;
@@ -99,28 +112,39 @@ public class PlayFrameworkHnpApplication extends Controller {
         emailObj.addTo(email);
         emailObj.setBodyHtml(html);
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                mailerClient.send(emailObj);
-                Map<String, Object> response = new HashMap<>();
-                response.put("message", "Reset email sent via Play Framework");
-                response.put("play_framework", true);
-                response.put("polluted_host", pollutedHost);
-                response.put("request_time", requestTime);
-                return ok(Json.toJson(response));
-            } catch (Exception e) {
+        CompletableFuture<Void> sent;
+        try {
+            sent = CompletableFuture.runAsync(() -> mailerClient.send(emailObj), mailExecutor);
+        } catch (RejectedExecutionException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Mail executor saturated");
+            return CompletableFuture.completedFuture(status(SERVICE_UNAVAILABLE, Json.toJson(error)));
+        }
+
+        // Chained without blocking: the response is built on the mail thread that completes the send
+        return sent.handle((ignored, failure) -> {
+            if (failure != null) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
                 Map<String, String> error = new HashMap<>();
-                error.put("error", e.getMessage());
+                error.put("error", cause.getMessage());
                 return internalServerError(Json.toJson(error));
             }
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Reset email sent via Play Framework");
+            response.put("play_framework", true);
+            response.put("polluted_host", pollutedHost);
+            response.put("request_time", requestTime);
+            return ok(Json.toJson(response));
         });
     }
 
     @With(HnpAction.class)
     public Result reset(String token) {
         Http.Context ctx = Http.Context.current();
-        String pollutedHost = (String) ctx.args.get("polluted_host");
-        Long requestTime = (Long) ctx.args.get("request_time");
+        HostContext hostContext = hostContext(ctx);
+        String pollutedHost = hostContext.host();
+        long requestTime = hostContext.requestTime();
 
         Map<String, Object> response = new HashMap<>();
         response.put("ok", true);
@@ -138,8 +162,14 @@ public class PlayFrameworkHnpApplication extends Controller {
     public Result context() {
         Http.Context ctx = Http.Context.current();
         
+        HostContext hostContext = hostContext(ctx);
+        Map<String, Object> playContext = new HashMap<>();
+        playContext.put("polluted_host", hostContext.host());
+        playContext.put("user_agent", hostContext.userAgent());
+        playContext.put("request_time", hostContext.requestTime());
+
         Map<String, Object> contextInfo = new HashMap<>();
-        contextInfo.put("play_context", ctx.args);
+        contextInfo.put("play_context", playContext);
         contextInfo.put("play_framework", true);
         contextInfo.put("context_exposed", true);
 
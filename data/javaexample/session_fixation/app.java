@@ -13,19 +13,21 @@ import org.springframework.web.bind.annotation.CookieValue;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
-import java.util.Properties;
+import java.time.Duration;
+import java.util.UUID;
 import javax.mail.*;
 import javax.mail.internet.*;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import com.example.hnp.mail.ResetMailer;
+import com.example.hnp.store.ExpiringStore;
+import com.example.hnp.store.TokenBinding;
 
 @SpringBootApplication
 @Controller
 public class SessionFixationHnpApplication {
 
-    // Session store for demonstration
-    private static final ConcurrentHashMap<String, String> sessionStore = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<String, String> userSessions = new ConcurrentHashMap<>();
+    // Session store for demonstration: session id -> (host, email), TTL- and size-bounded
+    private static final ExpiringStore<String, TokenBinding> sessionStore =
+        ExpiringStore.create("session", 100_000, Duration.ofMinutes(30));
 
     public static void main(String[] args) {
         SpringApplication.run(SessionFixationHnpApplication.class, args);
@@ -63,8 +65,7 @@ public class SessionFixationHnpApplication {
         }
 
         // Store session information (vulnerable to hijacking)
-        sessionStore.put(sessionId, host);
-        userSessions.put(sessionId, email);
+        sessionStore.put(sessionId, new TokenBinding(host, email));
 
         // Get or create HttpSession
         HttpSession session = request.getSession(true);
@@ -103,8 +104,11 @@ public class SessionFixationHnpApplication {
         String userEmail = null;
         
         if (sessionId != null) {
-            pollutedHost = sessionStore.get(sessionId);
-            userEmail = userSessions.get(sessionId);
+            TokenBinding binding = sessionStore.get(sessionId);
+            if (binding != null) {
+                pollutedHost = binding.host();
+                userEmail = binding.email();
+            }
         }
 
         // Get from HttpSession if available
@@ -138,8 +142,9 @@ public class SessionFixationHnpApplication {
     @ResponseBody
     public String getSessionInfo(@PathVariable String sessionId) {
         // Vulnerable endpoint that exposes session information
-        String host = sessionStore.get(sessionId);
-        String email = userSessions.get(sessionId);
+        TokenBinding binding = sessionStore.get(sessionId);
+        String host = binding != null ? binding.host() : null;
+        String email = binding != null ? binding.email() : null;
         
         return "{\"session_id\": \"" + sessionId + 
                "\", \"polluted_host\": \"" + host + 
@@ -172,8 +177,7 @@ public class SessionFixationHnpApplication {
             }
 
             // Update session with authenticated user info
-            sessionStore.put(sessionId, host);
-            userSessions.put(sessionId, email);
+            sessionStore.put(sessionId, new TokenBinding(host, email));
 
             // Create or get HttpSession
             HttpSession session = request.getSession(true);
@@ -191,17 +195,8 @@ public class SessionFixationHnpApplication {
     }
 
     private void sendResetEmail(String to, String htmlBody) throws Exception {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication("no-reply@example.com", "password");
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        Session session = ResetMailer.shared().getSession();
 
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress("no-reply@example.com"));
@@ -11,9 +11,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import javax.servlet.http.HttpServletRequest;
-import java.util.Properties;
 import javax.mail.*;
 import javax.mail.internet.*;
+import com.example.hnp.mail.ResetMailer;
 
 @SpringBootApplication
 @Controller
@@ -65,17 +65,8 @@ public class HnpApplication {
     }
 
     private void sendResetEmail(String to, String htmlBody) throws Exception {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication("no-reply@example.com", "password");
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        Session session = ResetMailer.shared().getSession();
 
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress("no-reply@example.com"));
@@ -0,0 +1,90 @@
+// Explicit ThreadLocal hand-off for executor tasks
+// The submitting thread's values for a declared set of ThreadLocals are captured at submit time,
+// installed around the task on the worker, and the worker's previous values are put back afterwards,
+// so nothing leaks from one task into the next.
+
+package com.example.hnp.concurrent;
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class ContextCarrier {
+
+    private static final ContextCarrier NONE = new ContextCarrier(List.of());
+
+    private final List<ThreadLocal<Object>> locals;
+
+    private ContextCarrier(List<ThreadLocal<Object>> locals) {
+        this.locals = locals;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static ContextCarrier of(ThreadLocal<?>... locals) {
+        return new ContextCarrier((List<ThreadLocal<Object>>) (List<?>) List.copyOf(Arrays.asList(locals)));
+    }
+
+    public static ContextCarrier none() {
+        return NONE;
+    }
+
+    // Values of the carried ThreadLocals on the calling thread
+    public Snapshot capture() {
+        Object[] values = new Object[locals.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = locals.get(i).get();
+        }
+        return new Snapshot(values);
+    }
+
+    public Runnable wrap(Runnable task) {
+        Snapshot snapshot = capture();
+        return () -> snapshot.run(task);
+    }
+
+    public final class Snapshot {
+        private final Object[] values;
+
+        private Snapshot(Object[] values) {
+            this.values = values;
+        }
+
+        // Install the captured values; closing the scope restores whatever the thread held before
+        public Scope apply() {
+            Object[] previous = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                ThreadLocal<Object> local = locals.get(i);
+                previous[i] = local.get();
+                set(local, values[i]);
+            }
+            return () -> {
+                for (int i = 0; i < previous.length; i++) {
+                    set(locals.get(i), previous[i]);
+                }
+            };
+        }
+
+        // Run the task with the captured values installed, then restore the thread's own
+        public void run(Runnable task) {
+            Scope scope = apply();
+            try {
+                task.run();
+            } finally {
+                scope.close();
+            }
+        }
+
+        private void set(ThreadLocal<Object> local, Object value) {
+            if (value == null) {
+                local.remove();
+            } else {
+                local.set(value);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
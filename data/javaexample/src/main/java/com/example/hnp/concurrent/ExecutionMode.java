@@ -0,0 +1,70 @@
+// Platform vs virtual thread selection for fixture background work
+// Virtual threads are used when spring.threads.virtual.enabled (or hnp.threads.virtual) is true and the
+// JVM is 21+; on older JVMs the same code quietly keeps platform threads. Looked up reflectively so the
+// module still compiles for release 17.
+
+package com.example.hnp.concurrent;
+
+import com.example.hnp.config.Config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+public final class ExecutionMode {
+
+    private static final boolean REQUESTED =
+        Config.getBoolean("hnp.threads.virtual", Config.getBoolean("spring.threads.virtual.enabled", false));
+
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
+    private ExecutionMode() {}
+
+    private static Method findOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    public static boolean isVirtual() {
+        return REQUESTED && OF_VIRTUAL != null;
+    }
+
+    // Virtual thread factory in virtual mode, otherwise a named platform thread factory
+    public static ThreadFactory threadFactory(String prefix, boolean daemon) {
+        if (isVirtual()) {
+            ThreadFactory factory = virtualThreadFactory(prefix);
+            if (factory != null) {
+                return factory;
+            }
+        }
+        return new NamedThreadFactory(prefix, daemon);
+    }
+
+    // Background executor for hnp.executor.<name>.*: in virtual mode one virtual thread per task, at most
+    // .max-concurrency (default threads + queue) at once; otherwise a pooled InstrumentedExecutor of platform threads
+    public static Executor backgroundExecutor(String name, int defaultThreads, int defaultQueueCapacity,
+                                              ContextCarrier carrier) {
+        ExecutorSettings settings = ExecutorSettings.fromEnvironment(name, defaultThreads, defaultQueueCapacity);
+        if (isVirtual() && virtualThreadFactory("hnp-" + name) != null) {
+            int maxConcurrency = Config.getInt("hnp.executor." + name + ".max-concurrency",
+                settings.getMaxThreads() + settings.getQueueCapacity());
+            return VirtualTaskExecutor.create(name, maxConcurrency, carrier);
+        }
+        return InstrumentedExecutor.create(name, settings, carrier);
+    }
+
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Preview-only builds (JDK 19/20 without --enable-preview) refuse to create virtual threads
+            return null;
+        }
+    }
+}
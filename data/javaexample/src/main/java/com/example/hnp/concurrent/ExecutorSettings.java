@@ -0,0 +1,51 @@
+// Sizing for an InstrumentedExecutor, read from hnp.executor.<name>.* (or HNP_EXECUTOR_<NAME>_*)
+
+package com.example.hnp.concurrent;
+
+import com.example.hnp.config.Config;
+
+import java.time.Duration;
+import java.util.Locale;
+
+public final class ExecutorSettings {
+
+    private final int coreThreads;
+    private final int maxThreads;
+    private final int queueCapacity;
+    private final Duration keepAlive;
+    private final RejectionPolicy rejectionPolicy;
+
+    public ExecutorSettings(int coreThreads, int maxThreads, int queueCapacity, Duration keepAlive,
+                            RejectionPolicy rejectionPolicy) {
+        if (coreThreads < 1 || maxThreads < coreThreads || queueCapacity < 1) {
+            throw new IllegalArgumentException("Executor needs core >= 1, max >= core and queue >= 1");
+        }
+        this.coreThreads = coreThreads;
+        this.maxThreads = maxThreads;
+        this.queueCapacity = queueCapacity;
+        this.keepAlive = keepAlive;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    public static ExecutorSettings fromEnvironment(String name, int defaultThreads, int defaultQueueCapacity) {
+        return fromEnvironment(name, defaultThreads, defaultQueueCapacity, RejectionPolicy.CALLER_RUNS);
+    }
+
+    public static ExecutorSettings fromEnvironment(String name, int defaultThreads, int defaultQueueCapacity,
+                                                   RejectionPolicy defaultRejection) {
+        String prefix = "hnp.executor." + name + ".";
+        int core = Config.getInt(prefix + "core", defaultThreads);
+        return new ExecutorSettings(
+            core,
+            Config.getInt(prefix + "max", core),
+            Config.getInt(prefix + "queue", defaultQueueCapacity),
+            Config.getMillis(prefix + "keep-alive-ms", 60_000),
+            RejectionPolicy.valueOf(Config.get(prefix + "rejection", defaultRejection.name()).toUpperCase(Locale.ROOT)));
+    }
+
+    public int getCoreThreads() { return coreThreads; }
+    public int getMaxThreads() { return maxThreads; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public Duration getKeepAlive() { return keepAlive; }
+    public RejectionPolicy getRejectionPolicy() { return rejectionPolicy; }
+}
@@ -0,0 +1,108 @@
+// Bounded platform thread pool for fixture background work
+// Virtual-thread mode uses VirtualTaskExecutor instead: pooling virtual threads only caps concurrency at the
+// pool size. Every task carries an explicit ContextCarrier snapshot from the submitting thread, and its
+// queue wait and run time are recorded into histograms published over JMX.
+
+package com.example.hnp.concurrent;
+
+import com.example.hnp.metrics.Histogram;
+import com.example.hnp.metrics.Jmx;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class InstrumentedExecutor extends ThreadPoolExecutor implements InstrumentedExecutorMXBean {
+
+    private final ContextCarrier carrier;
+    private final int queueCapacity;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected;
+    private final Histogram queueWaitMicros = new Histogram();
+    private final Histogram runTimeMicros = new Histogram();
+
+    private InstrumentedExecutor(String name, ExecutorSettings settings, ContextCarrier carrier, LongAdder rejected) {
+        super(settings.getCoreThreads(), settings.getMaxThreads(),
+              settings.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<>(settings.getQueueCapacity()),
+              new NamedThreadFactory("hnp-" + name, true),
+              counting(settings.getRejectionPolicy().handler(), rejected));
+        this.carrier = carrier;
+        this.queueCapacity = settings.getQueueCapacity();
+        this.rejected = rejected;
+    }
+
+    // Sized from hnp.executor.<name>.* and registered as com.example.hnp:type=Executor,name=<name>
+    public static InstrumentedExecutor create(String name, int defaultThreads, int defaultQueueCapacity,
+                                              ContextCarrier carrier) {
+        return create(name, ExecutorSettings.fromEnvironment(name, defaultThreads, defaultQueueCapacity), carrier);
+    }
+
+    public static InstrumentedExecutor create(String name, ExecutorSettings settings, ContextCarrier carrier) {
+        InstrumentedExecutor executor = new InstrumentedExecutor(name, settings, carrier, new LongAdder());
+        Jmx.register("Executor", name, executor);
+        return executor;
+    }
+
+    private static RejectedExecutionHandler counting(RejectedExecutionHandler delegate, LongAdder rejected) {
+        return (task, executor) -> {
+            rejected.increment();
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof TimedTask) {
+            // Re-submitted by DISCARD_OLDEST: already wrapped and counted
+            super.execute(command);
+            return;
+        }
+        submitted.increment();
+        super.execute(new TimedTask(command, carrier.capture()));
+    }
+
+    private final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final ContextCarrier.Snapshot snapshot;
+        private final long submittedAt = System.nanoTime();
+
+        TimedTask(Runnable task, ContextCarrier.Snapshot snapshot) {
+            this.task = task;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            queueWaitMicros.record((startedAt - submittedAt) / 1_000);
+            try {
+                snapshot.run(task);
+            } finally {
+                runTimeMicros.record((System.nanoTime() - startedAt) / 1_000);
+            }
+        }
+    }
+
+    @Override public int getQueueDepth() { return getQueue().size(); }
+    @Override public int getQueueCapacity() { return queueCapacity; }
+
+    // Busy workers plus queued tasks, as a share of everything the pool can hold before it rejects
+    @Override
+    public int getSaturationPercent() {
+        long held = (long) getActiveCount() + getQueue().size();
+        long capacity = (long) getMaximumPoolSize() + queueCapacity;
+        return (int) Math.min(100, held * 100 / capacity);
+    }
+
+    @Override public long getSubmittedCount() { return submitted.sum(); }
+    @Override public long getRejectedCount() { return rejected.sum(); }
+    @Override public long getQueueWaitP50Micros() { return queueWaitMicros.snapshot().getValueAtQuantile(0.50); }
+    @Override public long getQueueWaitP99Micros() { return queueWaitMicros.snapshot().getValueAtQuantile(0.99); }
+    @Override public long getQueueWaitMaxMicros() { return queueWaitMicros.snapshot().getMax(); }
+    @Override public long getRunTimeP50Micros() { return runTimeMicros.snapshot().getValueAtQuantile(0.50); }
+    @Override public long getRunTimeP99Micros() { return runTimeMicros.snapshot().getValueAtQuantile(0.99); }
+    @Override public long getRunTimeMaxMicros() { return runTimeMicros.snapshot().getMax(); }
+}
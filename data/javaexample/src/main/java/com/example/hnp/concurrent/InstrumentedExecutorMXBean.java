@@ -0,0 +1,22 @@
+// JMX view of an InstrumentedExecutor (com.example.hnp:type=Executor,name=<name>)
+
+package com.example.hnp.concurrent;
+
+public interface InstrumentedExecutorMXBean {
+    int getPoolSize();
+    int getMaximumPoolSize();
+    int getLargestPoolSize();
+    int getActiveCount();
+    int getQueueDepth();
+    int getQueueCapacity();
+    int getSaturationPercent();
+    long getSubmittedCount();
+    long getCompletedTaskCount();
+    long getRejectedCount();
+    long getQueueWaitP50Micros();
+    long getQueueWaitP99Micros();
+    long getQueueWaitMaxMicros();
+    long getRunTimeP50Micros();
+    long getRunTimeP99Micros();
+    long getRunTimeMaxMicros();
+}
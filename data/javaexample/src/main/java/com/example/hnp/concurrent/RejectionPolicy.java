@@ -0,0 +1,27 @@
+// What InstrumentedExecutor does when its bounded queue is full
+
+package com.example.hnp.concurrent;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+public enum RejectionPolicy {
+    // Throw RejectedExecutionException to the submitter
+    ABORT(new ThreadPoolExecutor.AbortPolicy()),
+    // Run the task on the submitting thread, slowing the producer down
+    CALLER_RUNS(new ThreadPoolExecutor.CallerRunsPolicy()),
+    // Silently drop the new task
+    DISCARD(new ThreadPoolExecutor.DiscardPolicy()),
+    // Drop the oldest queued task and retry the submit
+    DISCARD_OLDEST(new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    private final RejectedExecutionHandler handler;
+
+    RejectionPolicy(RejectedExecutionHandler handler) {
+        this.handler = handler;
+    }
+
+    RejectedExecutionHandler handler() {
+        return handler;
+    }
+}
@@ -0,0 +1,105 @@
+// Thread-per-task executor for fixture background work in virtual-thread mode
+// Every task starts on a fresh virtual thread with a ContextCarrier snapshot from the submitting thread.
+// A Semaphore caps how many tasks run at once; submitters park for a permit instead of queueing, so a
+// burst slows the producer down (the virtual analogue of CALLER_RUNS) rather than growing without bound.
+
+package com.example.hnp.concurrent;
+
+import com.example.hnp.metrics.Histogram;
+import com.example.hnp.metrics.Jmx;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class VirtualTaskExecutor implements Executor, VirtualTaskExecutorMXBean, AutoCloseable {
+
+    private final ThreadFactory threadFactory;
+    private final ContextCarrier carrier;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final Histogram permitWaitMicros = new Histogram();
+    private final Histogram runTimeMicros = new Histogram();
+    private volatile boolean closed;
+
+    private VirtualTaskExecutor(String name, int maxConcurrency, ContextCarrier carrier) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Executor needs max-concurrency >= 1");
+        }
+        this.threadFactory = ExecutionMode.threadFactory("hnp-" + name, true);
+        this.carrier = carrier;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    // Registered as com.example.hnp:type=Executor,name=<name>
+    public static VirtualTaskExecutor create(String name, int maxConcurrency, ContextCarrier carrier) {
+        VirtualTaskExecutor executor = new VirtualTaskExecutor(name, maxConcurrency, carrier);
+        Jmx.register("Executor", name, executor);
+        return executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (closed) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        ContextCarrier.Snapshot snapshot = carrier.capture();
+        long submittedAt = System.nanoTime();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting for a task permit", e);
+        }
+        submitted.increment();
+        long startedAt = System.nanoTime();
+        permitWaitMicros.record((startedAt - submittedAt) / 1_000);
+        Thread thread;
+        try {
+            thread = threadFactory.newThread(() -> {
+                try {
+                    snapshot.run(command);
+                } finally {
+                    runTimeMicros.record((System.nanoTime() - startedAt) / 1_000);
+                    completed.increment();
+                    permits.release();
+                }
+            });
+            thread.start();
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Stop accepting and wait (bounded) for running tasks to finish
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (permits.tryAcquire(maxConcurrency, 10, TimeUnit.SECONDS)) {
+                permits.release(maxConcurrency);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override public int getMaxConcurrency() { return maxConcurrency; }
+    @Override public int getActiveCount() { return maxConcurrency - permits.availablePermits(); }
+    @Override public int getWaitingSubmitters() { return permits.getQueueLength(); }
+    @Override public long getSubmittedCount() { return submitted.sum(); }
+    @Override public long getCompletedTaskCount() { return completed.sum(); }
+    @Override public long getPermitWaitP50Micros() { return permitWaitMicros.snapshot().getValueAtQuantile(0.50); }
+    @Override public long getPermitWaitP99Micros() { return permitWaitMicros.snapshot().getValueAtQuantile(0.99); }
+    @Override public long getPermitWaitMaxMicros() { return permitWaitMicros.snapshot().getMax(); }
+    @Override public long getRunTimeP50Micros() { return runTimeMicros.snapshot().getValueAtQuantile(0.50); }
+    @Override public long getRunTimeP99Micros() { return runTimeMicros.snapshot().getValueAtQuantile(0.99); }
+    @Override public long getRunTimeMaxMicros() { return runTimeMicros.snapshot().getMax(); }
+}
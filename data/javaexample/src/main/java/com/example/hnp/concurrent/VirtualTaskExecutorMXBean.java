@@ -0,0 +1,17 @@
+// JMX view of a VirtualTaskExecutor (com.example.hnp:type=Executor,name=<name>)
+
+package com.example.hnp.concurrent;
+
+public interface VirtualTaskExecutorMXBean {
+    int getMaxConcurrency();
+    int getActiveCount();
+    int getWaitingSubmitters();
+    long getSubmittedCount();
+    long getCompletedTaskCount();
+    long getPermitWaitP50Micros();
+    long getPermitWaitP99Micros();
+    long getPermitWaitMaxMicros();
+    long getRunTimeP50Micros();
+    long getRunTimeP99Micros();
+    long getRunTimeMaxMicros();
+}
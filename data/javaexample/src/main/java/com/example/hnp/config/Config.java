@@ -0,0 +1,37 @@
+// Settings lookup shared by the fixture infrastructure
+// A key like hnp.mail.pool.size is read from the system property first, then from the
+// HNP_MAIL_POOL_SIZE environment variable, then falls back to the default.
+
+package com.example.hnp.config;
+
+import java.time.Duration;
+import java.util.Locale;
+
+public final class Config {
+
+    private Config() {}
+
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_'));
+        }
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(get(key, String.valueOf(defaultValue)));
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        return Double.parseDouble(get(key, String.valueOf(defaultValue)));
+    }
+
+    public static Duration getMillis(String key, long defaultMillis) {
+        return Duration.ofMillis(Long.parseLong(get(key, String.valueOf(defaultMillis))));
+    }
+}
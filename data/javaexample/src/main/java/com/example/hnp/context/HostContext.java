@@ -0,0 +1,167 @@
+// Host data for one request, captured once by a framework adapter (interceptor, action, producer, page init)
+// The host is resolved at capture time: X-Forwarded-Host wins over Host when present and non-empty. The
+// User-Agent header and the session id are only read on first use, through the suppliers handed in at capture,
+// and then kept; once observed a value never changes. Contexts that outlive their request are detach()ed first.
+// Replaces the polluted_host/user_agent/request_time string keys on ValueStacks, sessions and ctx.args.
+// Serialized (session replication/persistence) through SessionForm, a versioned Externalizable proxy that
+// writes a flag byte and the present values instead of default serialization's per-field metadata.
+
+package com.example.hnp.context;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.Serializable;
+import java.util.function.Supplier;
+
+public final class HostContext implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Key used where a framework only offers string-keyed storage (ActionContext, HttpSession, ctx.args);
+    // kept short because replicated sessions write it alongside every copy of the context
+    public static final String ATTRIBUTE = "hnp.host";
+
+    private final String host;
+    private final long requestTime;
+
+    private transient Supplier<String> userAgentSource;
+    private transient Supplier<String> sessionIdSource;
+    private volatile String userAgent;
+    private volatile boolean userAgentRead;
+    private volatile String sessionId;
+    private volatile boolean sessionIdRead;
+
+    private HostContext(String host, long requestTime, Supplier<String> userAgentSource,
+                        Supplier<String> sessionIdSource) {
+        this.host = host;
+        this.requestTime = requestTime;
+        this.userAgentSource = userAgentSource;
+        this.sessionIdSource = sessionIdSource;
+    }
+
+    // host and forwardedHost are the raw Host and X-Forwarded-Host header values
+    public static HostContext capture(String host, String forwardedHost, Supplier<String> userAgent,
+                                      Supplier<String> sessionId) {
+        String resolved = forwardedHost != null && !forwardedHost.isEmpty() ? forwardedHost : host;
+        return new HostContext(resolved, System.currentTimeMillis(), userAgent, sessionId);
+    }
+
+    public static HostContext capture(String host, String forwardedHost, Supplier<String> userAgent) {
+        return capture(host, forwardedHost, userAgent, () -> null);
+    }
+
+    // Fixed values, for fallbacks where there is no request to read from
+    public static HostContext of(String host, String userAgent) {
+        return new HostContext(host, System.currentTimeMillis(), () -> userAgent, () -> null);
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public long requestTime() {
+        return requestTime;
+    }
+
+    public String userAgent() {
+        if (!userAgentRead) {
+            userAgent = userAgentSource.get();
+            userAgentRead = true;
+        }
+        return userAgent;
+    }
+
+    public String sessionId() {
+        if (!sessionIdRead) {
+            sessionId = sessionIdSource.get();
+            sessionIdRead = true;
+        }
+        return sessionId;
+    }
+
+    // Read the remaining lazy values now and drop the suppliers, which hold on to the request; call this before
+    // the context outlives its request, e.g. when it is stored in a session
+    public HostContext detach() {
+        userAgent();
+        sessionId();
+        userAgentSource = null;
+        sessionIdSource = null;
+        return this;
+    }
+
+    private Object writeReplace() {
+        return new SessionForm(this);
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("HostContext is only deserialized through its SessionForm");
+    }
+
+    @Override
+    public String toString() {
+        return "HostContext[host=" + host + ", userAgent=" + userAgent() + ", requestTime=" + requestTime
+            + ", sessionId=" + sessionId() + "]";
+    }
+
+    // Wire form: version byte, presence flags, then host, userAgent and sessionId (writeUTF) and requestTime
+    private static final class SessionForm implements Externalizable {
+        private static final long serialVersionUID = 1L;
+        private static final byte VERSION = 1;
+        private static final int HAS_HOST = 1;
+        private static final int HAS_USER_AGENT = 2;
+        private static final int HAS_SESSION_ID = 4;
+
+        private HostContext context;
+
+        public SessionForm() {}
+
+        SessionForm(HostContext context) {
+            this.context = context.detach();
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            String host = context.host;
+            String userAgent = context.userAgent;
+            String sessionId = context.sessionId;
+            out.writeByte(VERSION);
+            out.writeByte((host != null ? HAS_HOST : 0) | (userAgent != null ? HAS_USER_AGENT : 0)
+                          | (sessionId != null ? HAS_SESSION_ID : 0));
+            // writeUTF caps a value at 64 KB of modified UTF-8, far above any container's header limit
+            if (host != null) {
+                out.writeUTF(host);
+            }
+            if (userAgent != null) {
+                out.writeUTF(userAgent);
+            }
+            if (sessionId != null) {
+                out.writeUTF(sessionId);
+            }
+            out.writeLong(context.requestTime);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            int version = in.readByte();
+            if (version != VERSION) {
+                throw new InvalidClassException(HostContext.class.getName(),
+                    "Unsupported session form version " + version);
+            }
+            int flags = in.readByte();
+            String host = (flags & HAS_HOST) != 0 ? in.readUTF() : null;
+            String userAgent = (flags & HAS_USER_AGENT) != 0 ? in.readUTF() : null;
+            String sessionId = (flags & HAS_SESSION_ID) != 0 ? in.readUTF() : null;
+            long requestTime = in.readLong();
+            context = new HostContext(host, requestTime, () -> userAgent, () -> sessionId).detach();
+        }
+
+        private Object readResolve() {
+            return context;
+        }
+    }
+}
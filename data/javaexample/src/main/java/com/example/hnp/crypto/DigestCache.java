@@ -0,0 +1,13 @@
+// How DigestSigner keeps MessageDigest instances between calls (hnp.crypto.digest-cache)
+
+package com.example.hnp.crypto;
+
+public enum DigestCache {
+    // One digest per thread; best for long-lived platform threads
+    THREAD_LOCAL,
+    // Small lock-free pool shared by all threads; does not grow with the number of virtual threads
+    POOLED,
+    // Nothing kept: each call clones a fresh digest from the prototype resolved at construction (the fixtures'
+    // original getInstance per call is the benchmark's LEGACY mode)
+    NONE
+}
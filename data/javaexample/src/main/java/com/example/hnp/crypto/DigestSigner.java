@@ -0,0 +1,174 @@
+// Keyed-digest signer for the fixtures' deliberately weak token signatures
+// sign(data) is base64url(digest(data + secret)) without padding. MessageDigest instances are cloned from a
+// prototype resolved once and cached per thread, or in a small shared pool when running on virtual threads,
+// together with the scratch buffers for input, hash and encoded output.
+
+package com.example.hnp.crypto;
+
+import com.example.hnp.concurrent.ExecutionMode;
+import com.example.hnp.config.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class DigestSigner {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    // Pool slots probed per take/release before falling back to a fresh instance
+    private static final int PROBES = 4;
+
+    private final String algorithm;
+    private final Provider provider;
+    private final MessageDigest prototype;
+    private final byte[] secret;
+    private final DigestCache cache;
+    private final ThreadLocal<Slot> local;
+    private final AtomicReferenceArray<Slot> pool;
+
+    public DigestSigner(String algorithm, String secret, DigestCache cache) {
+        MessageDigest probe;
+        try {
+            probe = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+        }
+        this.algorithm = algorithm;
+        this.provider = probe.getProvider();
+        this.prototype = cloneable(probe) ? probe : null;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.cache = cache;
+        this.local = cache == DigestCache.THREAD_LOCAL ? ThreadLocal.withInitial(this::newSlot) : null;
+        this.pool = cache == DigestCache.POOLED
+            ? new AtomicReferenceArray<>(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1)
+            : null;
+    }
+
+    // Algorithm from hnp.crypto.<name>.algorithm; cache from hnp.crypto.digest-cache, defaulting to
+    // POOLED in virtual-thread mode and THREAD_LOCAL otherwise
+    public static DigestSigner fromEnvironment(String name, String defaultAlgorithm, String secret) {
+        String defaultCache = ExecutionMode.isVirtual() ? "POOLED" : "THREAD_LOCAL";
+        return new DigestSigner(
+            Config.get("hnp.crypto." + name + ".algorithm", defaultAlgorithm),
+            secret,
+            DigestCache.valueOf(Config.get("hnp.crypto.digest-cache", defaultCache).toUpperCase(Locale.ROOT).replace('-', '_')));
+    }
+
+    public String sign(String data) {
+        if (cache == DigestCache.THREAD_LOCAL) {
+            return local.get().sign(data);
+        }
+        if (cache == DigestCache.NONE) {
+            return newSlot().sign(data);
+        }
+        int start = ThreadLocalRandom.current().nextInt();
+        Slot slot = take(start);
+        try {
+            return slot.sign(data);
+        } finally {
+            release(start, slot);
+        }
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public DigestCache getCache() {
+        return cache;
+    }
+
+    private Slot take(int start) {
+        int mask = pool.length() - 1;
+        for (int i = 0; i < PROBES; i++) {
+            Slot slot = pool.getAndSet((start + i) & mask, null);
+            if (slot != null) {
+                return slot;
+            }
+        }
+        return newSlot();
+    }
+
+    private void release(int start, Slot slot) {
+        int mask = pool.length() - 1;
+        for (int i = 0; i < PROBES; i++) {
+            if (pool.compareAndSet((start + i) & mask, null, slot)) {
+                return;
+            }
+        }
+        // Pool is full: let this one go
+    }
+
+    private Slot newSlot() {
+        return new Slot(newDigest());
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            if (prototype != null) {
+                return (MessageDigest) prototype.clone();
+            }
+            return MessageDigest.getInstance(algorithm, provider);
+        } catch (CloneNotSupportedException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot create " + algorithm + " digest", e);
+        }
+    }
+
+    private static boolean cloneable(MessageDigest digest) {
+        try {
+            digest.clone();
+            return true;
+        } catch (CloneNotSupportedException e) {
+            return false;
+        }
+    }
+
+    private final class Slot {
+        private final MessageDigest digest;
+        private final byte[] hash;
+        private final byte[] encoded;
+        private byte[] input = new byte[256];
+
+        Slot(MessageDigest digest) {
+            this.digest = digest;
+            this.hash = new byte[digest.getDigestLength()];
+            this.encoded = new byte[(hash.length + 2) / 3 * 4];
+        }
+
+        String sign(String data) {
+            int length = data.length();
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                char c = data.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+                input[i] = (byte) c;
+            }
+            if (ascii) {
+                digest.update(input, 0, length);
+            } else {
+                digest.update(data.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(secret);
+            try {
+                digest.digest(hash, 0, hash.length);
+            } catch (DigestException e) {
+                digest.reset();
+                throw new IllegalStateException(e);
+            }
+            int n = ENCODER.encode(hash, encoded);
+            return new String(encoded, 0, n, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+// How TokenGenerator keeps its SecureRandom sources between calls (hnp.crypto.token-cache)
+
+package com.example.hnp.crypto;
+
+public enum RandomCache {
+    // One source per thread, each with its own entropy block; best for long-lived platform threads
+    THREAD_LOCAL,
+    // Small lock-free pool of sources shared by all threads; does not grow with the number of virtual threads
+    POOLED,
+    // No per-thread state: one SecureRandom shared by every caller, as UUID.randomUUID uses
+    SHARED
+}
@@ -0,0 +1,23 @@
+// Text forms TokenGenerator can produce from its random bytes
+
+package com.example.hnp.crypto;
+
+public enum TokenFormat {
+    // Version 4 UUID layout (8-4-4-12 lowercase hex), same shape as UUID.randomUUID().toString(); always 16 bytes
+    UUID,
+    // Lowercase hex, two characters per byte
+    HEX,
+    // Base64url without padding
+    BASE64URL;
+
+    int length(int bytes) {
+        switch (this) {
+            case UUID:
+                return 36;
+            case HEX:
+                return bytes * 2;
+            default:
+                return (bytes * 4 + 2) / 3;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+// Random token source for the fixtures' codes, access tokens and session ids
+// Each thread draws from its own CSPRNG (hnp.crypto.rng, DRBG by default) instead of the single SecureRandom
+// behind UUID.randomUUID, pulls entropy in blocks rather than per token, and encodes straight into a reused char
+// buffer, so a token costs one String. In virtual-thread mode the sources sit in a small shared pool instead.
+
+package com.example.hnp.crypto;
+
+import com.example.hnp.concurrent.ExecutionMode;
+import com.example.hnp.config.Config;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class TokenGenerator {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char[] BASE64URL =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    // Random bytes fetched from the CSPRNG per refill
+    private static final int BLOCK = 512;
+    // Pool slots probed per take/release before falling back to a fresh source
+    private static final int PROBES = 4;
+
+    private final TokenFormat format;
+    private final int bytes;
+    private final String algorithm;
+    private final RandomCache cache;
+    private final ThreadLocal<Source> local;
+    private final AtomicReferenceArray<Source> pool;
+    // SHARED: one SecureRandom shared by every caller, as UUID.randomUUID does
+    private final SecureRandom shared;
+
+    public TokenGenerator(TokenFormat format, int bytes, String algorithm, RandomCache cache) {
+        if (format == TokenFormat.UUID) {
+            bytes = 16;
+        }
+        if (bytes < 1 || bytes > BLOCK) {
+            throw new IllegalArgumentException("Token size must be between 1 and " + BLOCK + " bytes: " + bytes);
+        }
+        this.format = format;
+        this.bytes = bytes;
+        this.algorithm = algorithm;
+        this.cache = cache;
+        this.shared = newRandom();
+        this.local = cache == RandomCache.THREAD_LOCAL ? ThreadLocal.withInitial(this::newSource) : null;
+        this.pool = cache == RandomCache.POOLED
+            ? new AtomicReferenceArray<>(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1)
+            : null;
+    }
+
+    // Format and size from hnp.crypto.<name>.format / .bytes; CSPRNG from hnp.crypto.rng; sources kept per
+    // hnp.crypto.token-cache, defaulting to POOLED in virtual-thread mode and THREAD_LOCAL otherwise
+    public static TokenGenerator fromEnvironment(String name, TokenFormat defaultFormat, int defaultBytes) {
+        String defaultCache = ExecutionMode.isVirtual() ? "POOLED" : "THREAD_LOCAL";
+        return new TokenGenerator(
+            TokenFormat.valueOf(Config.get("hnp.crypto." + name + ".format", defaultFormat.name()).toUpperCase(Locale.ROOT)),
+            Config.getInt("hnp.crypto." + name + ".bytes", defaultBytes),
+            Config.get("hnp.crypto.rng", "DRBG"),
+            RandomCache.valueOf(Config.get("hnp.crypto.token-cache", defaultCache).toUpperCase(Locale.ROOT).replace('-', '_')));
+    }
+
+    public String next() {
+        if (cache == RandomCache.THREAD_LOCAL) {
+            return local.get().next();
+        }
+        if (cache == RandomCache.SHARED) {
+            byte[] random = new byte[bytes];
+            shared.nextBytes(random);
+            char[] out = new char[format.length(bytes)];
+            return new String(out, 0, encode(random, 0, out));
+        }
+        int start = ThreadLocalRandom.current().nextInt();
+        Source source = take(start);
+        try {
+            return source.next();
+        } finally {
+            release(start, source);
+        }
+    }
+
+    public TokenFormat getFormat() {
+        return format;
+    }
+
+    public int getBytes() {
+        return bytes;
+    }
+
+    public RandomCache getCache() {
+        return cache;
+    }
+
+    private Source take(int start) {
+        int mask = pool.length() - 1;
+        for (int i = 0; i < PROBES; i++) {
+            Source source = pool.getAndSet((start + i) & mask, null);
+            if (source != null) {
+                return source;
+            }
+        }
+        return newSource();
+    }
+
+    private void release(int start, Source source) {
+        int mask = pool.length() - 1;
+        for (int i = 0; i < PROBES; i++) {
+            if (pool.compareAndSet((start + i) & mask, null, source)) {
+                return;
+            }
+        }
+        // Pool is full: let this one go
+    }
+
+    private Source newSource() {
+        return new Source(newRandom());
+    }
+
+    private SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported SecureRandom algorithm: " + algorithm, e);
+        }
+    }
+
+    // Writes the token for random[offset, offset + bytes) into out and returns its length
+    private int encode(byte[] random, int offset, char[] out) {
+        switch (format) {
+            case UUID:
+                random[offset + 6] = (byte) ((random[offset + 6] & 0x0f) | 0x40);
+                random[offset + 8] = (byte) ((random[offset + 8] & 0x3f) | 0x80);
+                int n = 0;
+                for (int i = 0; i < 16; i++) {
+                    if (i == 4 || i == 6 || i == 8 || i == 10) {
+                        out[n++] = '-';
+                    }
+                    int b = random[offset + i] & 0xff;
+                    out[n++] = HEX[b >>> 4];
+                    out[n++] = HEX[b & 0x0f];
+                }
+                return n;
+            case HEX:
+                for (int i = 0; i < bytes; i++) {
+                    int b = random[offset + i] & 0xff;
+                    out[2 * i] = HEX[b >>> 4];
+                    out[2 * i + 1] = HEX[b & 0x0f];
+                }
+                return bytes * 2;
+            default:
+                int w = 0;
+                int i = 0;
+                for (; i + 3 <= bytes; i += 3) {
+                    int v = (random[offset + i] & 0xff) << 16 | (random[offset + i + 1] & 0xff) << 8
+                        | (random[offset + i + 2] & 0xff);
+                    out[w++] = BASE64URL[v >>> 18];
+                    out[w++] = BASE64URL[(v >>> 12) & 0x3f];
+                    out[w++] = BASE64URL[(v >>> 6) & 0x3f];
+                    out[w++] = BASE64URL[v & 0x3f];
+                }
+                if (i < bytes) {
+                    int v = (random[offset + i] & 0xff) << 16;
+                    if (i + 1 < bytes) {
+                        v |= (random[offset + i + 1] & 0xff) << 8;
+                    }
+                    out[w++] = BASE64URL[v >>> 18];
+                    out[w++] = BASE64URL[(v >>> 12) & 0x3f];
+                    if (i + 1 < bytes) {
+                        out[w++] = BASE64URL[(v >>> 6) & 0x3f];
+                    }
+                }
+                return w;
+        }
+    }
+
+    private final class Source {
+        private final SecureRandom random;
+        private final byte[] block = new byte[BLOCK];
+        private final char[] out = new char[format.length(bytes)];
+        private int position = BLOCK;
+
+        Source(SecureRandom random) {
+            this.random = random;
+        }
+
+        String next() {
+            if (position + bytes > BLOCK) {
+                random.nextBytes(block);
+                position = 0;
+            }
+            int n = encode(block, position, out);
+            // Bytes are handed out once; clear them so the block never holds issued tokens
+            Arrays.fill(block, position, position + bytes, (byte) 0);
+            position += bytes;
+            return new String(out, 0, n);
+        }
+    }
+}
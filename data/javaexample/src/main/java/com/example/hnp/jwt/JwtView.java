@@ -0,0 +1,294 @@
+// Parsed view over a compact JWT ("header.payload.signature")
+// The token is tokenized once into dot offsets; header and payload are base64url-decoded lazily, each into
+// a buffer sized for it on first use, and fields are matched on the decoded bytes. reset() keeps the buffers,
+// which only pays off for a caller that holds on to a view: parse() allocates a new view and its buffers every
+// time. Segment counting follows String.split("\\.") so answers match the split/Base64 code this replaces.
+
+package com.example.hnp.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class JwtView {
+
+    private static final byte[] DECODE = new byte[128];
+    private static final char[] ENCODE =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] HOST_FIELD = "\"host\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ALG_KEY = "\"alg\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ALG_FIELD = "\"alg\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] QUOTE = {'"'};
+    private static final byte[] NONE = new byte[0];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ENCODE.length; i++) {
+            DECODE[ENCODE[i]] = (byte) i;
+        }
+    }
+
+    private String token;
+    // End of the token once trailing '.' runs are ignored, as String.split does
+    private int end;
+    private int segments;
+    private int firstDot;
+    private int secondDot;
+    private int thirdDot;
+
+    private byte[] header = NONE;
+    private int headerLength;
+    private byte[] payload = NONE;
+    private int payloadLength;
+    // 0 = not decoded yet, 1 = decoded, -1 = not valid base64url
+    private int headerState;
+    private int payloadState;
+    private StringBuilder out;
+
+    public static JwtView parse(String token) {
+        return new JwtView().reset(token);
+    }
+
+    // Point the view at another token, keeping the decode buffers
+    public JwtView reset(String token) {
+        this.token = token;
+        this.headerState = 0;
+        this.payloadState = 0;
+        this.firstDot = -1;
+        this.secondDot = -1;
+        this.thirdDot = -1;
+        if (token == null) {
+            end = 0;
+            segments = 0;
+            return this;
+        }
+        int e = token.length();
+        while (e > 0 && token.charAt(e - 1) == '.') {
+            e--;
+        }
+        end = e;
+        if (e == 0) {
+            segments = token.isEmpty() ? 1 : 0;
+            return this;
+        }
+        int count = 1;
+        for (int i = 0; i < e; i++) {
+            if (token.charAt(i) == '.') {
+                if (count == 1) {
+                    firstDot = i;
+                } else if (count == 2) {
+                    secondDot = i;
+                } else if (count == 3) {
+                    thirdDot = i;
+                }
+                count++;
+            }
+        }
+        segments = count;
+        return this;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public boolean isEmpty() {
+        return token == null || token.isEmpty();
+    }
+
+    public int getSegmentCount() {
+        return segments;
+    }
+
+    private int headerEnd() {
+        return firstDot < 0 ? end : firstDot;
+    }
+
+    private int signatureEnd() {
+        return thirdDot < 0 ? end : thirdDot;
+    }
+
+    // Only meaningful with three segments
+    public boolean signatureEquals(String value) {
+        int start = secondDot + 1;
+        int length = signatureEnd() - start;
+        return length == value.length() && token.regionMatches(start, value, 0, length);
+    }
+
+    // Throws IllegalArgumentException if the header is not valid base64url, like Base64.getUrlDecoder()
+    public boolean headerContains(String text) {
+        decodeHeader();
+        if (!isAscii(text)) {
+            return indexOf(header, headerLength, text.getBytes(StandardCharsets.UTF_8), 0) >= 0;
+        }
+        outer:
+        for (int i = 0; i <= headerLength - text.length(); i++) {
+            for (int j = 0; j < text.length(); j++) {
+                if (header[i + j] != text.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Value of a simple "alg":"..." header field; same substring arithmetic as the indexOf-based original
+    public String algorithm() {
+        decodeHeader();
+        if (indexOf(header, headerLength, ALG_KEY, 0) < 0) {
+            return null;
+        }
+        int start = indexOf(header, headerLength, ALG_FIELD, 0) + ALG_FIELD.length;
+        int stop = indexOf(header, headerLength, QUOTE, start);
+        if (stop < start) {
+            throw new IllegalArgumentException("Unterminated alg field");
+        }
+        return new String(header, start, stop - start, StandardCharsets.UTF_8);
+    }
+
+    // New token with every "host":"..." payload value replaced; header and signature are kept verbatim
+    public String withPayloadHost(String newHost) {
+        decodePayload();
+        byte[] replacement = String.valueOf(newHost).getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = out == null ? (out = new StringBuilder(token.length() + 32)) : out;
+        sb.setLength(0);
+        sb.append(token, 0, firstDot + 1);
+
+        Base64UrlWriter writer = new Base64UrlWriter(sb);
+        int from = 0;
+        int at;
+        while ((at = indexOf(payload, payloadLength, HOST_FIELD, from)) >= 0) {
+            int valueStart = at + HOST_FIELD.length;
+            int valueEnd = valueStart;
+            while (valueEnd < payloadLength && payload[valueEnd] != '"') {
+                valueEnd++;
+            }
+            if (valueEnd == payloadLength) {
+                break;
+            }
+            writer.write(payload, from, valueStart - from);
+            writer.write(replacement, 0, replacement.length);
+            from = valueEnd;
+        }
+        writer.write(payload, from, payloadLength - from);
+        writer.finish();
+
+        sb.append('.').append(token, secondDot + 1, signatureEnd());
+        return sb.toString();
+    }
+
+    private void decodeHeader() {
+        if (headerState == 0) {
+            int start = 0;
+            int stop = headerEnd();
+            header = ensure(header, decodedLength(stop - start));
+            headerLength = decode(token, start, stop, header);
+            headerState = headerLength < 0 ? -1 : 1;
+        }
+        if (headerState < 0) {
+            throw new IllegalArgumentException("JWT header is not valid base64url");
+        }
+    }
+
+    private void decodePayload() {
+        if (payloadState == 0) {
+            int start = firstDot + 1;
+            int stop = secondDot;
+            payload = ensure(payload, decodedLength(stop - start));
+            payloadLength = decode(token, start, stop, payload);
+            payloadState = payloadLength < 0 ? -1 : 1;
+        }
+        if (payloadState < 0) {
+            throw new IllegalArgumentException("JWT payload is not valid base64url");
+        }
+    }
+
+    private static byte[] ensure(byte[] buffer, int size) {
+        return buffer.length >= size ? buffer : new byte[Math.max(size, buffer.length * 2)];
+    }
+
+    private static int decodedLength(int chars) {
+        return chars / 4 * 3 + 3;
+    }
+
+    // Base64url decode of s[start, stop) into dst; optional '=' padding; returns length or -1 if invalid
+    static int decode(String s, int start, int stop, byte[] dst) {
+        int pad = 0;
+        while (stop > start && s.charAt(stop - 1) == '=' && pad < 2) {
+            stop--;
+            pad++;
+        }
+        int length = stop - start;
+        if ((pad > 0 && (length + pad) % 4 != 0) || length % 4 == 1) {
+            return -1;
+        }
+        int bits = 0;
+        int buffered = 0;
+        int n = 0;
+        for (int i = start; i < stop; i++) {
+            char c = s.charAt(i);
+            int v = c < 128 ? DECODE[c] : -1;
+            if (v < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | v;
+            buffered += 6;
+            if (buffered >= 8) {
+                buffered -= 8;
+                dst[n++] = (byte) (bits >> buffered);
+            }
+        }
+        return n;
+    }
+
+    static int indexOf(byte[] haystack, int length, byte[] needle, int from) {
+        outer:
+        for (int i = Math.max(from, 0); i <= length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Streams bytes as unpadded base64url straight into a StringBuilder
+    private static final class Base64UrlWriter {
+        private final StringBuilder sb;
+        private int bits;
+        private int buffered;
+
+        Base64UrlWriter(StringBuilder sb) {
+            this.sb = sb;
+        }
+
+        void write(byte[] src, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                bits = (bits << 8) | (src[i] & 0xff);
+                buffered += 8;
+                while (buffered >= 6) {
+                    buffered -= 6;
+                    sb.append(ENCODE[(bits >> buffered) & 0x3f]);
+                }
+            }
+        }
+
+        void finish() {
+            if (buffered > 0) {
+                sb.append(ENCODE[(bits << (6 - buffered)) & 0x3f]);
+                buffered = 0;
+            }
+        }
+    }
+}
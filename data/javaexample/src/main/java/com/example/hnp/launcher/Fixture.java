@@ -0,0 +1,28 @@
+// One entry of hnp.launcher.fixtures: a Spring fixture application and the port it is served on
+
+package com.example.hnp.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public record Fixture(String name, String className, int port) {
+
+    // Parses "name=fully.qualified.Class:port,name=...:port"
+    public static List<Fixture> parseAll(String spec) {
+        List<Fixture> fixtures = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            int colon = entry.lastIndexOf(':');
+            if (equals < 1 || colon < equals + 2 || colon == entry.length() - 1) {
+                throw new IllegalArgumentException("Fixture entry must look like name=class:port, got: " + entry);
+            }
+            fixtures.add(new Fixture(entry.substring(0, equals), entry.substring(equals + 1, colon),
+                                     Integer.parseInt(entry.substring(colon + 1))));
+        }
+        return fixtures;
+    }
+}
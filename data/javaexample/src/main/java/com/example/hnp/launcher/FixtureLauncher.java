@@ -0,0 +1,159 @@
+// Hosts several Spring fixture applications in one JVM
+// Each fixture runs as a child context of one shared parent, on its own port, so it keeps its own controllers and
+// /forgot mapping while sharing the JVM, the class metadata, ResetMailer.shared() and (in platform-thread mode) a
+// single Tomcat request executor instead of one 200-thread pool per fixture. Fixtures are listed in
+// hnp.launcher.fixtures; classes that are not on the classpath are skipped with a log line. Only Spring Boot
+// fixtures can be mounted: Struts, Play, Jakarta EE, Vaadin and Wicket each need their own runtime (see README).
+
+package com.example.hnp.launcher;
+
+import com.example.hnp.concurrent.ContextCarrier;
+import com.example.hnp.concurrent.ExecutionMode;
+import com.example.hnp.concurrent.ExecutorSettings;
+import com.example.hnp.concurrent.InstrumentedExecutor;
+import com.example.hnp.concurrent.RejectionPolicy;
+import com.example.hnp.config.Config;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public final class FixtureLauncher implements AutoCloseable {
+
+    // The Spring Boot fixtures the launcher profile compiles (see pom.xml); spring_security is left out because its
+    // starter would secure every fixture sharing the classpath
+    static final String DEFAULT_FIXTURES = String.join(",",
+        "spring=com.example.hnp.HnpApplication:8080",
+        "thread-local=com.example.hnp.threadlocal.ThreadLocalHnpApplication:8082",
+        "jwt-bypass=com.example.hnp.jwtbypass.JwtBypassHnpApplication:8083",
+        "oauth-bypass=com.example.hnp.oauthbypass.OAuthBypassHnpApplication:8084",
+        "session-fixation=com.example.hnp.sessionfixation.SessionFixationHnpApplication:8085");
+
+    private final GenericApplicationContext parent;
+    private final InstrumentedExecutor requestExecutor;
+    private final List<ConfigurableApplicationContext> children = new ArrayList<>();
+
+    private FixtureLauncher(GenericApplicationContext parent, InstrumentedExecutor requestExecutor) {
+        this.parent = parent;
+        this.requestExecutor = requestExecutor;
+    }
+
+    public static void main(String[] args) {
+        FixtureLauncher launcher = start(Fixture.parseAll(Config.get("hnp.launcher.fixtures", DEFAULT_FIXTURES)), args);
+        Runtime.getRuntime().addShutdownHook(new Thread(launcher::close, "hnp-launcher-shutdown"));
+    }
+
+    public static FixtureLauncher start(List<Fixture> fixtures, String... args) {
+        // Virtual-thread mode already gives every connector the JVM-wide carrier pool
+        InstrumentedExecutor requestExecutor = ExecutionMode.isVirtual() ? null : InstrumentedExecutor.create("http",
+            ExecutorSettings.fromEnvironment("http", 200, 1000, RejectionPolicy.ABORT), ContextCarrier.none());
+
+        GenericApplicationContext parent = new GenericApplicationContext();
+        parent.setId("hnp-launcher");
+        parent.refresh();
+
+        FixtureLauncher launcher = new FixtureLauncher(parent, requestExecutor);
+        long started = System.nanoTime();
+        try {
+            for (Fixture fixture : fixtures) {
+                launcher.launch(fixture, args);
+            }
+        } catch (RuntimeException e) {
+            launcher.close();
+            throw e;
+        }
+        System.out.println("[LAUNCHER] " + launcher.children.size() + " of " + fixtures.size() + " fixtures up in "
+            + (System.nanoTime() - started) / 1_000_000 + " ms");
+        return launcher;
+    }
+
+    private void launch(Fixture fixture, String[] args) {
+        Class<?> type;
+        try {
+            type = Class.forName(fixture.className());
+        } catch (ClassNotFoundException e) {
+            System.out.println("[LAUNCHER] Skipping " + fixture.name() + ": " + fixture.className() + " is not built");
+            return;
+        }
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(type)
+            .parent(parent)
+            .bannerMode(Banner.Mode.OFF)
+            .properties("server.port=" + fixture.port(), "spring.application.name=" + fixture.name());
+        builder.initializers(context -> ((GenericApplicationContext) context).registerBean(
+            OtherFixturesFilter.class, () -> new OtherFixturesFilter(type.getName())));
+        if (requestExecutor != null) {
+            builder.initializers(context -> ((GenericApplicationContext) context).registerBean(
+                SharedExecutorCustomizer.class, () -> new SharedExecutorCustomizer(requestExecutor)));
+        }
+        children.add(builder.run(args));
+        System.out.println("[LAUNCHER] " + fixture.name() + " (" + type.getSimpleName() + ") on port " + fixture.port());
+    }
+
+    public List<ConfigurableApplicationContext> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    @Override
+    public void close() {
+        for (int i = children.size() - 1; i >= 0; i--) {
+            children.get(i).close();
+        }
+        children.clear();
+        parent.close();
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+    }
+
+    // Keeps a fixture's component scan to its own application: HnpApplication scans com.example.hnp, whose
+    // subpackages hold the other fixtures, each its own @SpringBootApplication with a /forgot handler
+    private static final class OtherFixturesFilter extends TypeExcludeFilter {
+        private final String fixtureClass;
+
+        OtherFixturesFilter(String fixtureClass) {
+            this.fixtureClass = fixtureClass;
+        }
+
+        @Override
+        public boolean match(MetadataReader reader, MetadataReaderFactory factory) {
+            return reader.getAnnotationMetadata().isAnnotated(SpringBootConfiguration.class.getName())
+                && !reader.getClassMetadata().getClassName().equals(fixtureClass);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof OtherFixturesFilter && ((OtherFixturesFilter) other).fixtureClass.equals(fixtureClass);
+        }
+
+        @Override
+        public int hashCode() {
+            return fixtureClass.hashCode();
+        }
+    }
+
+    // Points every Tomcat connector of a fixture at the launcher's request executor; Tomcat leaves an
+    // external executor running when the connector stops
+    private static final class SharedExecutorCustomizer implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+        private final Executor executor;
+
+        SharedExecutorCustomizer(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void customize(TomcatServletWebServerFactory factory) {
+            factory.addConnectorCustomizers(connector -> connector.getProtocolHandler().setExecutor(executor));
+        }
+    }
+}
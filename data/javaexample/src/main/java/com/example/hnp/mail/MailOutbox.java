@@ -0,0 +1,295 @@
+// In-process outbound mail queue for the /forgot handlers
+// Handlers enqueue and return; a few sender workers drain the queue in batches over one pooled
+// connection each, retrying failed messages with jittered exponential backoff. Only a 5xx SMTP reply
+// (or a message some recipients already received) is treated as final.
+
+package com.example.hnp.mail;
+
+import com.example.hnp.concurrent.NamedThreadFactory;
+import com.example.hnp.metrics.Histogram;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class MailOutbox implements MailOutboxMXBean, AutoCloseable {
+
+    private static final long POLL_INTERVAL_MILLIS = 250;
+
+    private final TransportPool pool;
+    private final OutboxSettings settings;
+    private final BlockingQueue<Envelope> queue;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService retryScheduler;
+    // Envelopes waiting out a backoff; whoever removes one (requeue or close) owns it
+    private final Set<Envelope> pendingRetries = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder droppedOnClose = new LongAdder();
+    private volatile String lastFailure = "";
+    private final Histogram batchSizes = new Histogram();
+    private final Histogram sendLatencyMicros = new Histogram();
+    private final Histogram queueWaitMicros = new Histogram();
+
+    public MailOutbox(TransportPool pool, OutboxSettings settings) {
+        this.pool = pool;
+        this.settings = settings;
+        this.queue = new ArrayBlockingQueue<>(settings.getCapacity());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("hnp-mail-retry", true));
+        this.workers = Executors.newFixedThreadPool(settings.getWorkers(), new NamedThreadFactory("hnp-mail-outbox", true));
+        for (int i = 0; i < settings.getWorkers(); i++) {
+            workers.execute(this::drainLoop);
+        }
+    }
+
+    // Accept a message for delivery; never waits on SMTP, only (under BLOCK) on queue space
+    public void enqueue(Message message) throws MailQueueFullException {
+        if (!running) {
+            throw new MailQueueFullException("Mail outbox is shut down");
+        }
+        Envelope envelope = new Envelope(message);
+        boolean accepted;
+        switch (settings.getOverflowPolicy()) {
+            case BLOCK:
+                accepted = offerBlocking(envelope);
+                break;
+            case SHED:
+                accepted = offerShedding(envelope);
+                break;
+            default:
+                accepted = queue.offer(envelope);
+                break;
+        }
+        if (!accepted) {
+            rejected.increment();
+            throw new MailQueueFullException("Mail outbox is full (" + settings.getCapacity() + " messages queued)");
+        }
+        enqueued.increment();
+    }
+
+    private boolean offerBlocking(Envelope envelope) {
+        try {
+            return queue.offer(envelope, settings.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean offerShedding(Envelope envelope) {
+        while (!queue.offer(envelope)) {
+            if (queue.poll() != null) {
+                shed.increment();
+            }
+        }
+        return true;
+    }
+
+    private void drainLoop() {
+        List<Envelope> batch = new ArrayList<>(settings.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            Envelope first;
+            try {
+                first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, settings.getBatchSize() - 1);
+            sendBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void sendBatch(List<Envelope> batch) {
+        batchSizes.record(batch.size());
+        long dequeuedAt = System.nanoTime();
+        for (Envelope envelope : batch) {
+            queueWaitMicros.record((dequeuedAt - envelope.enqueuedAt) / 1_000);
+        }
+
+        int[] next = {0};
+        try {
+            pool.withConnection(lease -> {
+                for (; next[0] < batch.size(); next[0]++) {
+                    Envelope envelope = batch.get(next[0]);
+                    long start = System.nanoTime();
+                    try {
+                        lease.send(envelope.message);
+                        sendLatencyMicros.record((System.nanoTime() - start) / 1_000);
+                        sent.increment();
+                    } catch (SendFailedException e) {
+                        if (isTransient(e)) {
+                            retryLater(envelope, e);
+                        } else {
+                            envelope.attempts++;
+                            giveUp(envelope, e);
+                        }
+                    } catch (MessagingException | RuntimeException e) {
+                        retryLater(envelope, e);
+                    }
+                }
+            });
+        } catch (MessagingException | RuntimeException e) {
+            // No connection could be borrowed: everything not yet attempted goes back for retry
+            for (int i = next[0]; i < batch.size(); i++) {
+                retryLater(batch.get(i), e);
+            }
+        }
+    }
+
+    // SendFailedException covers every SMTP refusal, not just bad recipients: a 451 to DATA arrives as
+    // SMTPSendFailedException, a 450/452 to RCPT as a chained SMTPAddressFailedException. Retry when every reply
+    // code found is 4xx, unless part of the message was already delivered and a resend would duplicate it
+    static boolean isTransient(SendFailedException e) {
+        Address[] delivered = e.getValidSentAddresses();
+        if (delivered != null && delivered.length > 0) {
+            return false;
+        }
+        boolean transientReply = false;
+        Exception cause = e;
+        while (cause != null) {
+            int code = replyCode(cause);
+            if (code >= 500) {
+                return false;
+            }
+            if (code >= 400) {
+                transientReply = true;
+            }
+            cause = cause instanceof MessagingException ? ((MessagingException) cause).getNextException() : null;
+        }
+        return transientReply;
+    }
+
+    private static int replyCode(Exception e) {
+        if (e instanceof SMTPSendFailedException) {
+            return ((SMTPSendFailedException) e).getReturnCode();
+        }
+        if (e instanceof SMTPAddressFailedException) {
+            return ((SMTPAddressFailedException) e).getReturnCode();
+        }
+        if (e instanceof SMTPSenderFailedException) {
+            return ((SMTPSenderFailedException) e).getReturnCode();
+        }
+        return -1;
+    }
+
+    private void retryLater(Envelope envelope, Exception cause) {
+        envelope.attempts++;
+        if (envelope.attempts >= settings.getMaxAttempts() || !running) {
+            giveUp(envelope, cause);
+            return;
+        }
+        retried.increment();
+        pendingRetries.add(envelope);
+        retryScheduler.schedule(() -> requeue(envelope), retryDelayMillis(envelope.attempts), TimeUnit.MILLISECONDS);
+    }
+
+    // Equal jitter: half the exponential step is fixed, the other half random, capped at retry-max
+    private long retryDelayMillis(int attempts) {
+        long base = settings.getRetryBaseDelay().toMillis();
+        long cap = Math.min(settings.getRetryMaxDelay().toMillis(), base << Math.min(attempts - 1, 30));
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    private void requeue(Envelope envelope) {
+        if (!pendingRetries.remove(envelope)) {
+            return;
+        }
+        envelope.enqueuedAt = System.nanoTime();
+        if (!queue.offer(envelope)) {
+            giveUp(envelope, new MailQueueFullException("Mail outbox full on retry"));
+        }
+    }
+
+    private void giveUp(Envelope envelope, Exception cause) {
+        failed.increment();
+        lastFailure = "Dropped after " + envelope.attempts + " attempt(s): " + cause.getMessage();
+    }
+
+    // Stop accepting, let workers flush what is queued (bounded wait), then stop retries; whatever is still
+    // queued or backing off is counted as failed and dropped-on-close rather than discarded unseen
+    @Override
+    public void close() {
+        running = false;
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+        retryScheduler.shutdownNow();
+        try {
+            retryScheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        MailQueueFullException cause = new MailQueueFullException("Mail outbox closed");
+        List<Envelope> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        for (Envelope envelope : pendingRetries) {
+            if (pendingRetries.remove(envelope)) {
+                leftover.add(envelope);
+            }
+        }
+        for (Envelope envelope : leftover) {
+            droppedOnClose.increment();
+            giveUp(envelope, cause);
+        }
+    }
+
+    @Override public int getQueueDepth() { return queue.size(); }
+    @Override public int getQueueCapacity() { return settings.getCapacity(); }
+    @Override public long getEnqueuedCount() { return enqueued.sum(); }
+    @Override public long getSentCount() { return sent.sum(); }
+    @Override public long getFailedCount() { return failed.sum(); }
+    @Override public long getRetriedCount() { return retried.sum(); }
+    @Override public long getRejectedCount() { return rejected.sum(); }
+    @Override public long getShedCount() { return shed.sum(); }
+    @Override public long getDroppedOnCloseCount() { return droppedOnClose.sum(); }
+    @Override public String getLastFailure() { return lastFailure; }
+    @Override public double getBatchSizeMean() { return batchSizes.snapshot().getMean(); }
+    @Override public long getBatchSizeMax() { return batchSizes.snapshot().getMax(); }
+    @Override public long getSendLatencyP50Micros() { return sendLatencyMicros.snapshot().getValueAtQuantile(0.50); }
+    @Override public long getSendLatencyP99Micros() { return sendLatencyMicros.snapshot().getValueAtQuantile(0.99); }
+    @Override public long getSendLatencyMaxMicros() { return sendLatencyMicros.snapshot().getMax(); }
+    @Override public long getQueueWaitP99Micros() { return queueWaitMicros.snapshot().getValueAtQuantile(0.99); }
+
+    private static final class Envelope {
+        final Message message;
+        long enqueuedAt = System.nanoTime();
+        int attempts;
+
+        Envelope(Message message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+// JMX view of MailOutbox (com.example.hnp:type=MailOutbox), for sizing queue, workers and batches
+
+package com.example.hnp.mail;
+
+public interface MailOutboxMXBean {
+    int getQueueDepth();
+    int getQueueCapacity();
+    long getEnqueuedCount();
+    long getSentCount();
+    long getFailedCount();
+    long getRetriedCount();
+    long getRejectedCount();
+    long getShedCount();
+    // Queued or backing-off messages given up by close(); also included in the failed count
+    long getDroppedOnCloseCount();
+    String getLastFailure();
+    double getBatchSizeMean();
+    long getBatchSizeMax();
+    long getSendLatencyP50Micros();
+    long getSendLatencyP99Micros();
+    long getSendLatencyMaxMicros();
+    long getQueueWaitP99Micros();
+}
@@ -0,0 +1,13 @@
+// Raised when the outbox cannot accept a message under the configured OverflowPolicy
+
+package com.example.hnp.mail;
+
+import jakarta.mail.MessagingException;
+
+public class MailQueueFullException extends MessagingException {
+    private static final long serialVersionUID = 1L;
+
+    public MailQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,129 @@
+// Shared SMTP settings for the HNP fixtures
+// Values come from hnp.mail.* system properties or HNP_MAIL_* environment variables (see Config),
+// so every fixture can be pointed at a local SMTP stand-in without code changes.
+
+package com.example.hnp.mail;
+
+import com.example.hnp.config.Config;
+
+import java.time.Duration;
+import java.util.Properties;
+
+public final class MailSettings {
+
+    private final String host;
+    private final int port;
+    private final boolean auth;
+    private final boolean startTls;
+    private final String sslTrust;
+    private final String username;
+    private final String password;
+    private final String from;
+    private final int poolSize;
+    private final Duration idleTimeout;
+    private final Duration borrowTimeout;
+    private final Duration connectTimeout;
+
+    private MailSettings(Builder builder) {
+        this.host = builder.host;
+        this.port = builder.port;
+        this.auth = builder.auth;
+        this.startTls = builder.startTls;
+        this.sslTrust = builder.sslTrust;
+        this.username = builder.username;
+        this.password = builder.password;
+        this.from = builder.from;
+        this.poolSize = builder.poolSize;
+        this.idleTimeout = builder.idleTimeout;
+        this.borrowTimeout = builder.borrowTimeout;
+        this.connectTimeout = builder.connectTimeout;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Defaults match the values the fixtures used to hard-code
+    public static MailSettings fromEnvironment() {
+        return builder()
+            .host(Config.get("hnp.mail.host", "smtp.gmail.com"))
+            .port(Config.getInt("hnp.mail.port", 587))
+            .auth(Config.getBoolean("hnp.mail.auth", true))
+            .startTls(Config.getBoolean("hnp.mail.starttls", true))
+            .sslTrust(Config.get("hnp.mail.ssl.trust", null))
+            .username(Config.get("hnp.mail.username", "no-reply@example.com"))
+            .password(Config.get("hnp.mail.password", "password"))
+            .from(Config.get("hnp.mail.from", "no-reply@example.com"))
+            .poolSize(Config.getInt("hnp.mail.pool.size", 4))
+            .idleTimeout(Config.getMillis("hnp.mail.pool.idle-timeout-ms", 30_000))
+            .borrowTimeout(Config.getMillis("hnp.mail.pool.borrow-timeout-ms", 10_000))
+            .connectTimeout(Config.getMillis("hnp.mail.connect-timeout-ms", 10_000))
+            .build();
+    }
+
+    // Properties for the single shared jakarta.mail Session
+    public Properties toSessionProperties() {
+        Properties props = new Properties();
+        props.put("mail.smtp.auth", String.valueOf(auth));
+        props.put("mail.smtp.starttls.enable", String.valueOf(startTls));
+        if (sslTrust != null) {
+            props.put("mail.smtp.ssl.trust", sslTrust);
+        }
+        props.put("mail.smtp.host", host);
+        props.put("mail.smtp.port", String.valueOf(port));
+        props.put("mail.smtp.connectiontimeout", String.valueOf(connectTimeout.toMillis()));
+        props.put("mail.smtp.timeout", String.valueOf(connectTimeout.toMillis()));
+        return props;
+    }
+
+    public String getHost() { return host; }
+    public int getPort() { return port; }
+    public boolean isAuth() { return auth; }
+    public boolean isStartTls() { return startTls; }
+    public String getSslTrust() { return sslTrust; }
+    public String getUsername() { return username; }
+    public String getPassword() { return password; }
+    public String getFrom() { return from; }
+    public int getPoolSize() { return poolSize; }
+    public Duration getIdleTimeout() { return idleTimeout; }
+    public Duration getBorrowTimeout() { return borrowTimeout; }
+    public Duration getConnectTimeout() { return connectTimeout; }
+
+    public static final class Builder {
+        private String host = "smtp.gmail.com";
+        private int port = 587;
+        private boolean auth = true;
+        private boolean startTls = true;
+        private String sslTrust;
+        private String username = "no-reply@example.com";
+        private String password = "password";
+        private String from = "no-reply@example.com";
+        private int poolSize = 4;
+        private Duration idleTimeout = Duration.ofSeconds(30);
+        private Duration borrowTimeout = Duration.ofSeconds(10);
+        private Duration connectTimeout = Duration.ofSeconds(10);
+
+        private Builder() {}
+
+        public Builder host(String host) { this.host = host; return this; }
+        public Builder port(int port) { this.port = port; return this; }
+        public Builder auth(boolean auth) { this.auth = auth; return this; }
+        public Builder startTls(boolean startTls) { this.startTls = startTls; return this; }
+        // Hosts whose certificate is trusted without validation ("*" for all), e.g. a local SmtpSink
+        public Builder sslTrust(String sslTrust) { this.sslTrust = sslTrust; return this; }
+        public Builder username(String username) { this.username = username; return this; }
+        public Builder password(String password) { this.password = password; return this; }
+        public Builder from(String from) { this.from = from; return this; }
+        public Builder poolSize(int poolSize) { this.poolSize = poolSize; return this; }
+        public Builder idleTimeout(Duration idleTimeout) { this.idleTimeout = idleTimeout; return this; }
+        public Builder borrowTimeout(Duration borrowTimeout) { this.borrowTimeout = borrowTimeout; return this; }
+        public Builder connectTimeout(Duration connectTimeout) { this.connectTimeout = connectTimeout; return this; }
+
+        public MailSettings build() {
+            if (poolSize < 1) {
+                throw new IllegalArgumentException("hnp.mail.pool.size must be at least 1");
+            }
+            return new MailSettings(this);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+// Sizing and retry settings for MailOutbox, read from hnp.mail.outbox.* (or HNP_MAIL_OUTBOX_*)
+
+package com.example.hnp.mail;
+
+import com.example.hnp.config.Config;
+
+import java.time.Duration;
+import java.util.Locale;
+
+public final class OutboxSettings {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int workers;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Duration offerTimeout;
+    private final int maxAttempts;
+    private final Duration retryBaseDelay;
+    private final Duration retryMaxDelay;
+
+    public OutboxSettings(boolean enabled, int capacity, int workers, int batchSize, OverflowPolicy overflowPolicy,
+                          Duration offerTimeout, int maxAttempts, Duration retryBaseDelay, Duration retryMaxDelay) {
+        if (capacity < 1 || workers < 1 || batchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("hnp.mail.outbox capacity, workers, batch-size and max-attempts must be positive");
+        }
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeout = offerTimeout;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseDelay = retryBaseDelay;
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    public static OutboxSettings fromEnvironment() {
+        return new OutboxSettings(
+            Config.getBoolean("hnp.mail.outbox.enabled", false),
+            Config.getInt("hnp.mail.outbox.capacity", 1024),
+            Config.getInt("hnp.mail.outbox.workers", 2),
+            Config.getInt("hnp.mail.outbox.batch-size", 32),
+            OverflowPolicy.valueOf(Config.get("hnp.mail.outbox.overflow", "REJECT").toUpperCase(Locale.ROOT)),
+            Config.getMillis("hnp.mail.outbox.offer-timeout-ms", 5_000),
+            Config.getInt("hnp.mail.outbox.max-attempts", 5),
+            Config.getMillis("hnp.mail.outbox.retry-base-ms", 200),
+            Config.getMillis("hnp.mail.outbox.retry-max-ms", 10_000));
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public int getCapacity() { return capacity; }
+    public int getWorkers() { return workers; }
+    public int getBatchSize() { return batchSize; }
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public Duration getOfferTimeout() { return offerTimeout; }
+    public int getMaxAttempts() { return maxAttempts; }
+    public Duration getRetryBaseDelay() { return retryBaseDelay; }
+    public Duration getRetryMaxDelay() { return retryMaxDelay; }
+}
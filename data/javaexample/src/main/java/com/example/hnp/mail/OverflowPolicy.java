@@ -0,0 +1,12 @@
+// What MailOutbox does with a new message when the queue is full
+
+package com.example.hnp.mail;
+
+public enum OverflowPolicy {
+    // Fail the enqueue with MailQueueFullException
+    REJECT,
+    // Wait up to hnp.mail.outbox.offer-timeout-ms for space, then reject
+    BLOCK,
+    // Drop the oldest queued message so the newest reset link still goes out
+    SHED
+}
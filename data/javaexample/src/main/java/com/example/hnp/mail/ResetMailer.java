@@ -0,0 +1,179 @@
+// Shared mail delivery for the HNP fixtures
+// One Session and one TransportPool per process. Every fixture's sendResetEmail() builds its message on getSession()
+// and calls Transport.send, which ResetTransport routes here. Delivery is synchronous over a pooled connection
+// unless hnp.mail.outbox.enabled=true, in which case sends only enqueue and a slow relay never holds a request thread.
+
+package com.example.hnp.mail;
+
+import com.example.hnp.concurrent.ExecutionMode;
+import com.example.hnp.concurrent.NamedThreadFactory;
+import com.example.hnp.metrics.Jmx;
+import com.example.hnp.template.Template;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class ResetMailer implements AutoCloseable {
+
+    private static volatile ResetMailer shared;
+    // Open mailers by Session, for the ResetTransport instances jakarta.mail creates on them
+    private static final Map<Session, ResetMailer> BY_SESSION = new ConcurrentHashMap<>();
+
+    private final MailSettings settings;
+    private final Session session;
+    private final TransportPool pool;
+    // Null (sends delivered synchronously) unless hnp.mail.outbox.enabled=true
+    private final MailOutbox outbox;
+    // Virtual-thread mode only: SMTPTransport synchronizes around its socket I/O, which would pin the
+    // caller's carrier thread, so synchronous sends run here and the virtual caller just parks on the result
+    private final ExecutorService mailIo;
+    private final InternetAddress fromAddress;
+
+    public ResetMailer(MailSettings settings, OutboxSettings outboxSettings) {
+        this.settings = settings;
+        this.session = Session.getInstance(settings.toSessionProperties());
+        session.addProvider(ResetTransport.PROVIDER);
+        session.setProtocolForAddress("rfc822", ResetTransport.PROTOCOL);
+        this.pool = new TransportPool(session, settings);
+        this.outbox = outboxSettings.isEnabled() ? new MailOutbox(pool, outboxSettings) : null;
+        this.mailIo = ExecutionMode.isVirtual()
+            ? Executors.newFixedThreadPool(settings.getPoolSize(), new NamedThreadFactory("hnp-mail-io", true))
+            : null;
+        try {
+            this.fromAddress = new InternetAddress(settings.getFrom());
+        } catch (MessagingException e) {
+            throw new IllegalArgumentException("Invalid hnp.mail.from address: " + settings.getFrom(), e);
+        }
+        BY_SESSION.put(session, this);
+    }
+
+    // Process-wide instance configured from hnp.mail.* properties, closed on JVM shutdown
+    public static ResetMailer shared() {
+        ResetMailer mailer = shared;
+        if (mailer == null) {
+            synchronized (ResetMailer.class) {
+                mailer = shared;
+                if (mailer == null) {
+                    mailer = new ResetMailer(MailSettings.fromEnvironment(), OutboxSettings.fromEnvironment());
+                    if (mailer.outbox != null) {
+                        Jmx.register("MailOutbox", "shared", mailer.outbox);
+                    }
+                    Runtime.getRuntime().addShutdownHook(new Thread(mailer::close, "hnp-mail-shutdown"));
+                    shared = mailer;
+                }
+            }
+        }
+        return mailer;
+    }
+
+    static ResetMailer forSession(Session session) {
+        return BY_SESSION.get(session);
+    }
+
+    // Session for messages sent with Transport.send: they are delivered like send() delivers its own
+    public Session getSession() {
+        return session;
+    }
+
+    public void send(String to, String subject, String htmlBody) throws MessagingException {
+        dispatch(compose(to, subject, htmlBody));
+    }
+
+    // Body rendered from a compiled template straight into the SMTP stream, e.g. ResetTemplates.RESET_HTML
+    public void send(String to, String subject, Template body, Object... values) throws MessagingException {
+        MimeMessage message = compose(to, subject);
+        message.setDataHandler(new TemplateBody(body, values));
+        dispatch(message);
+    }
+
+    // Wait for SMTP acknowledgement regardless of the outbox setting
+    public void sendNow(String to, String subject, String htmlBody) throws MessagingException {
+        deliver(compose(to, subject, htmlBody));
+    }
+
+    void dispatch(Message message) throws MessagingException {
+        if (outbox != null) {
+            outbox.enqueue(message);
+        } else {
+            deliver(message);
+        }
+    }
+
+    private void deliver(Message message) throws MessagingException {
+        if (mailIo == null) {
+            pool.send(message);
+            return;
+        }
+        Future<Void> result = mailIo.submit((Callable<Void>) () -> {
+            pool.send(message);
+            return null;
+        });
+        try {
+            result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for mail delivery", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MessagingException) {
+                throw (MessagingException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new MessagingException("Mail delivery failed", (Exception) cause);
+        }
+    }
+
+    public MimeMessage compose(String to, String subject, String htmlBody) throws MessagingException {
+        MimeMessage message = compose(to, subject);
+        message.setContent(htmlBody, TemplateBody.CONTENT_TYPE);
+        return message;
+    }
+
+    private MimeMessage compose(String to, String subject) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(fromAddress);
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
+        message.setSubject(subject);
+        return message;
+    }
+
+    public MailSettings getSettings() {
+        return settings;
+    }
+
+    public TransportPool getPool() {
+        return pool;
+    }
+
+    public MailOutbox getOutbox() {
+        return outbox;
+    }
+
+    @Override
+    public void close() {
+        BY_SESSION.remove(session, this);
+        if (outbox != null) {
+            outbox.close();
+        }
+        if (mailIo != null) {
+            mailIo.shutdown();
+        }
+        pool.close();
+    }
+}
@@ -0,0 +1,41 @@
+// Transport behind ResetMailer's Session, so a fixture's Transport.send(message) stays its visible mail sink
+// The Session maps the "rfc822" address type to this provider, and jakarta.mail creates one per Transport.send
+// call. It opens no connection of its own: each message goes to the owning mailer, which queues it in the outbox
+// or sends it over a pooled SMTP connection. The pool itself asks the Session for "smtp" and gets SMTPTransport.
+
+package com.example.hnp.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Provider;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+
+public final class ResetTransport extends Transport {
+
+    static final String PROTOCOL = "hnp-pooled";
+    static final Provider PROVIDER =
+        new Provider(Provider.Type.TRANSPORT, PROTOCOL, ResetTransport.class.getName(), "com.example.hnp", "1");
+
+    // Instantiated reflectively by Session.getTransport
+    public ResetTransport(Session session, URLName urlname) {
+        super(session, urlname);
+    }
+
+    @Override
+    protected boolean protocolConnect(String host, int port, String user, String password) {
+        // Pooled connections are opened and authenticated by TransportPool
+        return true;
+    }
+
+    @Override
+    public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+        ResetMailer mailer = ResetMailer.forSession(session);
+        if (mailer == null) {
+            throw new MessagingException("Session is not owned by an open ResetMailer");
+        }
+        mailer.dispatch(message);
+    }
+}
@@ -0,0 +1,56 @@
+// Message body that renders a compiled template straight into the outgoing SMTP stream
+// jakarta.mail writes the body through DataHandler.writeTo, both when it picks the transfer encoding and
+// when it sends, so the template is rendered into those streams and no intermediate String is built.
+// getContent/getInputStream (only used by code that reads the message back) render a copy. The arity is checked
+// here, so a bad call fails in send() rather than later on an outbox worker.
+
+package com.example.hnp.mail;
+
+import com.example.hnp.template.Template;
+import jakarta.activation.DataHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+final class TemplateBody extends DataHandler {
+
+    static final String CONTENT_TYPE = "text/html; charset=utf-8";
+
+    private final Template template;
+    private final Object[] values;
+
+    TemplateBody(Template template, Object[] values) {
+        super(template, CONTENT_TYPE);
+        if (values.length != template.getSlotNames().size()) {
+            throw new IllegalArgumentException("Template expects " + template.getSlotNames().size() + " values "
+                + template.getSlotNames() + " but got " + values.length);
+        }
+        this.template = template;
+        this.values = values.clone();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        template.writeTo(out, values);
+    }
+
+    @Override
+    public Object getContent() {
+        return template.render(values);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeTo(bytes);
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    @Override
+    public String getName() {
+        return null;
+    }
+}
@@ -0,0 +1,187 @@
+// Bounded pool of connected SMTP transports sharing one jakarta.mail Session
+// Connections are reused across sends, evicted after sitting idle, and reconnected when the server dropped them
+// while idle. A failed send is never repeated here: once DATA may have been accepted, resending could deliver twice.
+
+package com.example.hnp.mail;
+
+import com.example.hnp.concurrent.NamedThreadFactory;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public final class TransportPool implements AutoCloseable {
+
+    private final Session session;
+    private final MailSettings settings;
+    // One permit per connection that may be checked out at the same time
+    private final Semaphore permits;
+    // Most recently used connection at the head, so eviction trims from the tail
+    private final Deque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    public TransportPool(Session session, MailSettings settings) {
+        this.session = session;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getPoolSize(), true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("hnp-mail-evictor", true));
+        long period = Math.max(1000L, settings.getIdleTimeout().toMillis() / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // A checked-out connection, checked with NOOP when it came from the idle set; after a failed send the next
+    // send() on the same lease opens a fresh connection
+    public interface Lease {
+        void send(Message message) throws MessagingException;
+    }
+
+    @FunctionalInterface
+    public interface LeaseCallback {
+        void accept(Lease lease) throws MessagingException;
+    }
+
+    public void send(Message message) throws MessagingException {
+        withConnection(lease -> lease.send(message));
+    }
+
+    // Borrow one connection for several sends, e.g. an outbox batch
+    public void withConnection(LeaseCallback callback) throws MessagingException {
+        PooledTransport pooled = borrow();
+        try {
+            callback.accept(pooled);
+        } finally {
+            release(pooled, !pooled.broken);
+        }
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        if (closed) {
+            throw new MessagingException("Mail transport pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(settings.getBorrowTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for a pooled SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for a pooled SMTP connection", e);
+        }
+
+        PooledTransport pooled = idle.pollFirst();
+        try {
+            if (pooled == null) {
+                pooled = new PooledTransport(session.getTransport("smtp"));
+                pooled.connect(settings);
+            } else if (!pooled.transport.isConnected()) {
+                // SMTPTransport.isConnected() sends NOOP: the server closed it while idle, nothing was sent yet
+                pooled.reconnect(settings);
+            }
+            return pooled;
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            if (pooled != null) {
+                pooled.closeQuietly();
+            }
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport pooled, boolean reusable) {
+        if (reusable && !closed) {
+            pooled.idleSince = System.nanoTime();
+            idle.offerFirst(pooled);
+        } else {
+            pooled.closeQuietly();
+        }
+        permits.release();
+    }
+
+    private void evictIdle() {
+        long cutoff = System.nanoTime() - settings.getIdleTimeout().toNanos();
+        PooledTransport oldest;
+        while ((oldest = idle.peekLast()) != null && oldest.idleSince - cutoff < 0) {
+            if (idle.removeLastOccurrence(oldest)) {
+                oldest.closeQuietly();
+            }
+        }
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return settings.getPoolSize() - permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closeQuietly();
+        }
+    }
+
+    private final class PooledTransport implements Lease {
+        final Transport transport;
+        volatile long idleSince = System.nanoTime();
+        boolean broken;
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        @Override
+        public void send(Message message) throws MessagingException {
+            message.saveChanges();
+            if (broken) {
+                reconnect(settings);
+                broken = false;
+            }
+            try {
+                transport.sendMessage(message, message.getAllRecipients());
+            } catch (SendFailedException e) {
+                // The server refused the message or some recipients (4xx or 5xx reply) and the SMTP session stays
+                // usable; MailOutbox decides from the reply code whether to retry
+                throw e;
+            } catch (MessagingException | IllegalStateException e) {
+                // The failure may come after the server accepted DATA, so the message is not resent; the
+                // connection is replaced before the next send and the caller decides whether to retry
+                broken = true;
+                throw e;
+            }
+        }
+
+        void connect(MailSettings settings) throws MessagingException {
+            if (settings.isAuth()) {
+                transport.connect(settings.getHost(), settings.getPort(), settings.getUsername(), settings.getPassword());
+            } else {
+                transport.connect(settings.getHost(), settings.getPort(), null, null);
+            }
+        }
+
+        void reconnect(MailSettings settings) throws MessagingException {
+            closeQuietly();
+            connect(settings);
+        }
+
+        void closeQuietly() {
+            try {
+                transport.close();
+            } catch (MessagingException | RuntimeException e) {
+                // Connection is being discarded anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+// Registers fixture infrastructure MXBeans under the com.example.hnp JMX domain
+// Visible in jconsole / JMC / any JMX exporter without extra dependencies
+
+package com.example.hnp.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+public final class Jmx {
+
+    private Jmx() {}
+
+    // Replaces any bean already registered under the same name, e.g. after a fixture restart in-process
+    public static void register(String type, String name, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("com.example.hnp:type=" + type + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(bean, objectName);
+        } catch (JMException e) {
+            System.err.println("[METRICS] Could not register " + type + " " + name + ": " + e.getMessage());
+        }
+    }
+
+    public static void unregister(String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("com.example.hnp:type=" + type + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            // Nothing left to clean up
+        }
+    }
+}
@@ -0,0 +1,85 @@
+// Memory-bounded store of the most recent messages SmtpSink accepted
+// Bounded by both message count and approximate heap bytes; the oldest messages are evicted first, so a long
+// load run keeps the tail of the traffic instead of growing the heap. Ids keep counting across evictions.
+
+package com.example.hnp.smtp;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+final class MessageRing {
+
+    private final long maxBytes;
+    private final int maxMessages;
+    private final ArrayDeque<ReceivedMessage> messages = new ArrayDeque<>();
+    private long bytes;
+    private long lastId;
+    private long evicted;
+
+    MessageRing(long maxBytes, int maxMessages) {
+        this.maxBytes = maxBytes;
+        this.maxMessages = maxMessages;
+    }
+
+    synchronized ReceivedMessage add(String sender, List<String> recipients, byte[] data) {
+        ReceivedMessage message = new ReceivedMessage(++lastId, sender, List.copyOf(recipients),
+                                                      System.currentTimeMillis(), data);
+        messages.addLast(message);
+        bytes += message.footprint();
+        // The newest message always stays, even if it alone is over the byte bound
+        while (messages.size() > 1 && (messages.size() > maxMessages || bytes > maxBytes)) {
+            bytes -= messages.removeFirst().footprint();
+            evicted++;
+        }
+        notifyAll();
+        return message;
+    }
+
+    synchronized List<ReceivedMessage> select(Predicate<ReceivedMessage> filter) {
+        List<ReceivedMessage> selected = new ArrayList<>();
+        for (ReceivedMessage message : messages) {
+            if (filter.test(message)) {
+                selected.add(message);
+            }
+        }
+        return selected;
+    }
+
+    // Waits until at least count messages have been accepted in total, including evicted ones
+    synchronized boolean awaitTotal(long count, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (lastId < count) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(Math.max(1, remaining / 1_000_000));
+        }
+        return true;
+    }
+
+    synchronized void clear() {
+        evicted += messages.size();
+        messages.clear();
+        bytes = 0;
+    }
+
+    synchronized int size() {
+        return messages.size();
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    synchronized long total() {
+        return lastId;
+    }
+
+    synchronized long evicted() {
+        return evicted;
+    }
+}
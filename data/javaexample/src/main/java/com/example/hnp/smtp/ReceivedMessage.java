@@ -0,0 +1,105 @@
+// One message accepted by SmtpSink: envelope, arrival time and the raw DATA bytes (dot-unstuffed)
+// body() decodes the transfer encoding of a single-part message, which is what ResetMailer sends; resetLinks()
+// pulls the http(s) links out of it whose path mentions "reset", in order, with HTML entities undone.
+
+package com.example.hnp.smtp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public record ReceivedMessage(long id, String sender, List<String> recipients, long receivedAt, byte[] data) {
+
+    private static final Pattern LINK = Pattern.compile("https?://[^\\s'\"<>]+");
+
+    // Approximate heap footprint, used by MessageRing's byte bound
+    long footprint() {
+        long size = 96 + data.length + sender.length() * 2L;
+        for (String recipient : recipients) {
+            size += 48 + recipient.length() * 2L;
+        }
+        return size;
+    }
+
+    public String raw() {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    public String header(String name) {
+        String prefix = name.toLowerCase(Locale.ROOT) + ":";
+        String headers = raw();
+        int end = headers.indexOf("\r\n\r\n");
+        String[] lines = (end < 0 ? headers : headers.substring(0, end)).split("\r\n");
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                StringBuilder value = new StringBuilder(lines[i].substring(prefix.length()).trim());
+                // Folded continuation lines start with whitespace
+                while (i + 1 < lines.length && !lines[i + 1].isEmpty() && Character.isWhitespace(lines[i + 1].charAt(0))) {
+                    value.append(' ').append(lines[++i].trim());
+                }
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    public String body() {
+        String text = raw();
+        int start = text.indexOf("\r\n\r\n");
+        String body = start < 0 ? "" : text.substring(start + 4);
+        String encoding = header("Content-Transfer-Encoding");
+        if (encoding == null) {
+            return body;
+        }
+        switch (encoding.toLowerCase(Locale.ROOT)) {
+            case "quoted-printable":
+                return decodeQuotedPrintable(body);
+            case "base64":
+                return new String(Base64.getMimeDecoder().decode(body), StandardCharsets.UTF_8);
+            default:
+                return body;
+        }
+    }
+
+    public List<String> resetLinks() {
+        List<String> links = new ArrayList<>();
+        Matcher matcher = LINK.matcher(body());
+        while (matcher.find()) {
+            String link = matcher.group().replace("&amp;", "&");
+            if (link.toLowerCase(Locale.ROOT).contains("reset") && !links.contains(link)) {
+                links.add(link);
+            }
+        }
+        return links;
+    }
+
+    static String decodeQuotedPrintable(String text) {
+        byte[] out = new byte[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '=') {
+                out[length++] = (byte) c;
+            } else if (i + 2 < text.length() && text.charAt(i + 1) == '\r' && text.charAt(i + 2) == '\n') {
+                i += 2;  // Soft line break
+            } else if (i + 2 < text.length() && Character.digit(text.charAt(i + 1), 16) >= 0
+                       && Character.digit(text.charAt(i + 2), 16) >= 0) {
+                out[length++] = (byte) Integer.parseInt(text.substring(i + 1, i + 3), 16);
+                i += 2;
+            } else {
+                out[length++] = (byte) c;
+            }
+        }
+        return new String(out, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "ReceivedMessage[id=" + id + ", sender=" + sender + ", recipients=" + recipients + ", receivedAt="
+            + receivedAt + ", bytes=" + data.length + "]";
+    }
+}
@@ -0,0 +1,136 @@
+// HTTP view of an SmtpSink's MessageRing, for checks driven from outside the JVM (e.g. the Python runner)
+//   GET    /messages[?to=addr][&since=id]  JSON array: id, from, to, receivedAt, bytes, resetLinks
+//   DELETE /messages                      empties the ring
+
+package com.example.hnp.smtp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class SinkQueryServer {
+
+    private final SmtpSink sink;
+    private final HttpServer server;
+
+    private SinkQueryServer(SmtpSink sink, HttpServer server) {
+        this.sink = sink;
+        this.server = server;
+    }
+
+    static SinkQueryServer start(SmtpSink sink, String bindAddress, int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        SinkQueryServer query = new SinkQueryServer(sink, server);
+        server.createContext("/messages", query::handle);
+        server.start();
+        return query;
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (method.equals("DELETE")) {
+                sink.clear();
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!method.equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Map<String, String> query = parameters(exchange.getRequestURI().getRawQuery());
+            long since;
+            try {
+                since = Long.parseLong(query.getOrDefault("since", "0"));
+            } catch (NumberFormatException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            List<ReceivedMessage> messages = sink.messagesSince(since);
+            String to = query.get("to");
+            if (to != null) {
+                messages.removeIf(message -> message.recipients().stream().noneMatch(to::equalsIgnoreCase));
+            }
+            byte[] body = toJson(messages).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                               URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String toJson(List<ReceivedMessage> messages) {
+        StringBuilder json = new StringBuilder("[");
+        for (ReceivedMessage message : messages) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(message.id())
+                .append(",\"from\":").append(quote(message.sender()))
+                .append(",\"to\":").append(quoteAll(message.recipients()))
+                .append(",\"receivedAt\":").append(message.receivedAt())
+                .append(",\"bytes\":").append(message.data().length)
+                .append(",\"resetLinks\":").append(quoteAll(message.resetLinks()))
+                .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String quoteAll(List<String> values) {
+        StringBuilder json = new StringBuilder("[");
+        for (String value : values) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(quote(value));
+        }
+        return json.append(']').toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,63 @@
+// Server-side TLS for SmtpSink's STARTTLS
+// Uses the configured PKCS12 keystore, or generates a throwaway self-signed certificate for localhost with the
+// JDK's keytool. Clients have to trust it explicitly, e.g. ResetMailer with hnp.mail.ssl.trust=127.0.0.1.
+
+package com.example.hnp.smtp;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+final class SinkTls {
+
+    private SinkTls() {}
+
+    static SSLContext context(SmtpSinkSettings settings) throws IOException {
+        char[] password = settings.getKeystorePassword().toCharArray();
+        Path keystore = settings.getKeystore() != null
+            ? Path.of(settings.getKeystore())
+            : generateSelfSigned(settings.getKeystorePassword());
+        try (InputStream in = Files.newInputStream(keystore)) {
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            store.load(in, password);
+            KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keys.init(store, password);
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keys.getKeyManagers(), null, null);
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not load SMTP sink keystore " + keystore, e);
+        }
+    }
+
+    private static Path generateSelfSigned(String password) throws IOException {
+        Path directory = Files.createTempDirectory("hnp-smtp-tls");
+        Path keystore = directory.resolve("sink.p12");
+        List<String> command = List.of(
+            Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+            "-genkeypair", "-alias", "hnp-smtp-sink", "-keyalg", "EC", "-groupname", "secp256r1",
+            "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-validity", "30",
+            "-storetype", "PKCS12", "-keystore", keystore.toString(), "-storepass", password, "-keypass", password);
+        Process keytool = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try {
+            String output = new String(keytool.getInputStream().readAllBytes());
+            if (!keytool.waitFor(30, TimeUnit.SECONDS) || keytool.exitValue() != 0) {
+                throw new IOException("keytool could not create a self-signed certificate: " + output);
+            }
+        } catch (InterruptedException e) {
+            keytool.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted creating a self-signed certificate", e);
+        }
+        keystore.toFile().deleteOnExit();
+        directory.toFile().deleteOnExit();
+        return keystore;
+    }
+}
@@ -0,0 +1,523 @@
+// One client connection of SmtpSink, driven by the IoLoop that owns its SelectionKey
+// Every complete command line in the read buffer is answered before anything is flushed, so a pipelining client
+// (jakarta.mail batches MAIL/RCPT/DATA) gets its replies in one write. After STARTTLS the same state machine runs
+// over an SSLEngine: reads land in netIn and are unwrapped into appIn, replies are wrapped from appOut into netOut.
+// Injected latency holds the DATA reply and stops reading the connection until the IoLoop timer releases it.
+
+package com.example.hnp.smtp;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+
+final class SmtpConnection {
+
+    private static final String HOSTNAME = "localhost";
+    // RFC 5321 allows 512 octets per command line; anything far beyond that is not SMTP
+    private static final int MAX_COMMAND_LINE = 4096;
+    // A DATA line this long cannot be the "." terminator, so it is appended without waiting for its end
+    private static final int PARTIAL_DATA_LINE = 1024;
+    // Stop reading while this many reply bytes wait for a client that does not read them
+    private static final int MAX_PENDING_OUTPUT = 64 * 1024;
+
+    private enum State { COMMAND, DATA, AUTH_PLAIN, AUTH_LOGIN_USER, AUTH_LOGIN_PASSWORD }
+
+    private final SmtpSink sink;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final Queue<SmtpConnection> timers;
+
+    private ByteBuffer appIn = ByteBuffer.allocate(32 * 1024);
+    private ByteBuffer appOut = ByteBuffer.allocate(4 * 1024);
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private SSLEngine engine;
+
+    private State state = State.COMMAND;
+    private String sender;
+    private final List<String> recipients = new ArrayList<>();
+    private byte[] data = new byte[8 * 1024];
+    private int dataLength;
+    private boolean dataAtLineStart = true;
+    private boolean dataTooLarge;
+
+    private boolean tlsPending;
+    private boolean closing;
+    private boolean closed;
+    private boolean held;
+    long heldUntil;
+    private String heldReply;
+
+    SmtpConnection(SmtpSink sink, SocketChannel channel, SelectionKey key, Queue<SmtpConnection> timers) {
+        this.sink = sink;
+        this.channel = channel;
+        this.key = key;
+        this.timers = timers;
+    }
+
+    void start() {
+        reply("220 " + HOSTNAME + " ESMTP hnp-smtp-sink");
+        service();
+    }
+
+    void onReadable() {
+        try {
+            int read = channel.read(engine != null ? netIn : appIn);
+            if (read < 0) {
+                close();
+                return;
+            }
+            sink.bytesReceived(read);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        service();
+    }
+
+    void onWritable() {
+        service();
+    }
+
+    void onTimer(long now) {
+        if (held && !closed && now - heldUntil >= 0) {
+            held = false;
+            reply(heldReply);
+            heldReply = null;
+            service();
+        }
+    }
+
+    private void service() {
+        try {
+            boolean progress;
+            do {
+                progress = engine != null && unwrap();
+                progress |= processInput();
+                progress |= flush();
+            } while (progress && !closed);
+            if (!closed) {
+                int ops = pendingOutput() > 0 ? SelectionKey.OP_WRITE : 0;
+                if (!held && !tlsPending && !closing && appOut.position() < MAX_PENDING_OUTPUT) {
+                    ops |= SelectionKey.OP_READ;
+                }
+                key.interestOps(ops);
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+        }
+    }
+
+    private boolean processInput() {
+        if (tlsPending || closing) {
+            return false;
+        }
+        boolean consumed = false;
+        byte[] buffer = appIn.array();
+        appIn.flip();
+        while (!held && !tlsPending && !closing && appOut.position() < MAX_PENDING_OUTPUT) {
+            int start = appIn.position();
+            int limit = appIn.limit();
+            int newline = -1;
+            for (int i = start; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    newline = i;
+                    break;
+                }
+            }
+            if (newline < 0) {
+                if (state == State.DATA && limit - start > PARTIAL_DATA_LINE) {
+                    appendData(buffer, dataAtLineStart && buffer[start] == '.' ? start + 1 : start, limit);
+                    dataAtLineStart = false;
+                    appIn.position(limit);
+                    consumed = true;
+                } else if (state != State.DATA && limit - start > MAX_COMMAND_LINE) {
+                    reply("500 5.5.2 Line too long");
+                    appIn.position(limit);
+                    consumed = true;
+                }
+                break;
+            }
+            if (state == State.DATA) {
+                dataLine(buffer, start, newline + 1);
+            } else {
+                int end = newline > start && buffer[newline - 1] == '\r' ? newline - 1 : newline;
+                command(new String(buffer, start, end - start, StandardCharsets.US_ASCII));
+            }
+            appIn.position(newline + 1);
+            consumed = true;
+        }
+        appIn.compact();
+        return consumed;
+    }
+
+    private void command(String line) {
+        switch (state) {
+            case AUTH_PLAIN:
+            case AUTH_LOGIN_PASSWORD:
+                authenticated(line);
+                return;
+            case AUTH_LOGIN_USER:
+                if (line.equals("*")) {
+                    authenticated(line);
+                } else {
+                    state = State.AUTH_LOGIN_PASSWORD;
+                    reply("334 UGFzc3dvcmQ6");
+                }
+                return;
+            default:
+                break;
+        }
+        int space = line.indexOf(' ');
+        String verb = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+        String argument = space < 0 ? "" : line.substring(space + 1).trim();
+        switch (verb) {
+            case "EHLO":
+                resetTransaction();
+                StringBuilder ehlo = new StringBuilder("250-").append(HOSTNAME).append(" Hello ").append(argument)
+                    .append("\r\n250-PIPELINING\r\n250-8BITMIME\r\n250-SIZE ").append(sink.getSettings().getMaxMessageBytes());
+                if (sink.isTlsAvailable() && engine == null) {
+                    ehlo.append("\r\n250-STARTTLS");
+                }
+                // Like a real submission server, only offer AUTH once the session is protected (or cannot be)
+                if (!sink.isTlsAvailable() || engine != null) {
+                    ehlo.append("\r\n250-AUTH PLAIN LOGIN");
+                }
+                reply(ehlo.append("\r\n250 ENHANCEDSTATUSCODES").toString());
+                break;
+            case "HELO":
+                resetTransaction();
+                reply("250 " + HOSTNAME);
+                break;
+            case "MAIL":
+                if (!argument.toUpperCase(Locale.ROOT).startsWith("FROM:")) {
+                    reply("501 5.5.4 Syntax: MAIL FROM:<address>");
+                } else if (sender != null) {
+                    reply("503 5.5.1 Sender already specified");
+                } else if (declaredSize(argument) > sink.getSettings().getMaxMessageBytes()) {
+                    sink.messageRejected();
+                    reply("552 5.3.4 Message size exceeds fixed limit");
+                } else {
+                    sender = address(argument);
+                    reply("250 2.1.0 Ok");
+                }
+                break;
+            case "RCPT":
+                if (!argument.toUpperCase(Locale.ROOT).startsWith("TO:")) {
+                    reply("501 5.5.4 Syntax: RCPT TO:<address>");
+                } else if (sender == null) {
+                    reply("503 5.5.1 Need MAIL command");
+                } else {
+                    recipients.add(address(argument));
+                    reply("250 2.1.5 Ok");
+                }
+                break;
+            case "DATA":
+                if (recipients.isEmpty()) {
+                    reply("503 5.5.1 Need RCPT command");
+                } else {
+                    state = State.DATA;
+                    dataLength = 0;
+                    dataAtLineStart = true;
+                    dataTooLarge = false;
+                    reply("354 End data with <CR><LF>.<CR><LF>");
+                }
+                break;
+            case "RSET":
+                resetTransaction();
+                reply("250 2.0.0 Ok");
+                break;
+            case "NOOP":
+                reply("250 2.0.0 Ok");
+                break;
+            case "VRFY":
+                reply("252 2.5.0 Cannot VRFY user");
+                break;
+            case "QUIT":
+                reply("221 2.0.0 Bye");
+                closing = true;
+                break;
+            case "STARTTLS":
+                if (!sink.isTlsAvailable()) {
+                    reply("454 4.7.0 TLS not available");
+                } else if (engine != null) {
+                    reply("503 5.5.1 TLS already active");
+                } else {
+                    reply("220 2.0.0 Ready to start TLS");
+                    tlsPending = true;
+                }
+                break;
+            case "AUTH":
+                // Any credentials are accepted; the sink only has to get ResetMailer past its login
+                String[] parts = argument.split(" ");
+                String mechanism = parts[0].toUpperCase(Locale.ROOT);
+                if (mechanism.equals("PLAIN")) {
+                    if (parts.length > 1) {
+                        reply("235 2.7.0 Authentication successful");
+                    } else {
+                        state = State.AUTH_PLAIN;
+                        reply("334 ");
+                    }
+                } else if (mechanism.equals("LOGIN")) {
+                    state = parts.length > 1 ? State.AUTH_LOGIN_PASSWORD : State.AUTH_LOGIN_USER;
+                    reply(parts.length > 1 ? "334 UGFzc3dvcmQ6" : "334 VXNlcm5hbWU6");
+                } else {
+                    reply("504 5.5.4 Unrecognized authentication type");
+                }
+                break;
+            default:
+                reply("502 5.5.2 Command not recognized");
+                break;
+        }
+    }
+
+    private void authenticated(String line) {
+        state = State.COMMAND;
+        reply(line.equals("*") ? "501 5.7.0 Authentication cancelled" : "235 2.7.0 Authentication successful");
+    }
+
+    private void dataLine(byte[] buffer, int start, int end) {
+        if (dataAtLineStart && buffer[start] == '.') {
+            int length = end - start;
+            if (length == 2 || (length == 3 && buffer[start + 1] == '\r')) {
+                endOfData();
+                return;
+            }
+            start++;
+        }
+        appendData(buffer, start, end);
+        dataAtLineStart = true;
+    }
+
+    private void appendData(byte[] buffer, int from, int to) {
+        int length = to - from;
+        if (dataTooLarge || length <= 0) {
+            return;
+        }
+        if (dataLength + length > sink.getSettings().getMaxMessageBytes()) {
+            dataTooLarge = true;
+            return;
+        }
+        if (dataLength + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, dataLength + length));
+        }
+        System.arraycopy(buffer, from, data, dataLength, length);
+        dataLength += length;
+    }
+
+    private void endOfData() {
+        state = State.COMMAND;
+        String reply;
+        if (dataTooLarge) {
+            sink.messageRejected();
+            reply = "552 5.3.4 Message size exceeds fixed limit";
+        } else if (sink.injectFailure()) {
+            reply = sink.getSettings().getFailureReply();
+        } else {
+            ReceivedMessage message = sink.store(sender, recipients, Arrays.copyOf(data, dataLength));
+            reply = "250 2.0.0 Ok: queued as " + message.id();
+        }
+        resetTransaction();
+        // Do not keep a large message's buffer around for the rest of the connection
+        if (data.length > 64 * 1024) {
+            data = new byte[8 * 1024];
+        }
+        long delay = sink.latencyNanos();
+        if (delay > 0) {
+            held = true;
+            heldUntil = System.nanoTime() + delay;
+            heldReply = reply;
+            timers.add(this);
+        } else {
+            reply(reply);
+        }
+    }
+
+    private void resetTransaction() {
+        sender = null;
+        recipients.clear();
+        dataLength = 0;
+    }
+
+    private boolean flush() throws IOException {
+        boolean progress = false;
+        if (engine == null) {
+            write(appOut);
+            if (tlsPending && appOut.position() == 0) {
+                startTls();
+                progress = true;
+            }
+        } else {
+            progress = wrap();
+            write(netOut);
+        }
+        if (closing && pendingOutput() == 0) {
+            close();
+        }
+        return progress;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        try {
+            if (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    private int pendingOutput() {
+        return appOut.position() + (netOut != null ? netOut.position() : 0);
+    }
+
+    private void startTls() {
+        SSLEngine tls = sink.getSslContext().createSSLEngine();
+        tls.setUseClientMode(false);
+        int packetSize = tls.getSession().getPacketBufferSize();
+        netIn = ByteBuffer.allocate(packetSize);
+        netOut = ByteBuffer.allocate(packetSize);
+        // Anything the client pipelined after STARTTLS was sent in the clear and is dropped (RFC 3207)
+        appIn = ByteBuffer.allocate(tls.getSession().getApplicationBufferSize() + MAX_COMMAND_LINE);
+        engine = tls;
+        tlsPending = false;
+        state = State.COMMAND;
+        resetTransaction();
+        sink.tlsHandshakeStarted();
+    }
+
+    private boolean unwrap() throws IOException {
+        boolean progress = false;
+        netIn.flip();
+        try {
+            while (netIn.hasRemaining()) {
+                SSLEngineResult result = engine.unwrap(netIn, appIn);
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    closing = true;
+                    break;
+                }
+                // UNDERFLOW waits for the rest of the record; OVERFLOW waits for processInput to drain appIn
+                if (result.getStatus() != SSLEngineResult.Status.OK) {
+                    break;
+                }
+                boolean worked = runTasks(result) || result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+                progress |= worked;
+                if (!worked || engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+                    break;
+                }
+            }
+        } finally {
+            netIn.compact();
+        }
+        return progress;
+    }
+
+    private boolean wrap() throws IOException {
+        boolean progress = false;
+        appOut.flip();
+        try {
+            while (appOut.hasRemaining() || engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+                SSLEngineResult result = engine.wrap(appOut, netOut);
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    if (netOut.position() == 0) {
+                        netOut = grow(netOut, engine.getSession().getPacketBufferSize());
+                        continue;
+                    }
+                    write(netOut);
+                    if (netOut.position() > 0) {
+                        break;
+                    }
+                    continue;
+                }
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    closing = true;
+                    break;
+                }
+                boolean worked = runTasks(result) || result.bytesConsumed() > 0 || result.bytesProduced() > 0;
+                progress |= worked;
+                if (!worked) {
+                    break;
+                }
+            }
+        } finally {
+            appOut.compact();
+        }
+        return progress;
+    }
+
+    private boolean runTasks(SSLEngineResult result) {
+        if (result.getHandshakeStatus() != HandshakeStatus.NEED_TASK) {
+            return false;
+        }
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+        return true;
+    }
+
+    private void reply(String line) {
+        byte[] bytes = (line + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        if (appOut.remaining() < bytes.length) {
+            appOut = grow(appOut, appOut.position() + bytes.length);
+        }
+        appOut.put(bytes);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int minCapacity) {
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, minCapacity));
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+
+    // MAIL FROM:<a@b> SIZE=1234
+    private static long declaredSize(String argument) {
+        for (String parameter : argument.split(" ")) {
+            if (parameter.regionMatches(true, 0, "SIZE=", 0, 5)) {
+                try {
+                    return Long.parseLong(parameter.substring(5));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static String address(String argument) {
+        int open = argument.indexOf('<');
+        int close = argument.indexOf('>', open + 1);
+        if (open >= 0 && close > open) {
+            return argument.substring(open + 1, close);
+        }
+        String rest = argument.substring(argument.indexOf(':') + 1).trim();
+        int space = rest.indexOf(' ');
+        return space < 0 ? rest : rest.substring(0, space);
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        sink.connectionClosed();
+    }
+}
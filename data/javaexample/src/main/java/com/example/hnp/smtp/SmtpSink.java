@@ -0,0 +1,321 @@
+// Embeddable SMTP stand-in for load runs and detection checks
+// Accepts every message on a few NIO selector threads (hnp.smtp.io-threads), with ESMTP pipelining, optional
+// STARTTLS on a self-signed certificate, and configurable reply latency and failure injection on DATA. Accepted
+// messages go to a memory-bounded MessageRing; messages()/resetLinks() answer what a fixture actually mailed, and
+// the same view is served as JSON on hnp.smtp.http-port when set. Point the fixtures at it with hnp.mail.host/port.
+
+package com.example.hnp.smtp;
+
+import com.example.hnp.metrics.Jmx;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class SmtpSink implements SmtpSinkMXBean, AutoCloseable {
+
+    private final SmtpSinkSettings settings;
+    private final SSLContext sslContext;
+    private final ServerSocketChannel server;
+    private final MessageRing ring;
+    private final IoLoop[] loops;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private SinkQueryServer queryServer;
+    private int nextLoop;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder tlsHandshakes = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+
+    private SmtpSink(SmtpSinkSettings settings) throws IOException {
+        this.settings = settings;
+        this.sslContext = settings.isStartTls() ? SinkTls.context(settings) : null;
+        this.ring = new MessageRing(settings.getRingBytes(), settings.getRingMessages());
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(settings.getBindAddress(), settings.getPort()), 1024);
+        server.configureBlocking(false);
+        this.loops = new IoLoop[settings.getIoThreads()];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop(i + 1);
+        }
+        server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static SmtpSink start(SmtpSinkSettings settings) throws IOException {
+        SmtpSink sink = new SmtpSink(settings);
+        for (IoLoop loop : sink.loops) {
+            loop.thread.start();
+        }
+        if (settings.getHttpPort() >= 0) {
+            sink.queryServer = SinkQueryServer.start(sink, settings.getBindAddress(), settings.getHttpPort());
+        }
+        Jmx.register("SmtpSink", String.valueOf(sink.getPort()), sink);
+        System.out.println("[SMTP] Sink listening on " + settings.getBindAddress() + ":" + sink.getPort()
+            + (settings.isStartTls() ? " with STARTTLS" : "")
+            + (sink.queryServer != null ? ", query API on port " + sink.queryServer.getPort() : ""));
+        return sink;
+    }
+
+    public static void main(String[] args) throws Exception {
+        SmtpSink sink = start(SmtpSinkSettings.fromEnvironment());
+        Runtime.getRuntime().addShutdownHook(new Thread(sink::close, "hnp-smtp-shutdown"));
+        sink.closed.await();
+    }
+
+    public List<ReceivedMessage> messages() {
+        return ring.select(message -> true);
+    }
+
+    // Messages with an id above the given one, e.g. the last id seen by a previous poll
+    public List<ReceivedMessage> messagesSince(long id) {
+        return ring.select(message -> message.id() > id);
+    }
+
+    public List<ReceivedMessage> messagesTo(String recipient) {
+        return ring.select(message -> message.recipients().stream().anyMatch(recipient::equalsIgnoreCase));
+    }
+
+    // Reset links mailed to one recipient, oldest message first
+    public List<String> resetLinks(String recipient) {
+        List<String> links = new ArrayList<>();
+        for (ReceivedMessage message : messagesTo(recipient)) {
+            links.addAll(message.resetLinks());
+        }
+        return links;
+    }
+
+    // Waits until this many messages have been accepted since start (evicted or cleared ones included)
+    public boolean awaitMessages(long count, Duration timeout) throws InterruptedException {
+        return ring.awaitTotal(count, timeout);
+    }
+
+    public SmtpSinkSettings getSettings() {
+        return settings;
+    }
+
+    boolean isTlsAvailable() {
+        return sslContext != null;
+    }
+
+    SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    ReceivedMessage store(String sender, List<String> recipients, byte[] data) {
+        return ring.add(sender, recipients, data);
+    }
+
+    boolean injectFailure() {
+        double rate = settings.getFailureRate();
+        if (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            failed.increment();
+            return true;
+        }
+        return false;
+    }
+
+    long latencyNanos() {
+        long latency = settings.getLatency().toNanos();
+        long jitter = settings.getLatencyJitter().toNanos();
+        return jitter > 0 ? latency + ThreadLocalRandom.current().nextLong(jitter + 1) : latency;
+    }
+
+    void bytesReceived(int count) {
+        bytesReceived.add(count);
+    }
+
+    void messageRejected() {
+        rejected.increment();
+    }
+
+    void tlsHandshakeStarted() {
+        tlsHandshakes.increment();
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    @Override
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    @Override public int getOpenConnections() { return openConnections.get(); }
+    @Override public long getAcceptedConnections() { return acceptedConnections.sum(); }
+    @Override public long getTlsHandshakes() { return tlsHandshakes.sum(); }
+    @Override public long getMessagesReceived() { return ring.total(); }
+    @Override public long getMessagesFailed() { return failed.sum(); }
+    @Override public long getMessagesRejected() { return rejected.sum(); }
+    @Override public long getBytesReceived() { return bytesReceived.sum(); }
+    @Override public int getStoredMessages() { return ring.size(); }
+    @Override public long getStoredBytes() { return ring.bytes(); }
+    @Override public long getEvictedMessages() { return ring.evicted(); }
+
+    @Override
+    public void clear() {
+        ring.clear();
+    }
+
+    @Override
+    public void close() {
+        if (closed.getCount() == 0) {
+            return;
+        }
+        int port = getPort();
+        if (queryServer != null) {
+            queryServer.stop();
+        }
+        for (IoLoop loop : loops) {
+            loop.stop();
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+        Jmx.unregister("SmtpSink", String.valueOf(port));
+        closed.countDown();
+    }
+
+    // One selector thread; loop 1 also owns the listening socket and deals new connections out round-robin
+    private final class IoLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+        private final Queue<SmtpConnection> timers =
+            new PriorityQueue<>((a, b) -> Long.signum(a.heldUntil - b.heldUntil));
+        private volatile boolean running = true;
+
+        IoLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "hnp-smtp-io-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    select();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        SmtpConnection connection = (SmtpConnection) key.attachment();
+                        if (key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                    registerPending();
+                    fireTimers();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof SmtpConnection) {
+                        ((SmtpConnection) key.attachment()).close();
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // Closing anyway
+                }
+            }
+        }
+
+        private void select() throws IOException {
+            SmtpConnection next = timers.peek();
+            if (next == null) {
+                selector.select();
+                return;
+            }
+            long wait = next.heldUntil - System.nanoTime();
+            if (wait <= 0) {
+                selector.selectNow();
+            } else {
+                selector.select(Math.max(1, (wait + 999_999) / 1_000_000));
+            }
+        }
+
+        private void fireTimers() {
+            long now = System.nanoTime();
+            SmtpConnection next;
+            while ((next = timers.peek()) != null && now - next.heldUntil >= 0) {
+                timers.poll();
+                next.onTimer(now);
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                acceptedConnections.increment();
+                openConnections.incrementAndGet();
+                IoLoop owner = loops[nextLoop++ % loops.length];
+                owner.registrations.add(channel);
+                if (owner != this) {
+                    owner.selector.wakeup();
+                }
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = registrations.poll()) != null) {
+                SelectionKey key;
+                try {
+                    key = channel.register(selector, 0);
+                } catch (IOException e) {
+                    // Client hung up before its first turn
+                    openConnections.decrementAndGet();
+                    continue;
+                }
+                SmtpConnection connection = new SmtpConnection(SmtpSink.this, channel, key, timers);
+                key.attach(connection);
+                connection.start();
+            }
+        }
+
+        void stop() {
+            running = false;
+            selector.wakeup();
+            try {
+                thread.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
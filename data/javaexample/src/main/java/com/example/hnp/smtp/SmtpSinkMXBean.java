@@ -0,0 +1,18 @@
+// JMX view of SmtpSink (com.example.hnp:type=SmtpSink), for checking what a load run actually delivered
+
+package com.example.hnp.smtp;
+
+public interface SmtpSinkMXBean {
+    int getPort();
+    int getOpenConnections();
+    long getAcceptedConnections();
+    long getTlsHandshakes();
+    long getMessagesReceived();
+    long getMessagesFailed();
+    long getMessagesRejected();
+    long getBytesReceived();
+    int getStoredMessages();
+    long getStoredBytes();
+    long getEvictedMessages();
+    void clear();
+}
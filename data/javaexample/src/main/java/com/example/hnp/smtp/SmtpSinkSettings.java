@@ -0,0 +1,131 @@
+// Settings for SmtpSink, read from hnp.smtp.* system properties or HNP_SMTP_* environment variables (see Config)
+
+package com.example.hnp.smtp;
+
+import com.example.hnp.config.Config;
+
+import java.time.Duration;
+
+public final class SmtpSinkSettings {
+
+    private final String bindAddress;
+    private final int port;
+    private final int ioThreads;
+    private final boolean startTls;
+    private final String keystore;
+    private final String keystorePassword;
+    private final Duration latency;
+    private final Duration latencyJitter;
+    private final double failureRate;
+    private final String failureReply;
+    private final int maxMessageBytes;
+    private final long ringBytes;
+    private final int ringMessages;
+    private final int httpPort;
+
+    private SmtpSinkSettings(Builder builder) {
+        this.bindAddress = builder.bindAddress;
+        this.port = builder.port;
+        this.ioThreads = builder.ioThreads;
+        this.startTls = builder.startTls;
+        this.keystore = builder.keystore;
+        this.keystorePassword = builder.keystorePassword;
+        this.latency = builder.latency;
+        this.latencyJitter = builder.latencyJitter;
+        this.failureRate = builder.failureRate;
+        this.failureReply = builder.failureReply;
+        this.maxMessageBytes = builder.maxMessageBytes;
+        this.ringBytes = builder.ringBytes;
+        this.ringMessages = builder.ringMessages;
+        this.httpPort = builder.httpPort;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static SmtpSinkSettings fromEnvironment() {
+        return builder()
+            .bindAddress(Config.get("hnp.smtp.bind", "127.0.0.1"))
+            .port(Config.getInt("hnp.smtp.port", 2525))
+            .ioThreads(Config.getInt("hnp.smtp.io-threads", 1))
+            .startTls(Config.getBoolean("hnp.smtp.starttls", false))
+            .keystore(Config.get("hnp.smtp.keystore", null))
+            .keystorePassword(Config.get("hnp.smtp.keystore-password", "changeit"))
+            .latency(Config.getMillis("hnp.smtp.latency-ms", 0))
+            .latencyJitter(Config.getMillis("hnp.smtp.latency-jitter-ms", 0))
+            .failureRate(Config.getDouble("hnp.smtp.failure-rate", 0.0))
+            .failureReply(Config.get("hnp.smtp.failure-reply", "451 4.3.0 Injected failure"))
+            .maxMessageBytes(Config.getInt("hnp.smtp.max-message-bytes", 10 * 1024 * 1024))
+            .ringBytes(Long.parseLong(Config.get("hnp.smtp.ring.bytes", String.valueOf(64L * 1024 * 1024))))
+            .ringMessages(Config.getInt("hnp.smtp.ring.messages", 100_000))
+            .httpPort(Config.getInt("hnp.smtp.http-port", -1))
+            .build();
+    }
+
+    public String getBindAddress() { return bindAddress; }
+    public int getPort() { return port; }
+    public int getIoThreads() { return ioThreads; }
+    public boolean isStartTls() { return startTls; }
+    public String getKeystore() { return keystore; }
+    public String getKeystorePassword() { return keystorePassword; }
+    public Duration getLatency() { return latency; }
+    public Duration getLatencyJitter() { return latencyJitter; }
+    public double getFailureRate() { return failureRate; }
+    public String getFailureReply() { return failureReply; }
+    public int getMaxMessageBytes() { return maxMessageBytes; }
+    public long getRingBytes() { return ringBytes; }
+    public int getRingMessages() { return ringMessages; }
+    public int getHttpPort() { return httpPort; }
+
+    public static final class Builder {
+        private String bindAddress = "127.0.0.1";
+        private int port = 2525;
+        private int ioThreads = 1;
+        private boolean startTls;
+        private String keystore;
+        private String keystorePassword = "changeit";
+        private Duration latency = Duration.ZERO;
+        private Duration latencyJitter = Duration.ZERO;
+        private double failureRate;
+        private String failureReply = "451 4.3.0 Injected failure";
+        private int maxMessageBytes = 10 * 1024 * 1024;
+        private long ringBytes = 64L * 1024 * 1024;
+        private int ringMessages = 100_000;
+        private int httpPort = -1;
+
+        private Builder() {}
+
+        public Builder bindAddress(String bindAddress) { this.bindAddress = bindAddress; return this; }
+        // 0 picks a free port; SmtpSink.getPort() reports it
+        public Builder port(int port) { this.port = port; return this; }
+        public Builder ioThreads(int ioThreads) { this.ioThreads = ioThreads; return this; }
+        public Builder startTls(boolean startTls) { this.startTls = startTls; return this; }
+        // PKCS12 keystore with the server key; without one a self-signed localhost certificate is generated
+        public Builder keystore(String keystore) { this.keystore = keystore; return this; }
+        public Builder keystorePassword(String keystorePassword) { this.keystorePassword = keystorePassword; return this; }
+        public Builder latency(Duration latency) { this.latency = latency; return this; }
+        public Builder latencyJitter(Duration latencyJitter) { this.latencyJitter = latencyJitter; return this; }
+        public Builder failureRate(double failureRate) { this.failureRate = failureRate; return this; }
+        public Builder failureReply(String failureReply) { this.failureReply = failureReply; return this; }
+        public Builder maxMessageBytes(int maxMessageBytes) { this.maxMessageBytes = maxMessageBytes; return this; }
+        public Builder ringBytes(long ringBytes) { this.ringBytes = ringBytes; return this; }
+        public Builder ringMessages(int ringMessages) { this.ringMessages = ringMessages; return this; }
+        // Port for the HTTP query endpoint; negative disables it
+        public Builder httpPort(int httpPort) { this.httpPort = httpPort; return this; }
+
+        public SmtpSinkSettings build() {
+            if (ioThreads < 1 || maxMessageBytes < 1 || ringBytes < 1 || ringMessages < 1) {
+                throw new IllegalArgumentException(
+                    "hnp.smtp io-threads, max-message-bytes, ring.bytes and ring.messages must be positive");
+            }
+            if (failureRate < 0.0 || failureRate > 1.0) {
+                throw new IllegalArgumentException("hnp.smtp.failure-rate must be between 0 and 1, got " + failureRate);
+            }
+            if (!failureReply.matches("[45]\\d\\d .*")) {
+                throw new IllegalArgumentException("hnp.smtp.failure-reply must be a 4xx or 5xx reply, got " + failureReply);
+            }
+            return new SmtpSinkSettings(this);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+// Size- and TTL-bounded key/value store for the fixtures' token maps
+// Keys are spread over lock-striped segments, each an access-ordered LinkedHashMap, so contention stays
+// per-segment. The segment capacities add up to exactly maxEntries, which is therefore a hard bound, but
+// eviction is LRU within a segment only: a full segment evicts its own eldest entry even when another
+// segment holds older ones. Small stores (under 32 entries) use a single segment and so get exact LRU.
+// Expired entries are dropped on read and trimmed from the LRU end on write.
+
+package com.example.hnp.store;
+
+import com.example.hnp.config.Config;
+import com.example.hnp.metrics.Jmx;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class ExpiringStore<K, V> implements ExpiringStoreMXBean {
+
+    private static final int MAX_SEGMENTS = 16;
+    // Segments are only added while each can hold at least this many entries
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+    // Expired entries examined at the LRU end per write
+    private static final int TRIM_BUDGET = 4;
+
+    private final Segment<K, V>[] segments;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public ExpiringStore(int maxEntries, Duration ttl) {
+        if (maxEntries < 1 || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ExpiringStore needs a positive size and TTL");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        // Power of two for the hash mask; the remainder of maxEntries goes one entry each to the first segments
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxEntries / MIN_SEGMENT_CAPACITY)));
+        this.segments = newSegments(count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(maxEntries / count + (i < maxEntries % count ? 1 : 0));
+        }
+    }
+
+    // Segment<K, V>[] cannot be created directly; the array never escapes and only holds Segment<K, V>
+    @SuppressWarnings("unchecked")
+    private static <K, V> Segment<K, V>[] newSegments(int count) {
+        return (Segment<K, V>[]) new Segment<?, ?>[count];
+    }
+
+    // Sized from hnp.store.<name>.max-entries / .ttl-ms and registered as com.example.hnp:type=TokenStore,name=<name>
+    public static <K, V> ExpiringStore<K, V> create(String name, int defaultMaxEntries, Duration defaultTtl) {
+        String prefix = "hnp.store." + name + ".";
+        ExpiringStore<K, V> store = new ExpiringStore<>(
+            Config.getInt(prefix + "max-entries", defaultMaxEntries),
+            Config.getMillis(prefix + "ttl-ms", defaultTtl.toMillis()));
+        Jmx.register("TokenStore", name, store);
+        return store;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlNanos);
+    }
+
+    public void put(K key, V value, Duration ttl) {
+        put(key, value, ttl.toNanos());
+    }
+
+    private void put(K key, V value, long entryTtlNanos) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = System.nanoTime();
+        segment.lock.lock();
+        try {
+            segment.map.put(key, new Entry<>(value, now + entryTtlNanos));
+            trim(segment, now);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.map.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.expiresAt - System.nanoTime() <= 0) {
+                segment.map.remove(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            Entry<V> entry = segment.map.remove(key);
+            return entry == null ? null : entry.value;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    // Drop expired entries from the LRU end, then evict least recently used entries over capacity
+    private void trim(Segment<K, V> segment, long now) {
+        Iterator<Entry<V>> eldest = segment.map.values().iterator();
+        for (int i = 0; i < TRIM_BUDGET && eldest.hasNext(); i++) {
+            if (eldest.next().expiresAt - now > 0) {
+                break;
+            }
+            eldest.remove();
+            expirations.increment();
+        }
+        while (segment.map.size() > segment.capacity) {
+            Iterator<Entry<V>> lru = segment.map.values().iterator();
+            lru.next();
+            lru.remove();
+            evictions.increment();
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    @Override
+    public int getSize() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.map.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override public int getMaxEntries() { return maxEntries; }
+    @Override public long getTtlMillis() { return Duration.ofNanos(ttlNanos).toMillis(); }
+    @Override public long getHitCount() { return hits.sum(); }
+    @Override public long getMissCount() { return misses.sum(); }
+    @Override public long getEvictionCount() { return evictions.sum(); }
+    @Override public long getExpirationCount() { return expirations.sum(); }
+
+    private static final class Segment<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+        final int capacity;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+// JMX view of an ExpiringStore (com.example.hnp:type=TokenStore,name=<name>)
+
+package com.example.hnp.store;
+
+public interface ExpiringStoreMXBean {
+    int getSize();
+    int getMaxEntries();
+    long getTtlMillis();
+    long getHitCount();
+    long getMissCount();
+    long getEvictionCount();
+    long getExpirationCount();
+}
@@ -0,0 +1,7 @@
+// What a fixture remembers about an issued token: the host it was minted for and the user it belongs to
+// Stored as one value so a token lookup is a single map access instead of one per attribute
+
+package com.example.hnp.store;
+
+public record TokenBinding(String host, String email) {
+}
@@ -0,0 +1,12 @@
+// Templates shared by every fixture's reset mail
+
+package com.example.hnp.template;
+
+public final class ResetTemplates {
+
+    // Slot: url (used for both the href and the link text)
+    public static final Template RESET_HTML =
+        Template.compile("<p>Reset your password: <a href='${url}'>${url}</a></p>");
+
+    private ResetTemplates() {}
+}
@@ -0,0 +1,159 @@
+// Compiled text template for reset links, mail bodies and JSON responses
+// "${name}" marks a slot; the text is split once into literal segments and slot references, so rendering is
+// a straight sequence of appends. Values are passed in order of each name's first appearance and written
+// verbatim (no escaping), exactly as the String concatenation and String.format calls this replaces did.
+
+package com.example.hnp.template;
+
+import com.example.hnp.concurrent.ExecutionMode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class Template {
+
+    // Per-thread buffers above this capacity are dropped after use instead of being kept
+    private static final int MAX_RETAINED = 16 * 1024;
+
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+    private final String[] literals;
+    private final int[] slots;
+    private final List<String> names;
+    // High-water mark of rendered lengths, used to presize the next render's buffer
+    private volatile int expectedLength;
+
+    private Template(String[] literals, int[] slots, List<String> names) {
+        this.literals = literals;
+        this.slots = slots;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.expectedLength = length + 16 * slots.length;
+    }
+
+    public static Template compile(String text) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int from = 0;
+        int open;
+        while ((open = text.indexOf("${", from)) >= 0) {
+            int close = text.indexOf('}', open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unterminated slot at offset " + open + " in template: " + text);
+            }
+            String name = text.substring(open + 2, close).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty slot at offset " + open + " in template: " + text);
+            }
+            int index = names.indexOf(name);
+            if (index < 0) {
+                index = names.size();
+                names.add(name);
+            }
+            literals.add(text.substring(from, open));
+            slots.add(index);
+            from = close + 1;
+        }
+        literals.add(text.substring(from));
+        return new Template(literals.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray(),
+                            Collections.unmodifiableList(names));
+    }
+
+    public List<String> getSlotNames() {
+        return names;
+    }
+
+    // Render to a String through the calling thread's reusable buffer
+    public String render(Object... values) {
+        checkArity(values);
+        Buffer buffer = ExecutionMode.isVirtual() ? null : BUFFERS.get();
+        StringBuilder sb;
+        if (buffer == null || buffer.busy) {
+            // Virtual threads are not reused, and a value's toString() may itself render on this thread
+            sb = new StringBuilder(expectedLength);
+        } else {
+            sb = buffer.sb;
+            sb.setLength(0);
+            sb.ensureCapacity(expectedLength);
+            buffer.busy = true;
+        }
+        try {
+            append(sb, values);
+            int length = sb.length();
+            if (length > expectedLength) {
+                expectedLength = Math.min(length, MAX_RETAINED);
+            }
+            return sb.toString();
+        } finally {
+            if (buffer != null && sb == buffer.sb) {
+                buffer.busy = false;
+                if (sb.capacity() > MAX_RETAINED) {
+                    buffer.sb = new StringBuilder();
+                }
+            }
+        }
+    }
+
+    // Append to a caller-owned builder
+    public StringBuilder renderTo(StringBuilder out, Object... values) {
+        checkArity(values);
+        append(out, values);
+        return out;
+    }
+
+    // Write straight to a response writer or any other Appendable
+    public <A extends Appendable> A renderTo(A out, Object... values) throws IOException {
+        checkArity(values);
+        for (int i = 0; i < slots.length; i++) {
+            out.append(literals[i]);
+            Object value = values[slots[i]];
+            out.append(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+        }
+        out.append(literals[slots.length]);
+        return out;
+    }
+
+    // Write UTF-8 to a response body stream (e.g. a JAX-RS StreamingOutput); the stream is flushed, not closed
+    public void writeTo(OutputStream out, Object... values) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        renderTo(writer, values);
+        writer.flush();
+    }
+
+    private void append(StringBuilder sb, Object[] values) {
+        for (int i = 0; i < slots.length; i++) {
+            sb.append(literals[i]);
+            Object value = values[slots[i]];
+            if (value instanceof CharSequence) {
+                sb.append((CharSequence) value);
+            } else if (value instanceof Long || value instanceof Integer) {
+                sb.append(((Number) value).longValue());
+            } else {
+                sb.append(value);
+            }
+        }
+        sb.append(literals[slots.length]);
+    }
+
+    private void checkArity(Object[] values) {
+        if (values.length != names.size()) {
+            throw new IllegalArgumentException("Template expects " + names.size() + " values " + names
+                + " but got " + values.length);
+        }
+    }
+
+    private static final class Buffer {
+        StringBuilder sb = new StringBuilder(256);
+        boolean busy;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.hnp.mail;
+
+import com.example.hnp.smtp.SmtpSink;
+import com.example.hnp.smtp.SmtpSinkSettings;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import jakarta.mail.Address;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MailOutboxTest {
+
+    private SmtpSink sink;
+    private ResetMailer mailer;
+
+    @AfterEach
+    void tearDown() {
+        if (mailer != null) {
+            mailer.close();
+        }
+        if (sink != null) {
+            sink.close();
+        }
+    }
+
+    @Test
+    void transientRepliesAreRetriedUntilDelivered() throws Exception {
+        start(0.2, "451 4.3.0 Injected failure", 10);
+        int count = 500;
+        for (int i = 0; i < count; i++) {
+            mailer.send("user" + i + "@example.com", "Reset your password", "<p>message " + i + "</p>");
+        }
+
+        MailOutbox outbox = mailer.getOutbox();
+        assertTrue(sink.awaitMessages(count, Duration.ofSeconds(30)), "sink received " + sink.getMessagesReceived());
+        awaitUntil(() -> outbox.getSentCount() == count);
+        assertEquals(0, outbox.getFailedCount(), outbox.getLastFailure());
+        assertTrue(outbox.getRetriedCount() > 0);
+        assertTrue(sink.getMessagesFailed() > 0);
+    }
+
+    @Test
+    void transientRepliesGiveUpAfterMaxAttempts() throws Exception {
+        start(1.0, "451 4.3.0 Injected failure", 3);
+        int count = 10;
+        for (int i = 0; i < count; i++) {
+            mailer.send("user" + i + "@example.com", "Reset your password", "<p>message " + i + "</p>");
+        }
+
+        MailOutbox outbox = mailer.getOutbox();
+        awaitUntil(() -> outbox.getFailedCount() == count);
+        assertEquals(2L * count, outbox.getRetriedCount());
+        assertEquals(3L * count, sink.getMessagesFailed());
+        assertEquals(0, outbox.getSentCount());
+        assertTrue(outbox.getLastFailure().startsWith("Dropped after 3 attempt(s)"), outbox.getLastFailure());
+    }
+
+    @Test
+    void permanentRepliesAreDroppedWithoutRetry() throws Exception {
+        start(1.0, "554 5.6.0 Injected rejection", 5);
+        int count = 10;
+        for (int i = 0; i < count; i++) {
+            mailer.send("user" + i + "@example.com", "Reset your password", "<p>message " + i + "</p>");
+        }
+
+        MailOutbox outbox = mailer.getOutbox();
+        awaitUntil(() -> outbox.getFailedCount() == count);
+        assertEquals(0, outbox.getRetriedCount());
+        assertEquals(count, sink.getMessagesFailed());
+        assertTrue(outbox.getLastFailure().contains("554"), outbox.getLastFailure());
+    }
+
+    @Test
+    void classifiesSendFailuresByReplyCode() throws Exception {
+        InternetAddress to = new InternetAddress("user@example.com");
+        Address[] none = new Address[0];
+        Address[] recipient = {to};
+
+        assertTrue(MailOutbox.isTransient(
+            new SMTPSendFailedException("DATA", 451, "451 4.3.0 busy", null, null, recipient, null)));
+        assertFalse(MailOutbox.isTransient(
+            new SMTPSendFailedException("DATA", 554, "554 5.6.0 rejected", null, null, recipient, null)));
+
+        // RCPT failures arrive as a plain SendFailedException with one SMTPAddressFailedException per address
+        assertTrue(MailOutbox.isTransient(new SendFailedException("Invalid Addresses",
+            new SMTPAddressFailedException(to, "RCPT TO:<user@example.com>", 450, "450 4.2.1 mailbox busy"),
+            none, none, recipient)));
+        SMTPAddressFailedException first =
+            new SMTPAddressFailedException(to, "RCPT TO:<user@example.com>", 452, "452 4.5.3 too many recipients");
+        first.setNextException(
+            new SMTPAddressFailedException(to, "RCPT TO:<other@example.com>", 550, "550 5.1.1 no such user"));
+        assertFalse(MailOutbox.isTransient(new SendFailedException("Invalid Addresses", first, none, none, recipient)));
+
+        // Someone already has the message: resending would deliver it twice
+        assertFalse(MailOutbox.isTransient(
+            new SMTPSendFailedException("DATA", 451, "451 4.3.0 busy", null, recipient, null, null)));
+        // No SMTP reply at all, e.g. a message without recipients
+        assertFalse(MailOutbox.isTransient(new SendFailedException("No recipient addresses")));
+    }
+
+    private void start(double failureRate, String failureReply, int maxAttempts) throws Exception {
+        sink = SmtpSink.start(SmtpSinkSettings.builder()
+            .port(0)
+            .failureRate(failureRate)
+            .failureReply(failureReply)
+            .build());
+        MailSettings mailSettings = MailSettings.builder()
+            .host("127.0.0.1")
+            .port(sink.getPort())
+            .auth(false)
+            .startTls(false)
+            .build();
+        OutboxSettings outboxSettings = new OutboxSettings(true, 1024, 2, 32, OverflowPolicy.BLOCK,
+            Duration.ofSeconds(5), maxAttempts, Duration.ofMillis(2), Duration.ofMillis(20));
+        mailer = new ResetMailer(mailSettings, outboxSettings);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 30s");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.hnp.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringStoreTest {
+
+    private static final Duration LONG_TTL = Duration.ofMinutes(10);
+
+    @Test
+    void neverHoldsMoreThanMaxEntries() {
+        for (int maxEntries : new int[] {1, 2, 17, 31, 32, 100, 1000, 4099}) {
+            ExpiringStore<String, Integer> store = new ExpiringStore<>(maxEntries, LONG_TTL);
+            int inserted = maxEntries * 10;
+            for (int i = 0; i < inserted; i++) {
+                store.put("key-" + i, i);
+                assertTrue(store.getSize() <= maxEntries, "maxEntries=" + maxEntries + " size=" + store.getSize());
+            }
+            assertEquals(inserted - store.getSize(), store.getEvictionCount(), "maxEntries=" + maxEntries);
+        }
+    }
+
+    @Test
+    void smallStoreFillsToExactlyMaxEntries() {
+        ExpiringStore<Integer, Integer> store = new ExpiringStore<>(17, LONG_TTL);
+        for (int i = 0; i < 17; i++) {
+            store.put(i, i);
+        }
+        assertEquals(17, store.getSize());
+        assertEquals(0, store.getEvictionCount());
+        store.put(17, 17);
+        assertEquals(17, store.getSize());
+        assertEquals(1, store.getEvictionCount());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFirst() {
+        ExpiringStore<String, String> store = new ExpiringStore<>(3, LONG_TTL);
+        store.put("a", "1");
+        store.put("b", "2");
+        store.put("c", "3");
+        assertEquals("1", store.get("a"));
+
+        store.put("d", "4");
+        assertNull(store.get("b"));
+        assertEquals("1", store.get("a"));
+        assertEquals("3", store.get("c"));
+        assertEquals("4", store.get("d"));
+
+        // The reads above left a as the eldest access
+        store.put("e", "5");
+        assertNull(store.get("a"));
+        assertEquals("3", store.get("c"));
+        assertEquals(2, store.getEvictionCount());
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() throws InterruptedException {
+        ExpiringStore<String, String> store = new ExpiringStore<>(100, Duration.ofMillis(50));
+        store.put("short", "1");
+        store.put("long", "2", LONG_TTL);
+        assertEquals("1", store.get("short"));
+
+        Thread.sleep(120);
+        assertNull(store.get("short"));
+        assertEquals("2", store.get("long"));
+        assertEquals(1, store.getExpirationCount());
+        assertEquals(2, store.getHitCount());
+        assertEquals(1, store.getMissCount());
+    }
+
+    @Test
+    void writesTrimExpiredEntriesFromTheLruEnd() throws InterruptedException {
+        ExpiringStore<String, String> store = new ExpiringStore<>(10, Duration.ofMillis(20));
+        store.put("a", "1");
+        store.put("b", "2");
+        Thread.sleep(60);
+
+        store.put("c", "3", LONG_TTL);
+        assertEquals(1, store.getSize());
+        assertEquals(2, store.getExpirationCount());
+        assertEquals(0, store.getEvictionCount());
+    }
+
+    @Test
+    void removeReturnsTheStoredValue() {
+        ExpiringStore<String, String> store = new ExpiringStore<>(10, LONG_TTL);
+        store.put("a", "1");
+        assertEquals("1", store.remove("a"));
+        assertNull(store.remove("a"));
+        assertNull(store.get("a"));
+    }
+}
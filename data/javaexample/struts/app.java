@@ -10,7 +10,6 @@ import com.opensymphony.xwork2.ActionContext;
 import com.opensymphony.xwork2.interceptor.Interceptor;
 import com.opensymphony.xwork2.interceptor.AbstractInterceptor;
 import com.opensymphony.xwork2.ActionInvocation;
-import com.opensymphony.xwork2.util.ValueStack;
 import com.opensymphony.xwork2.util.logging.Logger;
 import com.opensymphony.xwork2.util.logging.LoggerFactory;
 
@@ -18,9 +17,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.util.Map;
-import java.util.Properties;
+import com.example.hnp.context.HostContext;
 import javax.mail.*;
 import javax.mail.internet.*;
+import com.example.hnp.mail.ResetMailer;
 
 public class StrutsFrameworkHnpApplication extends ActionSupport {
 
@@ -63,25 +63,17 @@ public class StrutsFrameworkHnpApplication extends ActionSupport {
             // SOURCE: extract host from request headers
             String host = request.getHeader("Host");
             String forwardedHost = request.getHeader("X-Forwarded-Host");
-            
-            if (forwardedHost != null && !forwardedHost.isEmpty()) {
-                host = forwardedHost;
-            }
+            HostContext hostContext = HostContext.capture(host, forwardedHost,
+                () -> request.getHeader("User-Agent"), () -> request.getSession().getId());
             
             // Store polluted host in Struts context
-            ValueStack stack = context.getValueStack();
-            stack.set("polluted_host", host);
-            stack.set("user_agent", request.getHeader("User-Agent"));
-            stack.set("request_time", System.currentTimeMillis());
-            stack.set("session_id", request.getSession().getId());
+            context.put(HostContext.ATTRIBUTE, hostContext);
             
             // Also store in session
             HttpSession session = request.getSession();
-            session.setAttribute("polluted_host", host);
-            session.setAttribute("user_agent", request.getHeader("User-Agent"));
-            session.setAttribute("request_time", System.currentTimeMillis());
+            session.setAttribute(HostContext.ATTRIBUTE, hostContext.detach());
             
-            LOG.info("HNP Interceptor: Polluted host set to " + host);
+            LOG.info("HNP Interceptor: Polluted host set to " + hostContext.host());
             
             return invocation.invoke();
         }
@@ -101,13 +93,7 @@ public class StrutsFrameworkHnpApplication extends ActionSupport {
         token = "struts-token-123";
 
         // Get polluted host from Struts context
-        ActionContext context = ActionContext.getContext();
-        ValueStack stack = context.getValueStack();
-        
-        pollutedHost = (String) stack.findValue("polluted_host");
-        userAgent = (String) stack.findValue("user_agent");
-        requestTime = (Long) stack.findValue("request_time");
-        sessionId = (String) stack.findValue("session_id");
+        loadHostContext();
 
         // ADDITION: build reset URL with Struts context
         String resetUrl = "http://" + pollutedHost + "/reset/" + token;
@@ -132,43 +118,39 @@ public class StrutsFrameworkHnpApplication extends ActionSupport {
     // Reset action
     public String reset() {
         // Get polluted host from Struts context
-        ActionContext context = ActionContext.getContext();
-        ValueStack stack = context.getValueStack();
-        
-        pollutedHost = (String) stack.findValue("polluted_host");
-        userAgent = (String) stack.findValue("user_agent");
-        requestTime = (Long) stack.findValue("request_time");
-        sessionId = (String) stack.findValue("session_id");
+        loadHostContext();
 
         return SUCCESS;
     }
 
     // Struts context endpoint
     public String context() {
-        ActionContext context = ActionContext.getContext();
-        ValueStack stack = context.getValueStack();
-        
         // Expose Struts context information
-        pollutedHost = (String) stack.findValue("polluted_host");
-        userAgent = (String) stack.findValue("user_agent");
-        requestTime = (Long) stack.findValue("request_time");
-        sessionId = (String) stack.findValue("session_id");
+        loadHostContext();
 
         return SUCCESS;
     }
 
+    // Typed view of what HnpInterceptor captured for the current request
+    static HostContext hostContext() {
+        return (HostContext) ActionContext.getContext().get(HostContext.ATTRIBUTE);
+    }
+
+    private void loadHostContext() {
+        HostContext hostContext = hostContext();
+        if (hostContext == null) {
+            // Interceptor did not run for this action: leave the fields null, as the raw stack values did
+            return;
+        }
+        pollutedHost = hostContext.host();
+        userAgent = hostContext.userAgent();
+        requestTime = hostContext.requestTime();
+        sessionId = hostContext.sessionId();
+    }
+
     private void sendResetEmail(String to, String htmlBody) throws Exception {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication("no-reply@example.com", "password");
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        Session session = ResetMailer.shared().getSession();
 
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress("no-reply@example.com"));
@@ -5,12 +5,12 @@
 
 import com.opensymphony.xwork2.ActionSupport;
 import com.opensymphony.xwork2.ActionContext;
-import com.opensymphony.xwork2.util.ValueStack;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
-import java.util.Properties;
+import com.example.hnp.context.HostContext;
 import javax.mail.*;
 import javax.mail.internet.*;
+import com.example.hnp.mail.ResetMailer;
 
 public class Struts2HnpAction extends ActionSupport {
     
@@ -37,26 +37,18 @@ public class Struts2HnpAction extends ActionSupport {
             
             // SOURCE: extract host from request headers
             String host = request.getHeader("Host");
-            if (request.getHeader("X-Forwarded-Host") != null) {
-                host = request.getHeader("X-Forwarded-Host");
-            }
+            String forwardedHost = request.getHeader("X-Forwarded-Host");
+            HostContext hostContext = HostContext.capture(host, forwardedHost, () -> request.getHeader("User-Agent"));
             
             // Get Struts2 context
             ActionContext context = invocation.getInvocationContext();
-            ValueStack stack = context.getValueStack();
             HttpSession session = request.getSession();
             
-            // Store polluted host in Struts2 value stack
-            stack.set("polluted_host", host);
-            stack.set("user_agent", request.getHeader("User-Agent"));
-            stack.set("request_time", System.currentTimeMillis());
-            stack.set("struts2_framework", true);
+            // Store polluted host in Struts2 action context
+            context.put(HostContext.ATTRIBUTE, hostContext);
             
             // Also store in session
-            session.setAttribute("polluted_host", host);
-            session.setAttribute("user_agent", request.getHeader("User-Agent"));
-            session.setAttribute("request_time", System.currentTimeMillis());
-            session.setAttribute("struts2_framework", true);
+            session.setAttribute(HostContext.ATTRIBUTE, hostContext.detach());
             
             return invocation.invoke();
         }
@@ -75,13 +67,7 @@ public class Struts2HnpAction extends ActionSupport {
         token = "struts2-token-123";
         
         // Get polluted host from Struts2 context
-        ActionContext context = ActionContext.getContext();
-        ValueStack stack = context.getValueStack();
-        HttpSession session = (HttpSession) context.get(com.opensymphony.struts2.StrutsStatics.SESSION);
-        
-        pollutedHost = (String) stack.findValue("polluted_host");
-        userAgent = (String) stack.findValue("user_agent");
-        requestTime = (Long) stack.findValue("request_time");
+        load(hostContext());
         
         // ADDITION: build reset URL with Struts2 framework context
         StringBuilder resetURL = new StringBuilder();
@@ -109,12 +95,7 @@ public class Struts2HnpAction extends ActionSupport {
     // Password reset
     public String reset() {
         // Get polluted host from Struts2 context
-        ActionContext context = ActionContext.getContext();
-        ValueStack stack = context.getValueStack();
-        
-        pollutedHost = (String) stack.findValue("polluted_host");
-        userAgent = (String) stack.findValue("user_agent");
-        requestTime = (Long) stack.findValue("request_time");
+        load(hostContext());
         
         return SUCCESS;
     }
@@ -122,12 +103,7 @@ public class Struts2HnpAction extends ActionSupport {
     // Context information
     public String context() {
         // Get polluted host from Struts2 context
-        ActionContext context = ActionContext.getContext();
-        ValueStack stack = context.getValueStack();
-        
-        pollutedHost = (String) stack.findValue("polluted_host");
-        userAgent = (String) stack.findValue("user_agent");
-        requestTime = (Long) stack.findValue("request_time");
+        load(hostContext());
         
         return SUCCESS;
     }
@@ -135,12 +111,7 @@ public class Struts2HnpAction extends ActionSupport {
     // Session information
     public String session() {
         // Get polluted host from session
-        ActionContext context = ActionContext.getContext();
-        HttpSession session = (HttpSession) context.get(com.opensymphony.struts2.StrutsStatics.SESSION);
-        
-        pollutedHost = (String) session.getAttribute("polluted_host");
-        userAgent = (String) session.getAttribute("user_agent");
-        requestTime = (Long) session.getAttribute("request_time");
+        load(sessionHostContext());
         
         return SUCCESS;
     }
@@ -155,22 +126,32 @@ public class Struts2HnpAction extends ActionSupport {
         return SUCCESS;
     }
     
+    // Typed views of what HnpInterceptor captured, for this request and as last stored in the session
+    static HostContext hostContext() {
+        return (HostContext) ActionContext.getContext().get(HostContext.ATTRIBUTE);
+    }
+    
+    static HostContext sessionHostContext() {
+        HttpSession session = (HttpSession) ActionContext.getContext().get(com.opensymphony.struts2.StrutsStatics.SESSION);
+        return (HostContext) session.getAttribute(HostContext.ATTRIBUTE);
+    }
+    
+    private void load(HostContext hostContext) {
+        if (hostContext == null) {
+            // Nothing captured yet (e.g. a fresh session): leave the fields null, as the raw attributes did
+            return;
+        }
+        pollutedHost = hostContext.host();
+        userAgent = hostContext.userAgent();
+        requestTime = hostContext.requestTime();
+    }
+    
     // Email sending function
     private void sendResetEmail(String to, String htmlBody) throws Exception {
         String from = "no-reply@example.com";
-        String password = "password";
-        
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
         
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(from, password);
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        Session session = ResetMailer.shared().getSession();
         
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress(from));
@@ -10,12 +10,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.stereotype.Controller;
 import javax.servlet.http.HttpServletRequest;
-import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import com.example.hnp.concurrent.ContextCarrier;
+import com.example.hnp.concurrent.ExecutionMode;
 import javax.mail.*;
 import javax.mail.internet.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.CompletableFuture;
+import com.example.hnp.mail.ResetMailer;
 
 @SpringBootApplication
 @Controller
@@ -26,8 +27,14 @@ public class ThreadLocalHnpApplication {
     private static final ThreadLocal<String> requestTimeThreadLocal = new ThreadLocal<>();
     private static final ThreadLocal<String> userAgentThreadLocal = new ThreadLocal<>();
     
-    // Thread pool for background processing
-    private static final ExecutorService threadPool = Executors.newFixedThreadPool(5);
+    // ThreadLocals deliberately handed to background tasks (captured at submit, restored after the task)
+    private static final ContextCarrier requestContext =
+        ContextCarrier.of(pollutedHostThreadLocal, requestTimeThreadLocal, userAgentThreadLocal);
+
+    // Background processing, sized via hnp.executor.threadlocal.*: a bounded platform pool, or one virtual
+    // thread per task (at most threads + queue at once) in virtual-thread mode
+    private static final Executor threadPool =
+        ExecutionMode.backgroundExecutor("threadlocal", 5, 500, requestContext);
 
     public static void main(String[] args) {
         SpringApplication.run(ThreadLocalHnpApplication.class, args);
@@ -120,17 +127,8 @@ public class ThreadLocalHnpApplication {
     }
 
     private void sendResetEmail(String to, String htmlBody) throws Exception {
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication("no-reply@example.com", "password");
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        Session session = ResetMailer.shared().getSession();
 
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress("no-reply@example.com"));
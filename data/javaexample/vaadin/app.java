@@ -15,10 +15,10 @@ import com.vaadin.flow.server.VaadinRequest;
 import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.notification.Notification;
-
+import com.example.hnp.context.HostContext;
 import javax.mail.*;
 import javax.mail.internet.*;
-import java.util.Properties;
+import com.example.hnp.mail.ResetMailer;
 
 @Route("")
 public class VaadinHnpApp extends VerticalLayout {
@@ -45,20 +45,18 @@ public class VaadinHnpApp extends VerticalLayout {
             if (request != null) {
                 // SOURCE: extract host from request headers
                 String host = request.getHeader("Host");
-                if (request.getHeader("X-Forwarded-Host") != null) {
-                    host = request.getHeader("X-Forwarded-Host");
-                }
+                String forwardedHost = request.getHeader("X-Forwarded-Host");
+                // The view outlives this request, so read everything now
+                HostContext hostContext =
+                    HostContext.capture(host, forwardedHost, () -> request.getHeader("User-Agent")).detach();
                 
                 // Store polluted host in Vaadin session
-                pollutedHost = host;
-                userAgent = request.getHeader("User-Agent");
-                requestTime = System.currentTimeMillis();
+                pollutedHost = hostContext.host();
+                userAgent = hostContext.userAgent();
+                requestTime = hostContext.requestTime();
                 
-                // Store in Vaadin session
-                session.setAttribute("polluted_host", host);
-                session.setAttribute("user_agent", userAgent);
-                session.setAttribute("request_time", requestTime);
-                session.setAttribute("vaadin_framework", true);
+                // Store in Vaadin session, keyed by type
+                session.setAttribute(HostContext.class, hostContext);
             }
         } catch (Exception e) {
             // Fallback values
@@ -158,10 +156,12 @@ public class VaadinHnpApp extends VerticalLayout {
             
             Div sessionDiv = new Div();
             sessionDiv.add(new Paragraph("Vaadin Session Information:"));
-            sessionDiv.add(new Paragraph("Polluted Host: " + session.getAttribute("polluted_host")));
-            sessionDiv.add(new Paragraph("User Agent: " + session.getAttribute("user_agent")));
-            sessionDiv.add(new Paragraph("Request Time: " + session.getAttribute("request_time")));
-            sessionDiv.add(new Paragraph("Framework: " + session.getAttribute("vaadin_framework")));
+            // Absent until a view has captured a context into this session; shown as null then
+            HostContext hostContext = session.getAttribute(HostContext.class);
+            sessionDiv.add(new Paragraph("Polluted Host: " + (hostContext != null ? hostContext.host() : null)));
+            sessionDiv.add(new Paragraph("User Agent: " + (hostContext != null ? hostContext.userAgent() : null)));
+            sessionDiv.add(new Paragraph("Request Time: " + (hostContext != null ? hostContext.requestTime() : null)));
+            sessionDiv.add(new Paragraph("Framework: Vaadin"));
             
             add(sessionDiv);
         } catch (Exception e) {
@@ -184,19 +184,9 @@ public class VaadinHnpApp extends VerticalLayout {
     // Email sending function
     private void sendResetEmail(String to, String htmlBody) throws Exception {
         String from = "no-reply@example.com";
-        String password = "password";
-        
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
         
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(from, password);
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        Session session = ResetMailer.shared().getSession();
         
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress(from));
@@ -15,10 +15,10 @@ import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.Session;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.model.PropertyModel;
-
+import com.example.hnp.context.HostContext;
 import javax.mail.*;
 import javax.mail.internet.*;
-import java.util.Properties;
+import com.example.hnp.mail.ResetMailer;
 
 public class WicketHnpPage extends WebPage {
     
@@ -48,20 +48,18 @@ public class WicketHnpPage extends WebPage {
             if (request != null) {
                 // SOURCE: extract host from request headers
                 String host = request.getHeader("Host");
-                if (request.getHeader("X-Forwarded-Host") != null) {
-                    host = request.getHeader("X-Forwarded-Host");
-                }
+                String forwardedHost = request.getHeader("X-Forwarded-Host");
+                // The page outlives this request, so read everything now
+                HostContext hostContext =
+                    HostContext.capture(host, forwardedHost, () -> request.getHeader("User-Agent")).detach();
                 
                 // Store polluted host in Wicket session
-                pollutedHost = host;
-                userAgent = request.getHeader("User-Agent");
-                requestTime = System.currentTimeMillis();
+                pollutedHost = hostContext.host();
+                userAgent = hostContext.userAgent();
+                requestTime = hostContext.requestTime();
                 
                 // Store in Wicket session
-                wicketSession.setAttribute("polluted_host", host);
-                wicketSession.setAttribute("user_agent", userAgent);
-                wicketSession.setAttribute("request_time", requestTime);
-                wicketSession.setAttribute("wicket_framework", true);
+                wicketSession.setAttribute(HostContext.ATTRIBUTE, hostContext);
             }
         } catch (Exception e) {
             // Fallback values
@@ -160,13 +158,14 @@ public class WicketHnpPage extends WebPage {
     // Show session information
     private void showSession() {
         try {
-            org.apache.wicket.Session wicketSession = Session.get();
+            // Absent until a page has captured a context into this session; shown as null then
+            HostContext hostContext = sessionHostContext();
             
             info("Wicket Session Information:");
-            info("Polluted Host: " + wicketSession.getAttribute("polluted_host"));
-            info("User Agent: " + wicketSession.getAttribute("user_agent"));
-            info("Request Time: " + wicketSession.getAttribute("request_time"));
-            info("Framework: " + wicketSession.getAttribute("wicket_framework"));
+            info("Polluted Host: " + (hostContext != null ? hostContext.host() : null));
+            info("User Agent: " + (hostContext != null ? hostContext.userAgent() : null));
+            info("Request Time: " + (hostContext != null ? hostContext.requestTime() : null));
+            info("Framework: Wicket");
         } catch (Exception e) {
             error("Error accessing session: " + e.getMessage());
         }
@@ -181,22 +180,17 @@ public class WicketHnpPage extends WebPage {
         info("HNP Enabled: true");
     }
     
+    // Typed view of the context initHnpData stored in the Wicket session
+    static HostContext sessionHostContext() {
+        return (HostContext) Session.get().getAttribute(HostContext.ATTRIBUTE);
+    }
+    
     // Email sending function
     private void sendResetEmail(String to, String htmlBody) throws Exception {
         String from = "no-reply@example.com";
-        String password = "password";
         
-        Properties props = new Properties();
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", "smtp.gmail.com");
-        props.put("mail.smtp.port", "587");
-        
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(from, password);
-            }
-        });
+        // Shared pooled session: Transport.send hands the message to ResetMailer
+        javax.mail.Session session = ResetMailer.shared().getSession();
         
         Message message = new MimeMessage(session);
         message.setFrom(new InternetAddress(from));
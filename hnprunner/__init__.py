@@ -0,0 +1,5 @@
+"""
+HNP CodeQL runner
+Runs the javaqueries / jsqueries / pyqueries / rubyqueries packs against their databases in parallel,
+skipping any (database, query) pair whose content hashes match the previous run.
+"""
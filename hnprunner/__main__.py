@@ -0,0 +1,68 @@
+"""
+Command line entry point: python -m hnprunner [options]
+"""
+
+import argparse
+import sys
+
+from . import packs as packs_module
+from .overlay import OverlayManager
+from .runner import Runner, find_codeql, plan_resources, write_summary
+
+
+def parse_args(argv):
+    parser = argparse.ArgumentParser(prog="python -m hnprunner",
+                                     description="Run the HNP CodeQL packs in parallel, skipping unchanged work")
+    parser.add_argument("-l", "--language", action="append", choices=sorted(packs_module.LANGUAGES),
+                        help="language to analyze (repeatable; default: all)")
+    parser.add_argument("--db", action="append", default=[], metavar="LANGUAGE=PATH",
+                        help="database for a language, overriding the default location")
+    parser.add_argument("-j", "--workers", type=int, help="parallel CodeQL evaluations (default: CPUs)")
+    parser.add_argument("--ram-per-worker", type=int, metavar="MB",
+                        help="--ram for each evaluation (default: 80%% of physical memory / workers)")
+    parser.add_argument("--threads-per-worker", type=int, help="--threads for each evaluation (default: CPUs / workers)")
+    parser.add_argument("-o", "--out", default=str(packs_module.REPO_ROOT / "hnp-results"),
+                        help="directory for BQRS files and the incremental state")
+    parser.add_argument("--codeql", help="path to the CodeQL CLI (default: $CODEQL or codeql on PATH)")
+    parser.add_argument("--force", action="store_true", help="ignore content hashes and rerun everything")
+    parser.add_argument("--overlay", action="store_true",
+                        help="extract only the source files changed since a cached base database (built on first use)")
+    parser.add_argument("--rebuild-base", action="store_true", help="with --overlay: rebuild the base databases first")
+    parser.add_argument("--max-overlay-changes", type=float, default=0.25, metavar="FRACTION",
+                        help="with --overlay: rebuild the base instead when more of its files changed (default: 0.25)")
+    parser.add_argument("--overlay-build-mode", choices=["autobuild", "none"],
+                        help="with --overlay: how to extract Java (default: as the regular database was, else autobuild)")
+    return parser.parse_args(argv)
+
+
+def main(argv=None):
+    args = parse_args(sys.argv[1:] if argv is None else argv)
+    databases = {}
+    for spec in args.db:
+        language, sep, path = spec.partition("=")
+        if not sep:
+            sys.exit(f"--db expects LANGUAGE=PATH, got {spec!r}")
+        databases[language] = path
+
+    runner = Runner(find_codeql(args.codeql), args.out, args.workers, args.ram_per_worker,
+                    args.threads_per_worker, args.force)
+    packs = packs_module.discover(args.language, databases)
+    if args.overlay:
+        # Bases are built one language at a time, so each gets the whole host
+        _, ram, threads = plan_resources(1, 1, args.ram_per_worker, args.threads_per_worker)
+        overlays = OverlayManager(runner.codeql, args.out, runner.state.hashes, runner.version, ram, threads,
+                                  args.max_overlay_changes, args.rebuild_base, args.overlay_build_mode)
+        packs = overlays.prepare(packs)
+    results = runner.run(packs)
+    summary = write_summary(args.out, results)
+
+    print("\n" + "=" * 80)
+    for r in results:
+        count = "" if r.finding_count is None else f"{r.finding_count} finding(s)"
+        print(f"{r.status:12} {r.language:11} {r.query:32} {r.seconds:7.1f}s {count} {r.message}")
+    print(f"💾 Summary saved to: {summary}")
+    return 1 if any(r.status == "failed" for r in results) else 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
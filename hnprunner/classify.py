@@ -0,0 +1,140 @@
+"""
+Rule-table classification of HNP flows
+Each rule category (frameworks, scenarios) is compiled into one alternation regex, one named group per rule
+in priority order. Searching restarts one character after each hit, so every position where some keyword
+starts is examined and the alternation order picks the highest-priority rule there: the result is identical
+to testing the rules one by one, in a single pass of the regex engine. Labels repeat heavily across a result
+set, so matches are also memoized.
+"""
+
+import json
+import os
+import re
+from collections import deque
+from concurrent.futures import ProcessPoolExecutor
+from functools import lru_cache
+from pathlib import Path
+
+RULES_FILE = Path(__file__).with_name("rules.json")
+
+# Flows per task handed to a worker process; large enough to amortize pickling
+CHUNK = 2000
+# Distinct texts remembered per rule set
+MEMO_SIZE = 1 << 16
+
+
+class RuleSet:
+    def __init__(self, rules, default):
+        self.names = [r["name"] for r in rules]
+        self.default = default
+        alternatives = []
+        for i, rule in enumerate(rules):
+            fragments = [re.escape(k.lower()) for k in rule.get("keywords", [])] + list(rule.get("patterns", []))
+            if fragments:
+                alternatives.append(f"(?P<r{i}>{'|'.join(fragments)})")
+        self.regex = re.compile("|".join(alternatives)) if alternatives else None
+        self.match = lru_cache(maxsize=MEMO_SIZE)(self._match)
+
+    def _match(self, text):
+        """Name of the first rule (in table order) with a keyword anywhere in text, or None"""
+        if not text or self.regex is None:
+            return None
+        text = text.lower()
+        best = None
+        m = self.regex.search(text)
+        while m is not None:
+            index = int(m.lastgroup[1:])
+            if best is None or index < best:
+                best = index
+                if best == 0:
+                    break
+            m = self.regex.search(text, m.start() + 1)
+        return None if best is None else self.names[best]
+
+
+class Classifier:
+    def __init__(self, table=None):
+        if table is None:
+            table = load_rules()
+        self.frameworks = RuleSet(table.get("frameworks", []), table.get("default_framework", "Unknown"))
+        self.scenarios = RuleSet(table.get("scenarios", []), table.get("default_scenario", "Unknown"))
+
+    def framework(self, source, sink, source_file="", sink_file=""):
+        # Keywords never contain a newline, so one scan over both labels equals checking each in turn
+        found = self.frameworks.match(f"{source}\n{sink}")
+        if found is None:
+            # Labels name no framework: fall back to where the flow lives
+            found = self.frameworks.match(f"{source_file}\n{sink_file}".replace("\\", "/"))
+        return found or self.frameworks.default
+
+    def scenario(self, sink):
+        return self.scenarios.match(sink) or self.scenarios.default
+
+    def classify(self, source, sink, source_file="", sink_file=""):
+        """(scenario, framework) for one flow"""
+        return self.scenario(sink), self.framework(source, sink, source_file, sink_file)
+
+    def classify_finding(self, finding):
+        return self.classify(*flow_key(finding))
+
+
+def flow_key(finding):
+    """The four strings classification looks at; all a worker process needs to see"""
+    source, sink = finding.source, finding.sink
+    return (source.label if source else "", sink.label if sink else "",
+            source.file if source else "", sink.file if sink else "")
+
+
+def load_rules(path=RULES_FILE):
+    with open(path, encoding="utf-8") as f:
+        return json.load(f)
+
+
+_worker_classifier = None
+
+
+def _init_worker(rules_path):
+    global _worker_classifier
+    _worker_classifier = Classifier(load_rules(rules_path))
+
+
+def _classify_keys(keys):
+    return [_worker_classifier.classify(*key) for key in keys]
+
+
+def _chunks(items, size):
+    chunk = []
+    for item in items:
+        chunk.append(item)
+        if len(chunk) == size:
+            yield chunk
+            chunk = []
+    if chunk:
+        yield chunk
+
+
+def classify_findings(findings, workers=None, rules_path=RULES_FILE, chunk=CHUNK):
+    """Yield (finding, scenario, framework) in input order. With several workers, chunks are classified on
+    worker processes with a bounded number in flight, so a streamed input is never materialized; each chunk
+    ships only its distinct flow keys."""
+    workers = workers if workers is not None else (os.cpu_count() or 1)
+    if workers <= 1:
+        classifier = Classifier(load_rules(rules_path))
+        for finding in findings:
+            yield (finding,) + classifier.classify_finding(finding)
+        return
+
+    def drain(batch, keys, future):
+        results = dict(zip(keys, future.result()))
+        for finding in batch:
+            yield (finding,) + results[flow_key(finding)]
+
+    with ProcessPoolExecutor(max_workers=workers, initializer=_init_worker, initargs=(str(rules_path),)) as pool:
+        pending = deque()
+        for batch in _chunks(findings, chunk):
+            keys = list(dict.fromkeys(flow_key(f) for f in batch))
+            pending.append((batch, keys, pool.submit(_classify_keys, keys)))
+            if len(pending) >= workers * 2:
+                yield from drain(*pending.popleft())
+        while pending:
+            yield from drain(*pending.popleft())
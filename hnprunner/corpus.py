@@ -0,0 +1,919 @@
+"""
+Synthetic Java corpus for scaling the HNP queries: python -m hnprunner.corpus generate|score [options]
+`generate` writes a self-contained Maven project of roughly --lines lines built from the source -> addition -> sink
+shapes of data/javaexample: ThreadLocal hops, Struts ValueStack and session stashing, OAuth/JWT store round trips,
+Play ctx.args and Jakarta @SessionScoped beans. Each case is a true flow, a sanitized flow (the header only picks a
+literal from an allowlist) or noise (sinks fed by constants, non-host headers, plain filler code), drawn with the
+weights of --mix. Framework APIs are compile-only stubs under their real package names, so the project builds with
+`mvn compile` and no dependencies, and the models in javaqueries/ext match them. Every case's source and sink
+position goes to hnp-corpus.json; `score` matches findings.jsonl files against it.
+"""
+
+import argparse
+import json
+import random
+import shutil
+import sys
+from collections import Counter
+from dataclasses import dataclass, asdict
+from pathlib import Path
+from typing import Dict, List, Optional
+
+from . import ingest
+
+MANIFEST = "hnp-corpus.json"
+MANIFEST_VERSION = 1
+SHAPES = ("thread_local", "value_stack", "token_store", "play_args", "session_bean")
+EXPECTED = ("flow", "sanitized", "noise")
+# Sink kinds per shape, as in HnpDataFlow.qll
+SHAPE_SINKS = {
+    "thread_local": ("mail", "redirect", "session-attribute"),
+    "value_stack": ("mail", "redirect", "session-attribute"),
+    "token_store": ("mail", "redirect", "session-attribute"),
+    "play_args": ("redirect", "json-response"),
+    "session_bean": ("mail", "redirect", "session-attribute"),
+}
+HOST_HEADERS = ("Host", "X-Forwarded-Host", "X-Forwarded-Server")
+# Classes per generated package, so no directory grows past a few hundred files
+PER_PACKAGE = 250
+
+SOURCE_MARK = "#SOURCE"
+SINK_MARK = "#SINK"
+
+SERVLET_IMPORTS = [
+    "jakarta.mail.Session",
+    "jakarta.mail.Transport",
+    "jakarta.mail.internet.MimeMessage",
+    "jakarta.servlet.http.HttpServletRequest",
+    "jakarta.servlet.http.HttpServletResponse",
+]
+
+
+@dataclass
+class Position:
+    file: str
+    line: int
+
+
+@dataclass
+class Case:
+    id: str
+    shape: str
+    expected: str  # flow | sanitized | noise
+    kind: Optional[str]  # sink kind, None for filler
+    source: Optional[Position] = None
+    sink: Optional[Position] = None
+
+
+# -- Java text
+
+class JavaFile:
+    """Lines of one class; SOURCE_MARK / SINK_MARK at the end of a line record its number and are stripped"""
+
+    def __init__(self, package, imports, header):
+        self.lines = [f"// {header}", "", f"package {package};", ""]
+        if imports:
+            self.lines += [f"import {i};" for i in sorted(set(imports))] + [""]
+        self.marks: Dict[str, int] = {}
+
+    def add(self, text, indent=0):
+        for line in text.splitlines() if text else [""]:
+            for mark in (SOURCE_MARK, SINK_MARK):
+                if line.endswith(mark):
+                    self.marks[mark] = len(self.lines) + 1
+                    line = line[:-len(mark)].rstrip()
+            self.lines.append(("    " * indent + line) if line else "")
+
+    def text(self):
+        return "\n".join(self.lines) + "\n"
+
+
+def servlet_sink(kind, link="link"):
+    if kind == "redirect":
+        return f"response.sendRedirect({link});{SINK_MARK}"
+    if kind == "session-attribute":
+        return f'request.getSession().setAttribute("resetLink", {link});{SINK_MARK}'
+    return (f"MimeMessage message = new MimeMessage(Session.getInstance(new java.util.Properties()));\n"
+            f'message.setSubject("Reset your password");\n'
+            f'message.setText("Reset your password: " + {link});\n'
+            f"Transport.send(message);{SINK_MARK}")
+
+
+def play_sink(kind, link="link"):
+    if kind == "json-response":
+        return f'return Results.ok(Json.toJson(Map.of("link", {link})));{SINK_MARK}'
+    return f"return Results.redirect({link});{SINK_MARK}"
+
+
+def servlet_host(expected, header):
+    if expected == "sanitized":
+        return f'Hosts.canonical(request.getHeader("{header}")){SOURCE_MARK}'
+    return f'request.getHeader("{header}"){SOURCE_MARK}'
+
+
+# -- Shapes: each returns the JavaFile for one case; expected is "flow" or "sanitized"
+
+def thread_local(pkg, name, support, expected, kind, header):
+    f = JavaFile(pkg, SERVLET_IMPORTS + [f"{support}.Hosts", f"{support}.Links", f"{support}.Tokens"],
+                 f"Generated by hnprunner.corpus: ThreadLocal hop ({expected}, {kind})")
+    host = servlet_host(expected, header).replace(SOURCE_MARK, "")
+    f.add(f"""public class {name} {{
+
+    private static final ThreadLocal<String> HOST = new ThreadLocal<>();
+
+    public void handle(HttpServletRequest request, HttpServletResponse response) throws Exception {{
+        HOST.set({host});{SOURCE_MARK}
+        try {{
+            new Worker().run(request, response);
+        }} finally {{
+            HOST.remove();
+        }}
+    }}
+
+    static final class Worker {{
+        void run(HttpServletRequest request, HttpServletResponse response) throws Exception {{
+            String link = Links.reset(HOST.get(), Tokens.next());""")
+    f.add(servlet_sink(kind), 3)
+    f.add("""        }
+    }
+}""")
+    return f
+
+
+def value_stack(pkg, name, support, expected, kind, header, variant):
+    f = JavaFile(pkg, SERVLET_IMPORTS + [f"{support}.Hosts", f"{support}.Links", f"{support}.Tokens",
+                                         "org.apache.struts2.ActionContext", "org.apache.struts2.ServletActionContext"],
+                 f"Generated by hnprunner.corpus: Struts {variant} stash ({expected}, {kind})")
+    host = servlet_host(expected, header).replace(SOURCE_MARK, "")
+    key = f"hnp.{name}.host"
+    if variant == "session":
+        store = f'ActionContext.getContext().getSession().put("{key}", {host});{SOURCE_MARK}'
+        load = f'String host = (String) ActionContext.getContext().getSession().get("{key}");'
+    else:
+        store = f'ActionContext.getContext().getValueStack().set("{key}", {host});{SOURCE_MARK}'
+        load = f'String host = ActionContext.getContext().getValueStack().findString("{key}");'
+    f.add(f"""public class {name} {{
+
+    // Interceptor half: runs before the action and stashes the host for it
+    public static final class Capture {{
+        public String intercept() {{
+            HttpServletRequest request = ServletActionContext.getRequest();
+            {store}
+            return "continue";
+        }}
+    }}
+
+    public String execute() throws Exception {{
+        HttpServletRequest request = ServletActionContext.getRequest();
+        HttpServletResponse response = ServletActionContext.getResponse();
+        {load}
+        String link = Links.reset(host, Tokens.next());""")
+    f.add(servlet_sink(kind), 2)
+    f.add("""        return "success";
+    }
+}""")
+    return f
+
+
+def token_store(pkg, name, support, expected, kind, header, variant):
+    f = JavaFile(pkg, SERVLET_IMPORTS + [f"{support}.Hosts", f"{support}.Links", f"{support}.Tokens",
+                                         "java.nio.charset.StandardCharsets", "java.util.Base64", "java.util.Map",
+                                         "java.util.concurrent.ConcurrentHashMap"],
+                 f"Generated by hnprunner.corpus: {variant} store round trip ({expected}, {kind})")
+    host = servlet_host(expected, header).replace(SOURCE_MARK, "")
+    if variant == "jwt":
+        issue = f"""String claims = "{{\\"iss\\":\\"" + {host} + "\\",\\"sub\\":\\"user\\"}}";{SOURCE_MARK}
+        String token = Tokens.next();
+        ISSUED.put(token, Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8)));"""
+        redeem = """String jwt = ISSUED.get(request.getParameter("token"));
+        if (jwt == null) {
+            response.sendError(401);
+            return;
+        }
+        String claims = new String(Base64.getUrlDecoder().decode(jwt), StandardCharsets.UTF_8);
+        String issuer = claims.substring(claims.indexOf(":\\"") + 2, claims.indexOf("\\","));"""
+        field = "private static final Map<String, String> ISSUED = new ConcurrentHashMap<>();"
+    else:
+        issue = f"""String token = Tokens.next();
+        ISSUED.put(token, new Grant({host}, "user"));{SOURCE_MARK}"""
+        redeem = """Grant grant = ISSUED.remove(request.getParameter("code"));
+        if (grant == null) {
+            response.sendError(400);
+            return;
+        }
+        String issuer = grant.host();"""
+        field = ("record Grant(String host, String subject) {}\n\n"
+                 "    private static final Map<String, Grant> ISSUED = new ConcurrentHashMap<>();")
+    f.add(f"""public class {name} {{
+
+    {field}
+
+    public void issue(HttpServletRequest request, HttpServletResponse response) throws Exception {{
+        {issue}
+        response.sendRedirect("/callback?code=" + token);
+    }}
+
+    public void redeem(HttpServletRequest request, HttpServletResponse response) throws Exception {{
+        {redeem}
+        String link = Links.reset(issuer, Tokens.next());""")
+    f.add(servlet_sink(kind), 2)
+    f.add("""    }
+}""")
+    return f
+
+
+def play_args(pkg, name, support, expected, kind, header):
+    f = JavaFile(pkg, [f"{support}.Hosts", f"{support}.Links", f"{support}.Tokens", "java.util.Map",
+                       "play.libs.Json", "play.mvc.Http", "play.mvc.Result", "play.mvc.Results"],
+                 f"Generated by hnprunner.corpus: Play ctx.args stash ({expected}, {kind})")
+    header_call = f'ctx.request().header("{header}")'
+    host = (f"Hosts.canonical({header_call}.orElse(null))" if expected == "sanitized"
+            else f'{header_call}.orElse("localhost")')
+    f.add(f"""public class {name} {{
+
+    // Action composition half: stores the host for the action
+    public static void capture(Http.Context ctx) {{
+        ctx.args.put("host", {host});{SOURCE_MARK}
+    }}
+
+    public Result forgot(Http.Context ctx) {{
+        capture(ctx);
+        String host = (String) ctx.args.get("host");
+        String link = Links.reset(host, Tokens.next());""")
+    f.add(play_sink(kind), 2)
+    f.add("""    }
+}""")
+    return f
+
+
+def session_bean(pkg, name, support, expected, kind, header):
+    f = JavaFile(pkg, SERVLET_IMPORTS + [f"{support}.Hosts", f"{support}.Links", f"{support}.Tokens",
+                                         "jakarta.enterprise.context.RequestScoped",
+                                         "jakarta.enterprise.context.SessionScoped", "jakarta.inject.Inject",
+                                         "java.io.Serializable"],
+                 f"Generated by hnprunner.corpus: @SessionScoped bean ({expected}, {kind})")
+    host = servlet_host(expected, header).replace(SOURCE_MARK, "")
+    f.add(f"""public class {name} {{
+
+    @SessionScoped
+    public static class HostBean implements Serializable {{
+        private static final long serialVersionUID = 1L;
+
+        private String host;
+
+        public String getHost() {{ return host; }}
+        public void setHost(String host) {{ this.host = host; }}
+    }}
+
+    @RequestScoped
+    public static class Capture {{
+        @Inject
+        HttpServletRequest request;
+
+        @Inject
+        HostBean bean;
+
+        public void capture() {{
+            bean.setHost({host});{SOURCE_MARK}
+        }}
+    }}
+
+    @RequestScoped
+    public static class Resource {{
+        @Inject
+        HttpServletRequest request;
+
+        @Inject
+        HttpServletResponse response;
+
+        @Inject
+        HostBean bean;
+
+        public void forgot() throws Exception {{
+            String link = Links.reset(bean.getHost(), Tokens.next());""")
+    f.add(servlet_sink(kind), 3)
+    f.add("""        }
+    }
+}""")
+    return f
+
+
+# -- Noise
+
+def decoy_sink(pkg, name, support, kind):
+    """A sink fed by a configured host and a token parameter"""
+    f = JavaFile(pkg, SERVLET_IMPORTS + [f"{support}.Hosts", f"{support}.Links"],
+                 f"Generated by hnprunner.corpus: sink without a host header ({kind})")
+    f.add(f"""public class {name} {{
+
+    public void handle(HttpServletRequest request, HttpServletResponse response) throws Exception {{
+        String token = request.getParameter("token");
+        String link = Links.reset(Hosts.DEFAULT, token == null ? "none" : token);""")
+    f.add(servlet_sink(kind), 2)
+    f.add("""    }
+}""")
+    return f
+
+
+def decoy_source(pkg, name, support, kind, header):
+    """A host header that only reaches an audit log, and a non-host header that reaches the sink"""
+    f = JavaFile(pkg, SERVLET_IMPORTS + [f"{support}.Links", "java.util.List", "java.util.concurrent.CopyOnWriteArrayList"],
+                 f"Generated by hnprunner.corpus: host header without a sink ({kind})")
+    f.add(f"""public class {name} {{
+
+    private static final List<String> AUDIT = new CopyOnWriteArrayList<>();
+
+    public void handle(HttpServletRequest request, HttpServletResponse response) throws Exception {{
+        String host = request.getHeader("{header}");{SOURCE_MARK}
+        AUDIT.add("request for " + host);
+        String agent = request.getHeader("User-Agent");
+        String link = Links.reset("app.example.com", String.valueOf(agent == null ? 0 : agent.length()));""")
+    f.add(servlet_sink(kind), 2)
+    f.add("""    }
+}""")
+    return f
+
+
+FIELD_TYPES = (("String", '""'), ("int", "0"), ("long", "0L"), ("boolean", "false"))
+
+
+def filler(pkg, name, rng):
+    """A bean with accessors, equals/hashCode and a small service method, as in any application's model layer"""
+    f = JavaFile(pkg, ["java.util.ArrayList", "java.util.List", "java.util.Objects"],
+                 "Generated by hnprunner.corpus: filler")
+    fields = [(f"field{i}", rng.choice(FIELD_TYPES)[0]) for i in range(rng.randint(6, 14))]
+    f.add(f"public class {name} {{")
+    f.add("")
+    for field, type_ in fields:
+        f.add(f"private {type_} {field};", 1)
+    for field, type_ in fields:
+        accessor = field[0].upper() + field[1:]
+        f.add("")
+        f.add(f"public {type_} {'is' if type_ == 'boolean' else 'get'}{accessor}() {{\n    return {field};\n}}", 1)
+        f.add("")
+        f.add(f"public void set{accessor}({type_} {field}) {{\n    this.{field} = {field};\n}}", 1)
+    names = ", ".join(field for field, _ in fields)
+    compare = "\n        && ".join(f"Objects.equals({field}, other.{field})" for field, _ in fields)
+    f.add(f"""
+@Override
+public boolean equals(Object o) {{
+    if (this == o) {{
+        return true;
+    }}
+    if (!(o instanceof {name} other)) {{
+        return false;
+    }}
+    return {compare};
+}}
+
+@Override
+public int hashCode() {{
+    return Objects.hash({names});
+}}
+
+public static List<{name}> matching(List<{name}> items, {name} probe) {{
+    List<{name}> result = new ArrayList<>();
+    for ({name} item : items) {{
+        if (item.hashCode() == probe.hashCode() && item.equals(probe)) {{
+            result.add(item);
+        }}
+    }}
+    return result;
+}}""", 1)
+    f.add("}")
+    return f
+
+
+# -- Project scaffolding
+
+STUBS = {
+    "jakarta/servlet/http/HttpServletRequest.java": """package jakarta.servlet.http;
+
+public interface HttpServletRequest {
+    String getHeader(String name);
+
+    String getParameter(String name);
+
+    HttpSession getSession();
+}
+""",
+    "jakarta/servlet/http/HttpServletResponse.java": """package jakarta.servlet.http;
+
+import java.io.IOException;
+
+public interface HttpServletResponse {
+    void sendRedirect(String location) throws IOException;
+
+    void sendError(int status) throws IOException;
+
+    void setHeader(String name, String value);
+}
+""",
+    "jakarta/servlet/http/HttpSession.java": """package jakarta.servlet.http;
+
+public interface HttpSession {
+    String getId();
+
+    Object getAttribute(String name);
+
+    void setAttribute(String name, Object value);
+}
+""",
+    "jakarta/mail/MessagingException.java": """package jakarta.mail;
+
+public class MessagingException extends Exception {
+    public MessagingException(String message) {
+        super(message);
+    }
+}
+""",
+    "jakarta/mail/Session.java": """package jakarta.mail;
+
+import java.util.Properties;
+
+public final class Session {
+    private Session() {}
+
+    public static Session getInstance(Properties properties) {
+        throw new UnsupportedOperationException("stub");
+    }
+}
+""",
+    "jakarta/mail/Part.java": """package jakarta.mail;
+
+public interface Part {
+    void setText(String text) throws MessagingException;
+}
+""",
+    "jakarta/mail/Message.java": """package jakarta.mail;
+
+public abstract class Message implements Part {
+    public abstract void setSubject(String subject) throws MessagingException;
+}
+""",
+    "jakarta/mail/Transport.java": """package jakarta.mail;
+
+public abstract class Transport {
+    public static void send(Message message) throws MessagingException {
+        throw new UnsupportedOperationException("stub");
+    }
+}
+""",
+    "jakarta/mail/internet/MimePart.java": """package jakarta.mail.internet;
+
+import jakarta.mail.Part;
+
+public interface MimePart extends Part {
+}
+""",
+    "jakarta/mail/internet/MimeMessage.java": """package jakarta.mail.internet;
+
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+
+public class MimeMessage extends Message implements MimePart {
+    public MimeMessage(Session session) {
+    }
+
+    @Override
+    public void setSubject(String subject) {
+        throw new UnsupportedOperationException("stub");
+    }
+
+    @Override
+    public void setText(String text) {
+        throw new UnsupportedOperationException("stub");
+    }
+}
+""",
+    "jakarta/enterprise/context/RequestScoped.java": """package jakarta.enterprise.context;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD, ElementType.FIELD})
+public @interface RequestScoped {
+}
+""",
+    "jakarta/enterprise/context/SessionScoped.java": """package jakarta.enterprise.context;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD, ElementType.FIELD})
+public @interface SessionScoped {
+}
+""",
+    "jakarta/inject/Inject.java": """package jakarta.inject;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.CONSTRUCTOR, ElementType.METHOD, ElementType.FIELD})
+public @interface Inject {
+}
+""",
+    "org/apache/struts2/util/ValueStack.java": """package org.apache.struts2.util;
+
+public interface ValueStack {
+    void set(String key, Object value);
+
+    String findString(String expression);
+}
+""",
+    "org/apache/struts2/ActionContext.java": """package org.apache.struts2;
+
+import org.apache.struts2.util.ValueStack;
+
+import java.util.Map;
+
+public class ActionContext {
+    public static ActionContext getContext() {
+        throw new UnsupportedOperationException("stub");
+    }
+
+    public ValueStack getValueStack() {
+        throw new UnsupportedOperationException("stub");
+    }
+
+    public Map<String, Object> getSession() {
+        throw new UnsupportedOperationException("stub");
+    }
+}
+""",
+    "org/apache/struts2/ServletActionContext.java": """package org.apache.struts2;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public class ServletActionContext extends ActionContext {
+    public static HttpServletRequest getRequest() {
+        throw new UnsupportedOperationException("stub");
+    }
+
+    public static HttpServletResponse getResponse() {
+        throw new UnsupportedOperationException("stub");
+    }
+}
+""",
+    "play/mvc/Http.java": """package play.mvc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+public class Http {
+    public interface RequestHeader {
+        Optional<String> header(String name);
+    }
+
+    public interface Request extends RequestHeader {
+    }
+
+    public static class Context {
+        public final Map<String, Object> args = new HashMap<>();
+
+        public Request request() {
+            throw new UnsupportedOperationException("stub");
+        }
+    }
+}
+""",
+    "play/mvc/Result.java": """package play.mvc;
+
+public class Result {
+}
+""",
+    "play/mvc/Results.java": """package play.mvc;
+
+public class Results {
+    public static Result ok(Object content) {
+        throw new UnsupportedOperationException("stub");
+    }
+
+    public static Result redirect(String url) {
+        throw new UnsupportedOperationException("stub");
+    }
+}
+""",
+    "play/libs/Json.java": """package play.libs;
+
+public class Json {
+    public static Object toJson(Object data) {
+        throw new UnsupportedOperationException("stub");
+    }
+}
+""",
+}
+
+SUPPORT = {
+    "Hosts": """public final class Hosts {
+
+    public static final String DEFAULT = "app.example.com";
+
+    private Hosts() {}
+
+    // Allowlist: only literals leave this method, never the header value itself
+    public static String canonical(String header) {
+        if (header == null) {
+            return DEFAULT;
+        }
+        switch (header.toLowerCase(Locale.ROOT)) {
+            case "app.example.com":
+                return "app.example.com";
+            case "www.example.com":
+                return "www.example.com";
+            default:
+                return DEFAULT;
+        }
+    }
+}
+""",
+    "Links": """public final class Links {
+
+    private Links() {}
+
+    public static String reset(String host, String token) {
+        return new StringBuilder("https://").append(host).append("/reset/").append(token).toString();
+    }
+}
+""",
+    "Tokens": """public final class Tokens {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private Tokens() {}
+
+    public static String next() {
+        return Long.toHexString(RANDOM.nextLong());
+    }
+}
+""",
+}
+SUPPORT_IMPORTS = {"Hosts": ["java.util.Locale"], "Links": [], "Tokens": ["java.security.SecureRandom"]}
+
+POM = """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0"
+         xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+         xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 https://maven.apache.org/xsd/maven-4.0.0.xsd">
+  <modelVersion>4.0.0</modelVersion>
+  <groupId>com.example</groupId>
+  <artifactId>{artifact}</artifactId>
+  <version>0.1.0-SNAPSHOT</version>
+  <!-- Generated by hnprunner.corpus (seed {seed}); framework APIs are stubs under src/main/java -->
+
+  <properties>
+    <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>
+  </properties>
+
+  <build>
+    <plugins>
+      <plugin>
+        <groupId>org.apache.maven.plugins</groupId>
+        <artifactId>maven-compiler-plugin</artifactId>
+        <version>3.11.0</version>
+        <configuration>
+          <release>17</release>
+        </configuration>
+      </plugin>
+    </plugins>
+  </build>
+</project>
+"""
+
+
+def parse_mix(spec):
+    """"flow=20,sanitized=10,noise=70" -> weights per expected outcome"""
+    weights = {}
+    for part in spec.split(","):
+        name, sep, weight = part.partition("=")
+        name = name.strip()
+        if not sep or name not in EXPECTED or not weight.strip().isdigit():
+            raise ValueError(f"--mix expects {'/'.join(EXPECTED)}=WEIGHT,..., got {spec!r}")
+        weights[name] = int(weight)
+    if not any(weights.values()):
+        raise ValueError("--mix needs a positive weight")
+    return weights
+
+
+class Generator:
+    def __init__(self, out_dir, lines, mix, shapes=SHAPES, seed=1, package="com.example.hnp.corpus"):
+        self.out = Path(out_dir)
+        self.java = self.out / "src" / "main" / "java"
+        self.target_lines = lines
+        self.mix = mix
+        self.shapes = list(shapes)
+        self.seed = seed
+        self.package = package
+        self.rng = random.Random(seed)
+        self.cases: List[Case] = []
+        self.lines = 0
+        self.stub_lines = 0
+        self.files = 0
+        self.next_id: Counter = Counter()
+
+    def generate(self):
+        if self.out.exists():
+            if not (self.out / MANIFEST).is_file() and any(self.out.iterdir()):
+                raise FileExistsError(f"{self.out} is not empty and holds no {MANIFEST}; refusing to overwrite it")
+            shutil.rmtree(self.out / "src", ignore_errors=True)
+        self.out.mkdir(parents=True, exist_ok=True)
+        (self.out / "pom.xml").write_text(POM.format(artifact=self.out.name, seed=self.seed), encoding="utf-8")
+        for path, text in STUBS.items():
+            self.stub_lines += self.write(path, "// Compile-only stub generated by hnprunner.corpus\n\n" + text,
+                                          count=False)
+        support = f"{self.package}.support"
+        for name, body in SUPPORT.items():
+            f = JavaFile(support, SUPPORT_IMPORTS[name], "Generated by hnprunner.corpus: shared helper")
+            f.add(body.rstrip("\n"))
+            self.emit(support, name, f)
+
+        outcomes, weights = zip(*self.mix.items())
+        while self.lines < self.target_lines:
+            expected = self.rng.choices(outcomes, weights)[0]
+            if expected == "noise":
+                self.noise(support)
+            else:
+                self.flow(support, expected)
+        return self.write_manifest()
+
+    def allocate(self, group):
+        n = self.next_id[group]
+        self.next_id[group] += 1
+        return f"{self.package}.{group}.p{n // PER_PACKAGE:03d}", n
+
+    def flow(self, support, expected):
+        shape = self.rng.choice(self.shapes)
+        kind = self.rng.choice(SHAPE_SINKS[shape])
+        header = self.rng.choice(HOST_HEADERS)
+        pkg, n = self.allocate(shape)
+        name = "".join(p.capitalize() for p in shape.split("_")) + f"Case{n:06d}"
+        if shape == "value_stack":
+            f = value_stack(pkg, name, support, expected, kind, header, self.rng.choice(("value-stack", "session")))
+        elif shape == "token_store":
+            f = token_store(pkg, name, support, expected, kind, header, self.rng.choice(("oauth", "jwt")))
+        else:
+            f = globals()[shape](pkg, name, support, expected, kind, header)
+        self.record(f"{shape}-{n}", shape, expected, kind, pkg, name, f)
+
+    def noise(self, support):
+        variant = self.rng.choices(("decoy_sink", "decoy_source", "filler"), (1, 1, 2))[0]
+        pkg, n = self.allocate(variant)
+        name = "".join(p.capitalize() for p in variant.split("_")) + f"{n:06d}"
+        if variant == "filler":
+            self.emit(pkg, name, filler(pkg, name, self.rng))
+            return
+        kind = self.rng.choice(("mail", "redirect", "session-attribute"))
+        if variant == "decoy_sink":
+            f = decoy_sink(pkg, name, support, kind)
+        else:
+            f = decoy_source(pkg, name, support, kind, self.rng.choice(HOST_HEADERS))
+        self.record(f"{variant}-{n}", variant, "noise", kind, pkg, name, f)
+
+    def record(self, case_id, shape, expected, kind, pkg, name, f):
+        path = self.emit(pkg, name, f)
+        source = f.marks.get(SOURCE_MARK)
+        sink = f.marks.get(SINK_MARK)
+        self.cases.append(Case(case_id, shape, expected, kind,
+                               Position(path, source) if source else None, Position(path, sink) if sink else None))
+
+    def emit(self, pkg, name, f):
+        path = pkg.replace(".", "/") + f"/{name}.java"
+        self.write(path, f.text())
+        return f"src/main/java/{path}"
+
+    def write(self, path, text, count=True):
+        target = self.java / path
+        target.parent.mkdir(parents=True, exist_ok=True)
+        target.write_text(text, encoding="utf-8")
+        lines = text.count("\n")
+        if count:
+            self.lines += lines
+            self.files += 1
+        return lines
+
+    def write_manifest(self):
+        manifest = {
+            "version": MANIFEST_VERSION,
+            "seed": self.seed,
+            "package": self.package,
+            "mix": self.mix,
+            "shapes": self.shapes,
+            "target_lines": self.target_lines,
+            "lines": self.lines,
+            "files": self.files,
+            "stub_lines": self.stub_lines,
+            "counts": dict(sorted(Counter(f"{c.shape}/{c.expected}" for c in self.cases).items())),
+            "filler": self.next_id["filler"],
+            "cases": [asdict(c) for c in self.cases],
+        }
+        path = self.out / MANIFEST
+        path.write_text(json.dumps(manifest, indent=1) + "\n", encoding="utf-8")
+        return path, manifest
+
+
+# -- Scoring
+
+def same_file(reported, expected):
+    """Findings carry absolute paths (or paths relative to the source root); the manifest's are relative"""
+    return reported.replace("\\", "/").endswith(expected)
+
+
+def score(manifest, findings):
+    """Per shape and expected outcome: cases, cases reported at their sink line, and findings matching no case"""
+    by_line: Dict[int, List[dict]] = {}
+    for case in manifest["cases"]:
+        if case["sink"]:
+            by_line.setdefault(case["sink"]["line"], []).append(case)
+    hit = set()
+    unmatched = 0
+    for finding in findings:
+        if finding.sink is None:
+            unmatched += 1
+            continue
+        matches = [c for c in by_line.get(finding.sink.start_line, ())
+                   if same_file(finding.sink.file, c["sink"]["file"])]
+        hit.update(c["id"] for c in matches)
+        unmatched += not matches
+    table = {}
+    for case in manifest["cases"]:
+        row = table.setdefault(f"{case['shape']}/{case['expected']}", {"cases": 0, "reported": 0})
+        row["cases"] += 1
+        row["reported"] += case["id"] in hit
+    totals = {e: {"cases": 0, "reported": 0} for e in EXPECTED}
+    for key, row in table.items():
+        for field in ("cases", "reported"):
+            totals[key.split("/")[1]][field] += row[field]
+    flows = totals["flow"]
+    false_positives = totals["sanitized"]["reported"] + totals["noise"]["reported"] + unmatched
+    reported = flows["reported"] + false_positives
+    return {
+        "recall": flows["reported"] / flows["cases"] if flows["cases"] else None,
+        "precision": flows["reported"] / reported if reported else None,
+        "totals": totals,
+        "unmatched_findings": unmatched,
+        "by_shape": dict(sorted(table.items())),
+    }
+
+
+def parse_args(argv):
+    parser = argparse.ArgumentParser(prog="python -m hnprunner.corpus",
+                                     description="Generate synthetic HNP Java corpora and score findings against them")
+    commands = parser.add_subparsers(dest="command", required=True)
+    gen = commands.add_parser("generate", help="write a corpus project and its ground-truth manifest")
+    gen.add_argument("-o", "--out", required=True, help="project directory (recreated if it holds a corpus)")
+    gen.add_argument("--lines", type=int, default=10_000, help="approximate lines of generated code (default: 10000)")
+    gen.add_argument("--mix", default="flow=20,sanitized=10,noise=70",
+                     help="weights of true flows, sanitized flows and noise per case (default: %(default)s)")
+    gen.add_argument("--shape", action="append", choices=SHAPES, help="flow shape to use (repeatable; default: all)")
+    gen.add_argument("--seed", type=int, default=1, help="random seed; the same seed gives the same corpus")
+    gen.add_argument("--package", default="com.example.hnp.corpus", help="root package of the generated code")
+    sc = commands.add_parser("score", help="recall and precision of findings against a corpus manifest")
+    sc.add_argument("manifest", help=f"the corpus's {MANIFEST}")
+    sc.add_argument("findings", nargs="+", help="findings.jsonl files from python -m hnprunner --db java=<corpus db>")
+    sc.add_argument("--json", metavar="PATH", help="also write the score as JSON")
+    return parser.parse_args(argv)
+
+
+def main(argv=None):
+    args = parse_args(sys.argv[1:] if argv is None else argv)
+    if args.command == "generate":
+        try:
+            generator = Generator(args.out, args.lines, parse_mix(args.mix), args.shape or SHAPES, args.seed,
+                                  args.package)
+            path, manifest = generator.generate()
+        except (ValueError, FileExistsError) as e:
+            sys.exit(str(e))
+        print(f"✅ {manifest['lines']} lines in {manifest['files']} files (+{manifest['stub_lines']} stub lines), "
+              f"{len(manifest['cases'])} cases")
+        for key, n in manifest["counts"].items():
+            print(f"   {key:28} {n}")
+        print(f"💾 Manifest saved to: {path}")
+        return 0
+
+    manifest = json.loads(Path(args.manifest).read_text(encoding="utf-8"))
+    findings = (f for path in args.findings for f in ingest.read_findings(path))
+    result = score(manifest, findings)
+    for key, row in result["by_shape"].items():
+        print(f"{key:28} {row['reported']:>7} / {row['cases']:<7} reported")
+    for metric in ("recall", "precision"):
+        value = result[metric]
+        print(f"{metric:10} {'n/a' if value is None else f'{value:.3f}'}")
+    print(f"unmatched findings: {result['unmatched_findings']}")
+    if args.json:
+        Path(args.json).write_text(json.dumps(result, indent=2) + "\n", encoding="utf-8")
+        print(f"💾 Score saved to: {args.json}")
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
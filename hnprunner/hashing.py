@@ -0,0 +1,82 @@
+"""
+Content hashing for incremental runs
+File digests are cached by (size, mtime) in the runner state, so an unchanged multi-gigabyte database
+is re-stat'ed rather than re-read on every run.
+"""
+
+import hashlib
+import os
+import threading
+from pathlib import Path
+
+CHUNK = 1 << 20
+
+# Database entries CodeQL rewrites on every evaluation; they say nothing about the extracted code
+DATABASE_VOLATILE = {"cache", "log", "results", "diagnostic", "working", "temp"}
+PACK_FILES = {".ql", ".qll", ".yml", ".yaml"}
+
+
+class HashCache:
+    """Shared by the runner's pack threads: entries and seen only change under lock, which the owner passes in
+    (the runner's state lock, so saving the state sees a consistent cache); files are read outside it"""
+
+    def __init__(self, entries=None, lock=None):
+        self.entries = dict(entries or {})
+        self.seen = set()
+        self.lock = lock or threading.Lock()
+
+    def file_digest(self, path):
+        key = str(path)
+        stat = path.stat()
+        with self.lock:
+            self.seen.add(key)
+            cached = self.entries.get(key)
+        if cached and cached[0] == stat.st_size and cached[1] == stat.st_mtime_ns:
+            return cached[2]
+        digest = hashlib.sha256()
+        with open(path, "rb") as f:
+            for chunk in iter(lambda: f.read(CHUNK), b""):
+                digest.update(chunk)
+        value = digest.hexdigest()
+        with self.lock:
+            self.entries[key] = [stat.st_size, stat.st_mtime_ns, value]
+        return value
+
+    def file_digests(self, root, include=None, exclude_dirs=()):
+        """{relative posix path: digest} of the files under root, skipping hidden and excluded directories"""
+        root = Path(root)
+        digests = {}
+        for dirpath, dirnames, filenames in os.walk(root):
+            dirnames[:] = [d for d in dirnames if d not in exclude_dirs and not d.startswith(".")]
+            for name in filenames:
+                path = Path(dirpath) / name
+                if include is None or path.suffix in include:
+                    digests[path.relative_to(root).as_posix()] = self.file_digest(path)
+        return digests
+
+    def tree_digest(self, root, include=None, exclude_dirs=()):
+        """Digest over relative paths and file digests, independent of walk order and OS separators"""
+        digest = hashlib.sha256()
+        for relative, value in sorted(self.file_digests(root, include, exclude_dirs).items()):
+            digest.update(relative.encode("utf-8"))
+            digest.update(b"\0")
+            digest.update(value.encode("ascii"))
+            digest.update(b"\n")
+        return digest.hexdigest()
+
+    def pruned(self):
+        """Entries for files that still exist; deleted paths drop out of the state file. Caller holds the lock"""
+        return {k: v for k, v in self.entries.items() if k in self.seen or os.path.exists(k)}
+
+
+def database_digest(cache, database):
+    return cache.tree_digest(database, exclude_dirs=DATABASE_VOLATILE)
+
+
+def query_digest(cache, pack_dir, query, codeql_version):
+    """A query's result depends on its own text, the pack's libraries and lock file, and the CLI version"""
+    digest = hashlib.sha256()
+    digest.update(codeql_version.encode("utf-8"))
+    digest.update(cache.file_digest(query).encode("ascii"))
+    digest.update(cache.tree_digest(pack_dir, include=PACK_FILES, exclude_dirs={".codeql"}).encode("ascii"))
+    return digest.hexdigest()
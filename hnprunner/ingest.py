@@ -0,0 +1,333 @@
+"""
+Streaming ingestion of query results into typed findings
+`codeql bqrs decode --format=json` and SARIF logs are read from a pipe or file one row at a time: the
+scanner walks the JSON structure up to the rows array, then decodes each row on its own, so memory stays
+bounded by one row plus the read buffer no matter how many results a scan produced.
+"""
+
+import json
+import re
+import subprocess
+import tempfile
+from dataclasses import dataclass, asdict
+from pathlib import Path
+from typing import Iterator, Optional
+from urllib.parse import unquote, urlparse
+
+CHUNK = 1 << 16
+
+_WS = re.compile(r"\s*")
+_STRUCTURAL = re.compile(r'["\[\]{}]')
+_STRING_TAIL = re.compile(r'(?:[^"\\]|\\.)*"', re.S)
+_SCALAR = re.compile(r"[^\s,\]}]+")
+
+
+@dataclass(frozen=True)
+class Location:
+    file: str
+    start_line: int = 0
+    start_column: int = 0
+    end_line: int = 0
+    end_column: int = 0
+    label: str = ""
+
+
+@dataclass(frozen=True)
+class Finding:
+    language: str
+    query: str
+    message: str
+    source: Optional[Location]
+    sink: Optional[Location]
+
+    def to_json(self):
+        return json.dumps(asdict(self), ensure_ascii=False)
+
+    @staticmethod
+    def from_json(line):
+        data = json.loads(line)
+        source = Location(**data["source"]) if data.get("source") else None
+        sink = Location(**data["sink"]) if data.get("sink") else None
+        return Finding(data["language"], data["query"], data["message"], source, sink)
+
+
+class JsonArrayStream:
+    """Yields the items of the array(s) at `path` in a JSON text stream; '*' in the path matches any array index"""
+
+    def __init__(self, fp, path, chunk=CHUNK):
+        self.fp = fp
+        self.target = tuple(path)
+        self.chunk = chunk
+        self.buf = ""
+        self.pos = 0
+        self.eof = False
+        self.decoder = json.JSONDecoder()
+
+    def __iter__(self):
+        if self._peek() is not None:
+            yield from self._value(())
+
+    # -- buffer management
+
+    def _fill(self):
+        data = self.fp.read(self.chunk)
+        if not data:
+            self.eof = True
+            return False
+        self.buf = self.buf[self.pos:] + data
+        self.pos = 0
+        return True
+
+    def _peek(self):
+        while True:
+            self.pos = _WS.match(self.buf, self.pos).end()
+            if self.pos < len(self.buf):
+                return self.buf[self.pos]
+            if not self._fill():
+                return None
+
+    def _expect(self, chars):
+        c = self._peek()
+        if c is None or c not in chars:
+            raise ValueError(f"Expected one of {chars!r} in JSON stream, got {c!r}")
+        self.pos += 1
+        return c
+
+    # -- structure walk
+
+    def _matches(self, path):
+        return len(path) == len(self.target) and all(t in ("*", p) for t, p in zip(self.target, path))
+
+    def _on_route(self, path):
+        return len(path) < len(self.target) and all(t in ("*", p) for t, p in zip(self.target, path))
+
+    def _value(self, path):
+        c = self._peek()
+        if c == "[" and self._matches(path):
+            self.pos += 1
+            yield from self._items()
+        elif c == "{" and self._on_route(path):
+            self.pos += 1
+            if self._peek() == "}":
+                self.pos += 1
+                return
+            while True:
+                key = self._string()
+                self._expect(":")
+                yield from self._value(path + (key,))
+                if self._expect(",}") == "}":
+                    return
+        elif c == "[" and self._on_route(path):
+            self.pos += 1
+            if self._peek() == "]":
+                self.pos += 1
+                return
+            while True:
+                yield from self._value(path + ("*",))
+                if self._expect(",]") == "]":
+                    return
+        else:
+            self._skip_value()
+
+    def _items(self):
+        if self._peek() == "]":
+            self.pos += 1
+            return
+        while True:
+            self._peek()
+            while True:
+                try:
+                    item, end = self.decoder.raw_decode(self.buf, self.pos)
+                    # A number cut at the buffer edge ("-15" of "-15.5") decodes short; make sure it is whole
+                    if (self.eof or not isinstance(item, (int, float))
+                            or _SCALAR.match(self.buf, self.pos).end() < len(self.buf)):
+                        break
+                except json.JSONDecodeError:
+                    if self.eof:
+                        raise
+                if not self._fill():
+                    continue
+            self.pos = end
+            yield item
+            if self._expect(",]") == "]":
+                return
+
+    def _string(self):
+        self._expect('"')
+        start = self.pos
+        while True:
+            m = _STRING_TAIL.match(self.buf, self.pos)
+            if m and (m.end() < len(self.buf) or self.eof):
+                self.pos = m.end()
+                return json.loads('"' + self.buf[start:m.end()])
+            consumed = start
+            if not self._fill():
+                raise ValueError("Unterminated string in JSON stream")
+            start -= consumed
+            self.pos = start
+
+    def _skip_value(self):
+        """Skip one value without decoding it; strings are skipped whole so brackets inside them are ignored"""
+        c = self._peek()
+        if c is None:
+            raise ValueError("Unexpected end of JSON stream")
+        if c == '"':
+            self._string()
+            return
+        if c not in "[{":
+            while True:
+                m = _SCALAR.match(self.buf, self.pos)
+                if m and (m.end() < len(self.buf) or self.eof):
+                    self.pos = m.end()
+                    return
+                if not self._fill():
+                    self.pos = len(self.buf)
+                    return
+        depth = 0
+        while True:
+            m = _STRUCTURAL.search(self.buf, self.pos)
+            if not m:
+                self.pos = len(self.buf)
+                if not self._fill():
+                    raise ValueError("Unexpected end of JSON stream")
+                continue
+            self.pos = m.start()
+            ch = m.group()
+            if ch == '"':
+                self._string()
+                continue
+            self.pos += 1
+            depth += 1 if ch in "[{" else -1
+            if depth == 0:
+                return
+
+
+# -- BQRS
+
+def _uri_to_path(uri):
+    if not uri:
+        return ""
+    parsed = urlparse(uri)
+    if parsed.scheme in ("file", ""):
+        path = unquote(parsed.path)
+        # file:///C:/x on Windows
+        return path[1:] if len(path) > 2 and path[0] == "/" and path[2] == ":" else path
+    return uri
+
+
+def _entity_location(value):
+    if isinstance(value, dict):
+        url = value.get("url") or {}
+        if isinstance(url, str):
+            url = {"uri": url}
+        return Location(_uri_to_path(url.get("uri", "")), url.get("startLine", 0), url.get("startColumn", 0),
+                        url.get("endLine", 0), url.get("endColumn", 0), value.get("label", ""))
+    if value is None:
+        return None
+    return Location("", label=str(value))
+
+
+def column_roles(columns):
+    """(source, sink, message) column indexes, from select variable names: source/src, sink/snk, first string"""
+    names = [c.get("name", "") for c in columns]
+    kinds = [c.get("kind", "") for c in columns]
+    source = next((i for i, n in enumerate(names) if n in ("source", "src")), None)
+    sinks = [i for i, n in enumerate(names) if n in ("sink", "snk")]
+    sink = sinks[-1] if sinks else (0 if source != 0 and columns else None)
+    message = next((i for i, k in enumerate(kinds) if k in ("s", "String")), None)
+    return source, sink, message
+
+
+def bqrs_columns(codeql, bqrs, result_set="#select"):
+    result = subprocess.run([codeql, "bqrs", "info", "--format=json", str(bqrs)], capture_output=True, text=True)
+    if result.returncode != 0:
+        raise RuntimeError(f"bqrs info failed: {result.stderr.strip()}")
+    for rs in json.loads(result.stdout).get("resultSets", []):
+        if rs.get("name") == result_set:
+            return rs.get("columns", [])
+    raise RuntimeError(f"{bqrs} has no {result_set} result set")
+
+
+def read_bqrs(codeql, bqrs, language, query, result_set="#select") -> Iterator[Finding]:
+    """Typed findings from a BQRS file, decoded as JSON and parsed row by row from the CLI's stdout"""
+    source_col, sink_col, message_col = column_roles(bqrs_columns(codeql, bqrs, result_set))
+    cmd = [codeql, "bqrs", "decode", "--format=json", "--entities=url,string",
+           f"--result-set={result_set}", str(bqrs)]
+    with tempfile.TemporaryFile() as stderr:
+        proc = subprocess.Popen(cmd, stdout=subprocess.PIPE, stderr=stderr, encoding="utf-8")
+        completed = False
+        try:
+            for row in JsonArrayStream(proc.stdout, (result_set, "tuples")):
+                yield Finding(
+                    language, query,
+                    row[message_col] if message_col is not None else "",
+                    _entity_location(row[source_col]) if source_col is not None else None,
+                    _entity_location(row[sink_col]) if sink_col is not None else None)
+            completed = True
+        except ValueError:
+            # A decode that dies mid-stream leaves truncated JSON behind: report the CLI's error, not the parse error
+            proc.stdout.close()
+            if proc.wait() == 0:
+                raise
+        finally:
+            proc.stdout.close()
+            if not completed:
+                proc.kill()
+            returncode = proc.wait()
+        if returncode != 0:
+            stderr.seek(0)
+            raise RuntimeError(f"bqrs decode failed: {stderr.read().decode('utf-8', 'replace').strip()}")
+
+
+# -- SARIF
+
+def _sarif_location(loc):
+    physical = (loc or {}).get("physicalLocation") or {}
+    region = physical.get("region") or {}
+    uri = (physical.get("artifactLocation") or {}).get("uri", "")
+    if not uri:
+        return None
+    return Location(_uri_to_path(uri), region.get("startLine", 0), region.get("startColumn", 0),
+                    region.get("endLine", region.get("startLine", 0)), region.get("endColumn", 0),
+                    ((loc or {}).get("message") or {}).get("text", ""))
+
+
+def sarif_finding(result, language=""):
+    primary = _sarif_location((result.get("locations") or [None])[0])
+    source = sink = None
+    for flow in result.get("codeFlows") or []:
+        steps = ((flow.get("threadFlows") or [{}])[0]).get("locations") or []
+        if steps:
+            source = _sarif_location(steps[0].get("location"))
+            sink = _sarif_location(steps[-1].get("location"))
+            break
+    return Finding(language, result.get("ruleId", ""), (result.get("message") or {}).get("text", ""),
+                   source, sink or primary)
+
+
+def read_sarif(fp, language="") -> Iterator[Finding]:
+    """Typed findings from every run of a SARIF log, one result object in memory at a time"""
+    for result in JsonArrayStream(fp, ("runs", "*", "results")):
+        yield sarif_finding(result, language)
+
+
+def write_findings(findings, path):
+    """Write findings as JSON lines; returns the count"""
+    path = Path(path)
+    path.parent.mkdir(parents=True, exist_ok=True)
+    partial = path.with_suffix(path.suffix + ".partial")
+    count = 0
+    with open(partial, "w", encoding="utf-8") as out:
+        for finding in findings:
+            out.write(finding.to_json())
+            out.write("\n")
+            count += 1
+    partial.replace(path)
+    return count
+
+
+def read_findings(path) -> Iterator[Finding]:
+    with open(path, encoding="utf-8") as f:
+        for line in f:
+            if line.strip():
+                yield Finding.from_json(line)
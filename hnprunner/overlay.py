@@ -0,0 +1,184 @@
+"""
+Overlay databases: re-extract only the source files that changed since a cached base database
+The base is created once per language with `--overlay-base`, its queries are evaluated to fill the evaluation
+cache, and the cache is trimmed to what overlays can reuse (`cleanup --cache-cleanup=overlay`). Each later run
+diffs the source root against the base's file digests, copies the base and extracts just the changed files into
+it (`--overlay-changes`); evaluating the overlay reads every predicate the change does not touch back from the
+base's cache. An overlay is kept for as long as the change set is the same, so repeated runs on one pull request
+reuse it. Java is extracted the way the pack's regular database was (autobuild unless it was built without one),
+so overlay results match a full analysis. The base is rebuilt when the CLI version or build mode changes, when too
+much of the tree changed for an overlay to pay off, or when an overlay cannot be built.
+"""
+
+import hashlib
+import json
+import shutil
+import subprocess
+import time
+from dataclasses import replace
+from pathlib import Path
+
+BASE_FILE = "base.json"
+OVERLAY_FILE = "overlay.json"
+BASE_VERSION = 2
+
+# Languages whose extraction depends on --build-mode, and the mode used when there is no regular database to copy
+BUILD_MODE_DEFAULTS = {"java": "autobuild"}
+# Files each extractor reads, including the build files autobuild runs; anything else under the source root is
+# not a change
+SOURCE_SUFFIXES = {
+    "java": {".java", ".kt", ".kts", ".xml", ".properties"},
+    "javascript": {".js", ".jsx", ".mjs", ".cjs", ".ts", ".tsx", ".mts", ".cts", ".vue", ".html", ".htm",
+                   ".json", ".yml", ".yaml"},
+    "python": {".py", ".pyi"},
+    "ruby": {".rb", ".erb", ".rake", ".gemspec"},
+}
+# Build output and dependency directories, never part of the analyzed sources
+SKIPPED_DIRS = {"target", "build", "out", "node_modules", "__pycache__", "venv"}
+
+
+class OverlayManager:
+    def __init__(self, codeql, out_dir, hashes, version, ram, threads, max_changes=0.25, rebuild=False,
+                 build_mode=None, log=print):
+        self.codeql = codeql
+        self.out_dir = Path(out_dir) / "overlay"
+        self.hashes = hashes
+        self.version = version
+        self.ram = ram
+        self.threads = threads
+        self.max_changes = max_changes
+        self.rebuild = rebuild
+        self.build_mode = build_mode
+        self.log = log
+
+    def prepare(self, packs):
+        """The packs, each pointed at its base or at an overlay for its changed files"""
+        prepared = []
+        for pack in packs:
+            if pack.language not in SOURCE_SUFFIXES or not pack.source_root.is_dir() or not pack.queries:
+                prepared.append(pack)
+                continue
+            try:
+                database, key = self.database_for(pack)
+                prepared.append(replace(pack, database=database, database_key=key))
+            except RuntimeError as e:
+                self.log(f"❌ {pack.language}: {e}; analyzing {pack.database or 'nothing'} instead")
+                prepared.append(pack)
+        return prepared
+
+    def database_for(self, pack):
+        """(database, key): an overlay's key covers the base and the changed files, so the runner never has to
+        hash the copied base; a base is hashed as usual"""
+        work = self.out_dir / pack.language
+        base, overlay = work / "base-db", work / "overlay-db"
+        meta = self.load_base(work)
+        files = self.source_files(pack)
+        mode = self.build_mode_for(pack)
+        if self.rebuild or not meta or not (base / "codeql-database.yml").is_file():
+            return self.build_base(pack, work, files, mode, "requested" if self.rebuild else "no base yet")
+        if meta.get("codeql") != self.version:
+            return self.build_base(pack, work, files, mode, f"CLI changed from {meta.get('codeql')}")
+        if meta.get("build_mode") != mode:
+            return self.build_base(pack, work, files, mode, f"build mode changed from {meta.get('build_mode')}")
+
+        old = meta["files"]
+        changes = sorted(p for p in set(old) | set(files) if old.get(p) != files.get(p))
+        if not changes:
+            self.log(f"⏭️  {pack.language}: sources unchanged since the base, analyzing {base}")
+            return base, None
+        if len(changes) > self.max_changes * max(1, len(old)):
+            return self.build_base(pack, work, files, mode, f"{len(changes)} of {len(old)} files changed")
+
+        # The change set (which files, at which digests, over which base) identifies the overlay's content
+        key = hashlib.sha256(json.dumps({"base": meta["created"], "changes": {p: files.get(p) for p in changes}},
+                                        sort_keys=True).encode("utf-8")).hexdigest()
+        if self.load_overlay_key(work) == key and (overlay / "codeql-database.yml").is_file():
+            self.log(f"⏭️  {pack.language}: same {len(changes)} changed file(s) as last run, reusing {overlay}")
+            return overlay, "overlay:" + key
+
+        self.log(f"🔍 {pack.language}: building an overlay for {len(changes)} changed file(s)")
+        started = time.monotonic()
+        (work / OVERLAY_FILE).unlink(missing_ok=True)
+        shutil.rmtree(overlay, ignore_errors=True)
+        shutil.copytree(base, overlay)
+        changes_file = work / "changes.json"
+        changes_file.write_text(json.dumps({"changes": changes}, indent=1), encoding="utf-8")
+        try:
+            self.create(pack, overlay, mode, f"--overlay-changes={changes_file}")
+        except RuntimeError as e:
+            shutil.rmtree(overlay, ignore_errors=True)
+            return self.build_base(pack, work, files, mode, f"overlay failed ({e})")
+        (work / OVERLAY_FILE).write_text(json.dumps({"key": key}), encoding="utf-8")
+        self.log(f"✅ {pack.language}: overlay built in {time.monotonic() - started:.1f}s")
+        return overlay, "overlay:" + key
+
+    def build_base(self, pack, work, files, mode, reason):
+        """Extract the whole source root, evaluate the pack once to fill the cache, keep what overlays reuse"""
+        base = work / "base-db"
+        self.log(f"⚙️  {pack.language}: building the overlay base ({reason})")
+        started = time.monotonic()
+        work.mkdir(parents=True, exist_ok=True)
+        (work / BASE_FILE).unlink(missing_ok=True)
+        (work / OVERLAY_FILE).unlink(missing_ok=True)
+        shutil.rmtree(work / "overlay-db", ignore_errors=True)
+        self.create(pack, base, mode, "--overlay-base", "--overwrite")
+        self.call([self.codeql, "database", "run-queries", f"--threads={self.threads}", f"--ram={self.ram}",
+                   str(base)] + [str(q) for q in pack.queries], cwd=pack.pack_dir, what="warming the base cache")
+        self.call([self.codeql, "database", "cleanup", "--cache-cleanup=overlay", str(base)],
+                  what="trimming the base cache")
+        meta = {"version": BASE_VERSION, "codeql": self.version, "build_mode": mode, "created": time.time(),
+                "files": files}
+        tmp = work / (BASE_FILE + ".tmp")
+        tmp.write_text(json.dumps(meta, indent=1, sort_keys=True), encoding="utf-8")
+        tmp.replace(work / BASE_FILE)
+        self.log(f"✅ {pack.language}: base of {len(files)} file(s) built in {time.monotonic() - started:.1f}s")
+        return base, None
+
+    def create(self, pack, database, mode, *extra):
+        cmd = [self.codeql, "database", "create", str(database),
+               f"--language={pack.language}",
+               f"--source-root={pack.source_root}",
+               f"--threads={self.threads}",
+               f"--ram={self.ram}"]
+        if mode:
+            cmd.append(f"--build-mode={mode}")
+        # autobuild runs the project's build from the source root
+        self.call(cmd + list(extra), cwd=pack.source_root if mode == "autobuild" else None, what="database create")
+
+    def build_mode_for(self, pack):
+        """--overlay-build-mode, else how the pack's regular database was extracted, so overlay and full results
+        agree; None for languages that have no build step"""
+        if pack.language not in BUILD_MODE_DEFAULTS:
+            return None
+        if self.build_mode:
+            return self.build_mode
+        database = pack.database
+        if database:
+            traced = (database / "log" / "build-tracer.log").is_file() or \
+                (database / "diagnostic" / "extractors" / pack.language / "autobuilder.jsonl").is_file()
+            return "autobuild" if traced else "none"
+        return BUILD_MODE_DEFAULTS[pack.language]
+
+    def call(self, cmd, cwd=None, what=""):
+        result = subprocess.run(cmd, capture_output=True, text=True, cwd=cwd)
+        if result.returncode != 0:
+            message = (result.stderr or result.stdout).strip().splitlines()
+            raise RuntimeError(f"{what} failed: {message[-1] if message else f'exit {result.returncode}'}")
+
+    def source_files(self, pack):
+        return self.hashes.file_digests(pack.source_root, SOURCE_SUFFIXES[pack.language], SKIPPED_DIRS)
+
+    @staticmethod
+    def load_overlay_key(work):
+        try:
+            return json.loads((work / OVERLAY_FILE).read_text(encoding="utf-8")).get("key")
+        except (OSError, ValueError):
+            return None
+
+    @staticmethod
+    def load_base(work):
+        try:
+            meta = json.loads((work / BASE_FILE).read_text(encoding="utf-8"))
+        except (OSError, ValueError):
+            return None
+        return meta if meta.get("version") == BASE_VERSION else None
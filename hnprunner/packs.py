@@ -0,0 +1,60 @@
+"""
+Language packs and the databases they run against
+"""
+
+from dataclasses import dataclass, field
+from pathlib import Path
+from typing import Dict, List, Optional
+
+REPO_ROOT = Path(__file__).resolve().parent.parent
+
+# pack directory, default database locations (first existing one wins), source corpus
+LANGUAGES = {
+    "java": ("javaqueries", ["java-db/javaexample-db", "java-db"], "data/javaexample"),
+    "javascript": ("jsqueries", ["js-db/jsexample-db", "js-db"], "data/jsexample"),
+    "python": ("pyqueries", ["py-db/pyexample-db", "py-db"], "data/pyexample"),
+    "ruby": ("rubyqueries", ["ruby-db/rubyexample-db", "ruby-db"], "data/rubyexample"),
+}
+
+
+@dataclass
+class Pack:
+    language: str
+    pack_dir: Path
+    database: Optional[Path]
+    source_root: Path
+    queries: List[Path] = field(default_factory=list)
+    # Stands in for the database's content hash when it is known without reading the database (overlays)
+    database_key: Optional[str] = None
+
+    @property
+    def name(self):
+        return self.pack_dir.name
+
+
+def is_database(path):
+    return (path / "codeql-database.yml").is_file()
+
+
+def find_queries(pack_dir):
+    """Top-level .ql files of a pack; library files (.qll) only feed the query hash"""
+    return sorted(p for p in pack_dir.glob("*.ql") if p.is_file())
+
+
+def discover(languages=None, databases: Dict[str, str] = None, root=REPO_ROOT):
+    """Build the pack list, honouring --db language=path overrides"""
+    databases = databases or {}
+    packs = []
+    for language, (pack, candidates, source) in LANGUAGES.items():
+        if languages and language not in languages:
+            continue
+        pack_dir = root / pack
+        if not pack_dir.is_dir():
+            continue
+        if language in databases:
+            database = Path(databases[language]).resolve()
+            database = database if is_database(database) else None
+        else:
+            database = next((root / c for c in candidates if is_database(root / c)), None)
+        packs.append(Pack(language, pack_dir, database, root / source, find_queries(pack_dir)))
+    return packs
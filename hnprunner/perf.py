@@ -0,0 +1,366 @@
+"""
+Query-evaluation performance regression suite: python -m hnprunner.perf [options]
+Every query of a pack is evaluated with an evaluator log and tuple counting, one query at a time with the whole
+host's --ram and --threads. The database's evaluation cache is cleared before each pack (or before each query),
+so the first query pays for the shared HnpDataFlow predicates the way a nightly scan does. Wall time, the peak
+RSS of the CLI process tree, the tuples computed and the ten most expensive predicates (from
+`codeql generate log-summary`) go into a JSON report, which is compared against the committed baseline.
+"""
+
+import argparse
+import json
+import os
+import platform
+import statistics
+import subprocess
+import sys
+import time
+from dataclasses import dataclass, field, asdict, fields
+from pathlib import Path
+from typing import Dict, List, Optional
+
+from . import packs as packs_module
+from .runner import find_codeql, codeql_version, plan_resources, total_memory_mb
+
+REPORT_VERSION = 1
+BASELINE_FILE = Path(__file__).with_name("perf-baseline.json")
+TOP_PREDICATES = 10
+# Strategies of log-summary events that read results instead of computing them
+NOT_COMPUTED = {"CACHE_HIT", "CACHACA", "SENTINEL_EMPTY", "EXTENSIONAL"}
+
+
+@dataclass
+class Thresholds:
+    """Allowed growth over the baseline as a fraction (0.25 = +25%), and floors below which changes are noise"""
+    seconds: float = 0.25
+    peak_ram: float = 0.25
+    tuples: float = 0.10
+    min_seconds: float = 2.0
+    min_ram_mb: int = 256
+
+    @staticmethod
+    def from_json(data):
+        known = {f.name for f in fields(Thresholds)}
+        return Thresholds(**{k: v for k, v in (data or {}).items() if k in known})
+
+
+@dataclass
+class Predicate:
+    name: str
+    millis: int
+    tuples: int
+    strategy: str
+
+
+@dataclass
+class QueryProfile:
+    status: str  # ran | failed
+    seconds: float = 0.0
+    peak_ram_mb: Optional[int] = None
+    evaluation_ms: int = 0
+    tuples: int = 0
+    top_predicates: List[Predicate] = field(default_factory=list)
+    runs: int = 0
+    message: str = ""
+
+    @staticmethod
+    def from_json(data):
+        data = dict(data)
+        data["top_predicates"] = [Predicate(**p) for p in data.get("top_predicates", [])]
+        return QueryProfile(**data)
+
+
+@dataclass
+class Regression:
+    query: str
+    metric: str
+    baseline: float
+    current: float
+
+    def __str__(self):
+        if self.metric == "status":
+            return f"{self.query}: failed (ran in the baseline)"
+        growth = (self.current / self.baseline - 1) * 100 if self.baseline else float("inf")
+        return f"{self.query}: {self.metric} {self.baseline:g} -> {self.current:g} (+{growth:.0f}%)"
+
+
+def iter_json_objects(text):
+    """The JSON values of a log summary: concatenated objects separated by whitespace, not one array"""
+    decoder = json.JSONDecoder()
+    pos, end = 0, len(text)
+    while True:
+        while pos < end and text[pos].isspace():
+            pos += 1
+        if pos >= end:
+            return
+        value, pos = decoder.raw_decode(text, pos)
+        yield value
+
+
+def summarize_predicates(events):
+    """Per-predicate evaluation time and tuple count, computed predicates only; (total ms, total tuples, top)"""
+    by_name: Dict[str, Predicate] = {}
+    for event in events:
+        name = event.get("predicateName")
+        if not name or "millis" not in event:
+            continue
+        strategy = event.get("evaluationStrategy", "")
+        if strategy in NOT_COMPUTED:
+            continue
+        millis = int(event.get("millis") or 0)
+        tuples = int(event.get("resultSize") or 0)
+        seen = by_name.get(name)
+        if seen is None:
+            by_name[name] = Predicate(name, millis, tuples, strategy)
+        else:
+            # Recursive predicates log one event per iteration of their layer
+            seen.millis += millis
+            seen.tuples = max(seen.tuples, tuples)
+    ranked = sorted(by_name.values(), key=lambda p: (-p.millis, -p.tuples, p.name))
+    return (sum(p.millis for p in by_name.values()), sum(p.tuples for p in by_name.values()),
+            ranked[:TOP_PREDICATES])
+
+
+def run_measured(cmd, cwd, stdout, stderr):
+    """Exit code and peak RSS in MB of cmd and the processes it waited for; the RSS is None where
+    wait4 is unavailable (Windows)"""
+    with open(stdout, "wb") as out, open(stderr, "wb") as err:
+        proc = subprocess.Popen(cmd, cwd=cwd, stdout=out, stderr=err)
+        if not hasattr(os, "wait4"):
+            return proc.wait(), None
+        _, status, usage = os.wait4(proc.pid, 0)
+        proc.returncode = os.waitstatus_to_exitcode(status)
+    # ru_maxrss is in kilobytes on Linux and in bytes on macOS
+    scale = 1024 * 1024 if sys.platform == "darwin" else 1024
+    return proc.returncode, usage.ru_maxrss // scale
+
+
+class PerfSuite:
+    def __init__(self, codeql, out_dir, ram=None, threads=None, cache="pack", repeat=1, log=print):
+        self.codeql = codeql
+        self.out_dir = Path(out_dir)
+        _, self.ram, self.threads = plan_resources(1, 1, ram, threads)
+        self.cache = cache
+        self.repeat = max(1, repeat)
+        self.log = log
+        self.version = codeql_version(codeql)
+
+    def run(self, packs):
+        queries = {}
+        for pack in packs:
+            if not pack.database:
+                self.log(f"⏭️  {pack.language}: no database for {pack.name}")
+                continue
+            self.log(f"⚙️  {pack.language}: {len(pack.queries)} query(ies), {self.ram} MB and "
+                     f"{self.threads} thread(s), cache cleared per {self.cache}, {self.repeat} run(s)")
+            runs = {query: [] for query in pack.queries}
+            # Each repeat replays the whole pack, so queries after the first always see the same warm cache
+            for _ in range(self.repeat):
+                for i, query in enumerate(pack.queries):
+                    if runs[query] and runs[query][-1].status != "ran":
+                        continue
+                    if self.cache == "query" or (self.cache == "pack" and i == 0):
+                        self.clear_cache(pack)
+                    runs[query].append(self.evaluate(pack, query, f"{pack.language}/{query.name}"))
+            for query, profiles in runs.items():
+                name = f"{pack.language}/{query.name}"
+                queries[name] = self.merge(name, profiles)
+        return {
+            "version": REPORT_VERSION,
+            "codeql": self.version,
+            "created": time.strftime("%Y-%m-%dT%H:%M:%SZ", time.gmtime()),
+            "host": {"platform": platform.platform(), "cpus": os.cpu_count(), "memory_mb": total_memory_mb()},
+            "settings": {"ram": self.ram, "threads": self.threads, "cache": self.cache, "repeat": self.repeat},
+            "queries": {name: asdict(profile) for name, profile in queries.items()},
+        }
+
+    def merge(self, name, runs) -> QueryProfile:
+        """Median wall time and peak RSS over the repeats; tuple counts are deterministic"""
+        profile = runs[-1]
+        if profile.status != "ran":
+            return profile
+        profile.seconds = round(statistics.median(r.seconds for r in runs), 2)
+        if all(r.peak_ram_mb is not None for r in runs):
+            profile.peak_ram_mb = int(statistics.median(r.peak_ram_mb for r in runs))
+        profile.runs = len(runs)
+        self.log(f"✅ {name}: {profile.seconds:.1f}s, {profile.peak_ram_mb or '?'} MB peak, {profile.tuples} tuples")
+        return profile
+
+    def clear_cache(self, pack):
+        result = subprocess.run([self.codeql, "database", "cleanup", "--cache-cleanup=clear", str(pack.database)],
+                                capture_output=True, text=True)
+        if result.returncode != 0:
+            raise RuntimeError(f"clearing the cache of {pack.database} failed: {result.stderr.strip()}")
+
+    def evaluate(self, pack, query, name) -> QueryProfile:
+        base = self.out_dir / pack.language / query.stem
+        base.parent.mkdir(parents=True, exist_ok=True)
+        evaluator_log = base.with_suffix(".evaluator-log.json")
+        summary = base.with_suffix(".evaluator-summary.json")
+        cmd = [self.codeql, "query", "run",
+               "--database", str(pack.database),
+               "--output", str(base.with_suffix(".bqrs")),
+               f"--threads={self.threads}",
+               f"--ram={self.ram}",
+               f"--evaluator-log={evaluator_log}",
+               "--tuple-counting",
+               str(query)]
+        self.log(f"🔍 {name}: evaluating")
+        started = time.monotonic()
+        code, peak = run_measured(cmd, pack.pack_dir, base.with_suffix(".stdout.log"),
+                                  base.with_suffix(".stderr.log"))
+        seconds = time.monotonic() - started
+        if code != 0:
+            lines = base.with_suffix(".stderr.log").read_text(encoding="utf-8", errors="replace").strip().splitlines()
+            self.log(f"❌ {name}: failed after {seconds:.1f}s")
+            return QueryProfile("failed", round(seconds, 2), peak, message=lines[-1] if lines else f"exit {code}")
+        result = subprocess.run([self.codeql, "generate", "log-summary", "--format=predicates", "--minify-output",
+                                 str(evaluator_log), str(summary)], capture_output=True, text=True)
+        if result.returncode != 0:
+            message = f"log summary failed: {result.stderr.strip()}"
+            self.log(f"❌ {name}: {message}")
+            return QueryProfile("failed", round(seconds, 2), peak, message=message)
+        millis, tuples, top = summarize_predicates(iter_json_objects(summary.read_text(encoding="utf-8")))
+        return QueryProfile("ran", seconds, peak, millis, tuples, top)
+
+
+def compare(report, baseline, thresholds: Thresholds):
+    """Regressions of report against baseline, and notes that do not fail the check (new queries, moved
+    predicates, a different CLI or host)"""
+    regressions: List[Regression] = []
+    notes: List[str] = []
+    for key in ("codeql", "settings"):
+        if baseline.get(key) and baseline.get(key) != report.get(key):
+            notes.append(f"{key} differs from the baseline: {baseline.get(key)} -> {report.get(key)}")
+    old_queries = baseline.get("queries", {})
+    for name, data in sorted(report.get("queries", {}).items()):
+        current = QueryProfile.from_json(data)
+        if name not in old_queries:
+            notes.append(f"{name}: not in the baseline")
+            continue
+        old = QueryProfile.from_json(old_queries[name])
+        if current.status != "ran":
+            if old.status == "ran":
+                regressions.append(Regression(name, "status", 0, 0))
+            continue
+        if old.status != "ran":
+            continue
+        if (current.seconds > old.seconds * (1 + thresholds.seconds)
+                and current.seconds - old.seconds >= thresholds.min_seconds):
+            regressions.append(Regression(name, "seconds", old.seconds, current.seconds))
+        if (current.peak_ram_mb is not None and old.peak_ram_mb is not None
+                and current.peak_ram_mb > old.peak_ram_mb * (1 + thresholds.peak_ram)
+                and current.peak_ram_mb - old.peak_ram_mb >= thresholds.min_ram_mb):
+            regressions.append(Regression(name, "peak_ram_mb", old.peak_ram_mb, current.peak_ram_mb))
+        if current.tuples > old.tuples * (1 + thresholds.tuples):
+            regressions.append(Regression(name, "tuples", old.tuples, current.tuples))
+        old_top = {p.name: p for p in old.top_predicates}
+        for predicate in current.top_predicates:
+            before = old_top.get(predicate.name)
+            if before is None:
+                notes.append(f"{name}: {predicate.name} entered the top {TOP_PREDICATES} ({predicate.millis} ms)")
+            elif (predicate.millis > before.millis * (1 + thresholds.seconds)
+                  and predicate.millis - before.millis >= thresholds.min_seconds * 1000):
+                notes.append(f"{name}: {predicate.name} {before.millis} -> {predicate.millis} ms")
+    for name in sorted(set(old_queries) - set(report.get("queries", {}))):
+        notes.append(f"{name}: in the baseline but not run")
+    return regressions, notes
+
+
+def load_json(path):
+    path = Path(path)
+    return json.loads(path.read_text(encoding="utf-8")) if path.is_file() else {}
+
+
+def write_json(path, data):
+    path = Path(path)
+    path.parent.mkdir(parents=True, exist_ok=True)
+    tmp = path.with_suffix(".tmp")
+    tmp.write_text(json.dumps(data, indent=2, sort_keys=True) + "\n", encoding="utf-8")
+    os.replace(tmp, path)
+
+
+def parse_args(argv):
+    parser = argparse.ArgumentParser(prog="python -m hnprunner.perf",
+                                     description="Profile the HNP CodeQL packs and check for evaluation regressions")
+    parser.add_argument("-l", "--language", action="append", choices=sorted(packs_module.LANGUAGES),
+                        help="language to profile (repeatable; default: all)")
+    parser.add_argument("--db", action="append", default=[], metavar="LANGUAGE=PATH",
+                        help="database for a language, overriding the default location")
+    parser.add_argument("--ram", type=int, metavar="MB", help="--ram for each evaluation (default: 80%% of memory)")
+    parser.add_argument("--threads", type=int, help="--threads for each evaluation (default: CPUs)")
+    parser.add_argument("--cache", choices=["pack", "query", "keep"], default="pack",
+                        help="clear the database's evaluation cache before each pack (default), each query, or never")
+    parser.add_argument("--repeat", type=int, default=1, help="evaluations per query; the median is reported")
+    parser.add_argument("-o", "--out", default=str(packs_module.REPO_ROOT / "hnp-results" / "perf"),
+                        help="directory for evaluator logs, summaries and report.json")
+    parser.add_argument("--baseline", default=str(BASELINE_FILE), help="baseline report to compare against")
+    parser.add_argument("--check", metavar="REPORT", help="compare an existing report instead of running the packs")
+    parser.add_argument("--update-baseline", action="store_true",
+                        help="write the new report to --baseline, keeping its thresholds")
+    parser.add_argument("--codeql", help="path to the CodeQL CLI (default: $CODEQL or codeql on PATH)")
+    defaults = Thresholds()
+    parser.add_argument("--max-seconds", dest="seconds", type=float, metavar="FRACTION",
+                        help=f"allowed wall time growth (default: baseline or {defaults.seconds})")
+    parser.add_argument("--max-peak-ram", dest="peak_ram", type=float, metavar="FRACTION",
+                        help=f"allowed peak RSS growth (default: baseline or {defaults.peak_ram})")
+    parser.add_argument("--max-tuples", dest="tuples", type=float, metavar="FRACTION",
+                        help=f"allowed growth of tuples computed (default: baseline or {defaults.tuples})")
+    parser.add_argument("--min-seconds", type=float, metavar="SECONDS",
+                        help=f"ignore wall time changes smaller than this (default: baseline or {defaults.min_seconds})")
+    parser.add_argument("--min-ram-mb", type=int, metavar="MB",
+                        help=f"ignore peak RSS changes smaller than this (default: baseline or {defaults.min_ram_mb})")
+    return parser.parse_args(argv)
+
+
+def main(argv=None):
+    args = parse_args(sys.argv[1:] if argv is None else argv)
+    baseline = load_json(args.baseline)
+    thresholds = Thresholds.from_json(baseline.get("thresholds"))
+    for f in fields(Thresholds):
+        if getattr(args, f.name) is not None:
+            setattr(thresholds, f.name, getattr(args, f.name))
+
+    if args.check:
+        report = load_json(args.check)
+        if not report:
+            sys.exit(f"no report at {args.check}")
+    else:
+        databases = {}
+        for spec in args.db:
+            language, sep, path = spec.partition("=")
+            if not sep:
+                sys.exit(f"--db expects LANGUAGE=PATH, got {spec!r}")
+            databases[language] = path
+        suite = PerfSuite(find_codeql(args.codeql), args.out, args.ram, args.threads, args.cache, args.repeat)
+        report = suite.run(packs_module.discover(args.language, databases))
+        report["thresholds"] = asdict(thresholds)
+        write_json(Path(args.out) / "report.json", report)
+
+    regressions, notes = compare(report, baseline, thresholds)
+
+    print("\n" + "=" * 80)
+    for name, data in sorted(report.get("queries", {}).items()):
+        profile = QueryProfile.from_json(data)
+        ram = "?" if profile.peak_ram_mb is None else profile.peak_ram_mb
+        print(f"{profile.status:7} {name:48} {profile.seconds:8.1f}s {ram:>7} MB {profile.tuples:>12} tuples "
+              f"{profile.message}")
+        for predicate in profile.top_predicates:
+            print(f"{'':9}{predicate.millis:>9} ms {predicate.tuples:>12}  {predicate.name}")
+    for note in notes:
+        print(f"ℹ️  {note}")
+    for regression in regressions:
+        print(f"❌ {regression}")
+    if not args.check:
+        print(f"💾 Report saved to: {Path(args.out) / 'report.json'}")
+    if args.update_baseline:
+        report["thresholds"] = asdict(thresholds)
+        write_json(args.baseline, report)
+        print(f"💾 Baseline updated: {args.baseline}")
+        return 0
+    failed = any(QueryProfile.from_json(d).status != "ran" for d in report.get("queries", {}).values())
+    return 1 if regressions or failed else 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
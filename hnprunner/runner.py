@@ -0,0 +1,228 @@
+"""
+Parallel, incremental execution of the HNP query packs
+Each language database is one unit of work: its changed queries run one after another on a single
+worker (CodeQL serializes evaluations on a database anyway), while different languages run side by side.
+Every worker gets its own --ram and --threads budget so parallel evaluators do not oversubscribe the host.
+"""
+
+import json
+import os
+import shutil
+import subprocess
+import threading
+import time
+from concurrent.futures import ThreadPoolExecutor
+from dataclasses import dataclass, asdict
+from pathlib import Path
+from typing import List, Optional
+
+from . import hashing, ingest
+
+STATE_FILE = "state.json"
+STATE_VERSION = 1
+
+
+@dataclass
+class QueryResult:
+    language: str
+    query: str
+    status: str  # ran | skipped | failed | no-database | no-queries
+    bqrs: Optional[str] = None
+    seconds: float = 0.0
+    message: str = ""
+    findings: Optional[str] = None
+    finding_count: Optional[int] = None
+
+
+def find_codeql(explicit=None):
+    """--codeql, then $CODEQL, then codeql / codeql.exe on PATH"""
+    candidate = explicit or os.environ.get("CODEQL") or shutil.which("codeql")
+    if not candidate:
+        raise FileNotFoundError("CodeQL CLI not found; pass --codeql or set CODEQL")
+    return str(candidate)
+
+
+def codeql_version(codeql):
+    result = subprocess.run([codeql, "version", "--format=terse"], capture_output=True, text=True)
+    if result.returncode != 0:
+        raise RuntimeError(f"codeql version failed: {result.stderr.strip()}")
+    return result.stdout.strip()
+
+
+def total_memory_mb():
+    try:
+        return os.sysconf("SC_PAGE_SIZE") * os.sysconf("SC_PHYS_PAGES") // (1024 * 1024)
+    except (AttributeError, ValueError, OSError):
+        pass
+    if os.name == "nt":
+        import ctypes
+
+        class MemoryStatus(ctypes.Structure):
+            _fields_ = [("dwLength", ctypes.c_ulong), ("dwMemoryLoad", ctypes.c_ulong),
+                        ("ullTotalPhys", ctypes.c_ulonglong), ("ullAvailPhys", ctypes.c_ulonglong),
+                        ("ullTotalPageFile", ctypes.c_ulonglong), ("ullAvailPageFile", ctypes.c_ulonglong),
+                        ("ullTotalVirtual", ctypes.c_ulonglong), ("ullAvailVirtual", ctypes.c_ulonglong),
+                        ("ullAvailExtendedVirtual", ctypes.c_ulonglong)]
+
+        status = MemoryStatus()
+        status.dwLength = ctypes.sizeof(MemoryStatus)
+        if ctypes.windll.kernel32.GlobalMemoryStatusEx(ctypes.byref(status)):
+            return status.ullTotalPhys // (1024 * 1024)
+    return None
+
+
+def plan_resources(units, workers=None, ram_per_worker=None, threads_per_worker=None):
+    """Worker count, MB of RAM and evaluator threads per worker; 80% of physical memory is shared out"""
+    cpus = os.cpu_count() or 1
+    memory = total_memory_mb()
+    budget = int(memory * 0.8) if memory else None
+    if workers is None:
+        workers = max(1, min(units, cpus))
+        if ram_per_worker and budget:
+            workers = max(1, min(workers, budget // ram_per_worker))
+    if ram_per_worker is None:
+        ram_per_worker = max(1024, budget // workers) if budget else 2048
+    if threads_per_worker is None:
+        threads_per_worker = max(1, cpus // workers)
+    return workers, ram_per_worker, threads_per_worker
+
+
+class State:
+    """Hash cache and per-query result keys from the last run, saved atomically"""
+
+    def __init__(self, path):
+        self.path = Path(path)
+        self.lock = threading.Lock()
+        data = {}
+        if self.path.is_file():
+            try:
+                data = json.loads(self.path.read_text(encoding="utf-8"))
+            except (OSError, ValueError):
+                data = {}
+        if data.get("version") != STATE_VERSION:
+            data = {}
+        self.hashes = hashing.HashCache(data.get("files"), self.lock)
+        self.results = data.get("results", {})
+
+    def key_for(self, name):
+        with self.lock:
+            entry = self.results.get(name)
+            return entry.get("key") if entry else None
+
+    def record(self, name, key, bqrs):
+        with self.lock:
+            self.results[name] = {"key": key, "bqrs": bqrs, "finished": time.time()}
+            self.save_locked()
+
+    def save(self):
+        with self.lock:
+            self.save_locked()
+
+    def save_locked(self):
+        self.path.parent.mkdir(parents=True, exist_ok=True)
+        tmp = self.path.with_suffix(".tmp")
+        data = {"version": STATE_VERSION, "files": self.hashes.pruned(),
+                "results": self.results}
+        tmp.write_text(json.dumps(data, indent=1, sort_keys=True), encoding="utf-8")
+        os.replace(tmp, self.path)
+
+
+class Runner:
+    def __init__(self, codeql, out_dir, workers=None, ram_per_worker=None, threads_per_worker=None,
+                 force=False, log=print):
+        self.codeql = codeql
+        self.out_dir = Path(out_dir)
+        self.workers = workers
+        self.ram_per_worker = ram_per_worker
+        self.threads_per_worker = threads_per_worker
+        self.force = force
+        self.log = log
+        self.state = State(self.out_dir / STATE_FILE)
+        self.version = codeql_version(codeql)
+
+    def run(self, packs) -> List[QueryResult]:
+        runnable = [p for p in packs if p.database and p.queries]
+        results = [QueryResult(p.language, "-", "no-database", message=f"no database for {p.name}")
+                   for p in packs if not p.database]
+        results += [QueryResult(p.language, "-", "no-queries", message=f"no .ql files in {p.name}")
+                    for p in packs if p.database and not p.queries]
+        if not runnable:
+            return results
+        workers, ram, threads = plan_resources(len(runnable), self.workers, self.ram_per_worker,
+                                               self.threads_per_worker)
+        self.log(f"⚙️  {len(runnable)} database(s), {workers} worker(s), {ram} MB and {threads} thread(s) each")
+        with ThreadPoolExecutor(max_workers=workers, thread_name_prefix="hnp-codeql") as pool:
+            futures = [pool.submit(self.run_pack, pack, ram, threads) for pack in runnable]
+            for future in futures:
+                results.extend(future.result())
+        self.state.save()
+        return results
+
+    def run_pack(self, pack, ram, threads) -> List[QueryResult]:
+        results = []
+        started = time.monotonic()
+        if pack.database_key:
+            db_hash = pack.database_key
+        else:
+            db_hash = hashing.database_digest(self.state.hashes, pack.database)
+            self.log(f"🔑 {pack.language}: database hashed in {time.monotonic() - started:.1f}s")
+        for query in pack.queries:
+            name = f"{pack.language}/{query.name}"
+            key = db_hash + ":" + hashing.query_digest(self.state.hashes, pack.pack_dir, query, self.version)
+            bqrs = self.out_dir / pack.language / (query.stem + ".bqrs")
+            if not self.force and bqrs.is_file() and self.state.key_for(name) == key:
+                self.log(f"⏭️  {name}: unchanged, reusing {bqrs}")
+                result = QueryResult(pack.language, query.name, "skipped", str(bqrs))
+            else:
+                result = self.run_query(pack, query, bqrs, name, key, ram, threads)
+            if result.bqrs:
+                self.ingest(result, bqrs)
+            results.append(result)
+        return results
+
+    def ingest(self, result, bqrs):
+        """Decode the BQRS into <query>.findings.jsonl; kept as long as the BQRS it came from is reused"""
+        findings = bqrs.with_suffix(".findings.jsonl")
+        if result.status == "skipped" and findings.is_file():
+            result.findings = str(findings)
+            return
+        try:
+            result.finding_count = ingest.write_findings(
+                ingest.read_bqrs(self.codeql, bqrs, result.language, result.query), findings)
+            result.findings = str(findings)
+        except (RuntimeError, ValueError, OSError) as e:
+            findings.unlink(missing_ok=True)
+            result.status = "failed"
+            result.message = f"result ingestion failed: {e}"
+            self.log(f"❌ {result.language}/{result.query}: {result.message}")
+
+    def run_query(self, pack, query, bqrs, name, key, ram, threads) -> QueryResult:
+        bqrs.parent.mkdir(parents=True, exist_ok=True)
+        partial = bqrs.with_suffix(".bqrs.partial")
+        cmd = [self.codeql, "query", "run",
+               "--database", str(pack.database),
+               "--output", str(partial),
+               f"--threads={threads}",
+               f"--ram={ram}",
+               str(query)]
+        self.log(f"🔍 {name}: running")
+        started = time.monotonic()
+        result = subprocess.run(cmd, capture_output=True, text=True, cwd=pack.pack_dir)
+        seconds = time.monotonic() - started
+        if result.returncode != 0:
+            partial.unlink(missing_ok=True)
+            message = (result.stderr or result.stdout).strip().splitlines()
+            self.log(f"❌ {name}: failed after {seconds:.1f}s")
+            return QueryResult(pack.language, query.name, "failed", None, seconds,
+                               message[-1] if message else f"exit {result.returncode}")
+        os.replace(partial, bqrs)
+        self.state.record(name, key, str(bqrs))
+        self.log(f"✅ {name}: {seconds:.1f}s")
+        return QueryResult(pack.language, query.name, "ran", str(bqrs), seconds)
+
+
+def write_summary(out_dir, results):
+    path = Path(out_dir) / "summary.json"
+    path.parent.mkdir(parents=True, exist_ok=True)
+    path.write_text(json.dumps([asdict(r) for r in results], indent=2), encoding="utf-8")
+    return path
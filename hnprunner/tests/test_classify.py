@@ -0,0 +1,148 @@
+import random
+import re
+import unittest
+
+from hnprunner import classify
+from hnprunner.classify import Classifier, RuleSet
+from hnprunner.ingest import Finding, Location
+
+
+def classify_flow(source, sink):
+    """The if/elif chain pyqueries/run_analysis.py used before the rule table, kept verbatim as the reference"""
+    source_lower = source.lower()
+    sink_lower = sink.lower()
+
+    # Framework detection
+    framework = "Unknown"
+    if 'django' in source_lower or 'django' in sink_lower:
+        framework = "Django"
+    elif 'flask' in source_lower or 'flask' in sink_lower:
+        framework = "Flask"
+    elif 'fastapi' in source_lower or 'fastapi' in sink_lower:
+        framework = "FastAPI"
+    elif 'tornado' in source_lower or 'tornado' in sink_lower:
+        framework = "Tornado"
+    elif 'pyramid' in source_lower or 'pyramid' in sink_lower:
+        framework = "Pyramid"
+
+    # Vulnerability scenario classification (no risk rating)
+    if 'send_mail' in sink_lower or 'email' in sink_lower:
+        return "Password Reset Attack", framework
+    elif 'redirect' in sink_lower:
+        return "Open Redirect", framework
+    elif 'render_template' in sink_lower or 'template' in sink_lower:
+        return "Template Injection", framework
+    elif 'url_for' in sink_lower or 'reverse' in sink_lower:
+        return "URL Generation Attack", framework
+    elif 'attribute' in sink_lower:
+        return "Attribute Manipulation", framework
+    elif 'form' in sink_lower:
+        return "Form Data Manipulation", framework
+    elif 'request' in sink_lower:
+        return "Request Parameter Pollution", framework
+    elif 'dict' in sink_lower:
+        return "Data Structure Pollution", framework
+    elif 'async' in sink_lower or 'await' in sink_lower:
+        return "Async Context Pollution", framework
+    else:
+        return "Unknown HNP Vulnerability", framework
+
+
+def first_match(rules, text):
+    """Rules tested one by one in table order, as rules.json documents them"""
+    text = text.lower()
+    for rule in rules:
+        if any(k.lower() in text for k in rule.get("keywords", [])) \
+                or any(re.search(p, text) for p in rule.get("patterns", [])):
+            return rule["name"]
+    return None
+
+
+OLD_KEYWORDS = ["django", "flask", "fastapi", "tornado", "pyramid", "send_mail", "email", "redirect",
+                "render_template", "template", "url_for", "reverse", "attribute", "form", "request", "dict",
+                "async", "await"]
+# Near misses and label noise; none of these spell a keyword, alone or next to each other
+NOISE = ["djang", "flas", "emai", "redirec", "templat", "url_fo", "revers", "attribut", "for", "reques", "dic",
+         "asyn", "awai", "ControlFlowNode for ", "get_host()", "self", ".", "(", ")", " ", "\n", "_", "x", "0"]
+
+
+def random_text(rng, words, max_words=6):
+    parts = rng.choices(words, k=rng.randint(0, max_words))
+    return "".join(p.upper() if rng.random() < 0.2 else p for p in parts)
+
+
+class OldChainEquivalenceTest(unittest.TestCase):
+
+    def test_matches_old_chain(self):
+        classifier = Classifier()
+        rng = random.Random(20240611)
+        words = OLD_KEYWORDS + NOISE
+        for _ in range(20000):
+            source, sink = random_text(rng, words), random_text(rng, words)
+            self.assertEqual(classify_flow(source, sink), classifier.classify(source, sink), (source, sink))
+
+    def test_overlapping_and_adjacent_keywords(self):
+        classifier = Classifier()
+        for sink in ("templateemail", "redirectsend_mail", "reversedict", "formattribute", "requestform",
+                     "asyncdict", "url_forredirect", "render_templatemail", "EMAILREDIRECT", "reverseasync"):
+            for source in ("", "flask.request", "pyramidjango", "tornadofastapi"):
+                self.assertEqual(classify_flow(source, sink), classifier.classify(source, sink), (source, sink))
+
+
+class RuleSetTest(unittest.TestCase):
+
+    def assert_first_match(self, rules, words, seed, samples=5000):
+        rule_set = RuleSet(rules, "default")
+        rng = random.Random(seed)
+        for _ in range(samples):
+            text = random_text(rng, words, 8)
+            self.assertEqual(first_match(rules, text), rule_set.match(text), text)
+
+    def test_shipped_table(self):
+        table = classify.load_rules()
+        for seed, category in enumerate(("frameworks", "scenarios")):
+            rules = table[category]
+            keywords = [k for rule in rules for k in rule.get("keywords", [])]
+            fragments = [k[:len(k) // 2] for k in keywords] + [k[len(k) // 2:] for k in keywords]
+            self.assert_first_match(rules, keywords + fragments + NOISE + ["/", "\\"], seed)
+
+    def test_patterns_and_escaped_keywords(self):
+        rules = [
+            {"name": "A", "patterns": [r"ab+c", r"^start"]},
+            {"name": "B", "keywords": ["bc", "a.b", "(x)"]},
+            {"name": "C", "keywords": ["b"], "patterns": [r"x\d"]},
+            {"name": "D"},
+        ]
+        self.assert_first_match(rules, ["a", "b", "c", ".", "(", ")", "x", "1", "start", " "], 7)
+
+    def test_empty_table(self):
+        self.assertIsNone(RuleSet([], "default").match("anything"))
+        self.assertIsNone(RuleSet([{"name": "A", "keywords": ["a"]}], "default").match(""))
+
+
+class ClassifierTest(unittest.TestCase):
+
+    def test_file_paths_are_the_framework_fallback(self):
+        classifier = Classifier()
+        self.assertEqual(("Password Reset Attack", "Spring"), classifier.classify(
+            "getHeader(...)", "Transport.send(...)", "/work/javaexample/spring/App.java", "/work/javaexample/spring/App.java"))
+        self.assertEqual("Play", classifier.framework("host", "body", "", "C:\\work\\javaexample\\play\\App.java"))
+        # Labels that name a framework win over the path
+        self.assertEqual("Django", classifier.framework("django.http", "x", "/work/spring/app.py", ""))
+        self.assertEqual("Unknown", classifier.framework("host", "body", "/work/app.py", ""))
+
+    def test_parallel_classification_keeps_input_order(self):
+        rng = random.Random(3)
+        words = OLD_KEYWORDS + NOISE
+        findings = [Finding("python", "q.ql", str(i),
+                            Location(f"/work/{rng.choice(['flask', 'spring', 'misc'])}/app.py", label=random_text(rng, words)),
+                            Location("/work/app.py", label=random_text(rng, words)))
+                    for i in range(300)]
+        serial = list(classify.classify_findings(iter(findings), workers=1))
+        parallel = list(classify.classify_findings(iter(findings), workers=2, chunk=7))
+        self.assertEqual(serial, parallel)
+        self.assertEqual([f.message for f in findings], [f.message for f, _, _ in parallel])
+
+
+if __name__ == "__main__":
+    unittest.main()
@@ -0,0 +1,113 @@
+import hashlib
+import os
+import tempfile
+import unittest
+from pathlib import Path
+
+from hnprunner import hashing
+
+
+def sha256(data):
+    return hashlib.sha256(data).hexdigest()
+
+
+class HashCacheTest(unittest.TestCase):
+
+    def setUp(self):
+        self.tmp = tempfile.TemporaryDirectory()
+        self.root = Path(self.tmp.name)
+
+    def tearDown(self):
+        self.tmp.cleanup()
+
+    def write(self, relative, data):
+        path = self.root / relative
+        path.parent.mkdir(parents=True, exist_ok=True)
+        path.write_bytes(data)
+        return path
+
+    def test_digest_is_sha256_of_content(self):
+        path = self.write("a.bin", b"x" * (hashing.CHUNK + 17))
+        cache = hashing.HashCache()
+        self.assertEqual(sha256(b"x" * (hashing.CHUNK + 17)), cache.file_digest(path))
+        size, mtime, digest = cache.entries[str(path)]
+        self.assertEqual(hashing.CHUNK + 17, size)
+        self.assertEqual(path.stat().st_mtime_ns, mtime)
+
+    def test_unchanged_size_and_mtime_skip_the_read(self):
+        path = self.write("a.txt", b"first")
+        stat = path.stat()
+        cache = hashing.HashCache()
+        first = cache.file_digest(path)
+
+        # Same size, mtime put back: the cache trusts the stat and does not re-read
+        path.write_bytes(b"other")
+        os.utime(path, ns=(stat.st_atime_ns, stat.st_mtime_ns))
+        self.assertEqual(first, cache.file_digest(path))
+
+    def test_changed_size_or_mtime_rehashes(self):
+        path = self.write("a.txt", b"first")
+        stat = path.stat()
+        cache = hashing.HashCache()
+        cache.file_digest(path)
+
+        path.write_bytes(b"longer content")
+        os.utime(path, ns=(stat.st_atime_ns, stat.st_mtime_ns))
+        self.assertEqual(sha256(b"longer content"), cache.file_digest(path))
+
+        path.write_bytes(b"same size here")
+        os.utime(path, ns=(stat.st_atime_ns, stat.st_mtime_ns + 1_000_000_000))
+        self.assertEqual(sha256(b"same size here"), cache.file_digest(path))
+
+    def test_entries_survive_a_state_round_trip(self):
+        path = self.write("a.txt", b"content")
+        cache = hashing.HashCache()
+        digest = cache.file_digest(path)
+
+        # The runner saves entries as JSON lists and hands them back on the next run
+        restored = hashing.HashCache({k: list(v) for k, v in cache.entries.items()})
+        path.write_bytes(b"CONTENT")
+        os.utime(path, ns=(path.stat().st_atime_ns, cache.entries[str(path)][1]))
+        self.assertEqual(digest, restored.file_digest(path))
+
+    def test_tree_digest_depends_on_paths_and_content_only(self):
+        self.write("b/two.ql", b"2")
+        self.write("a/one.ql", b"1")
+        self.write("a/skip.txt", b"ignored")
+        self.write(".hidden/x.ql", b"hidden")
+        self.write("cache/y.ql", b"excluded")
+        digest = hashing.HashCache().tree_digest(self.root, include={".ql"}, exclude_dirs={"cache"})
+
+        other = tempfile.TemporaryDirectory()
+        self.addCleanup(other.cleanup)
+        other_root = Path(other.name)
+        for relative, data in (("a/one.ql", b"1"), ("b/two.ql", b"2")):
+            (other_root / relative).parent.mkdir(parents=True, exist_ok=True)
+            (other_root / relative).write_bytes(data)
+        self.assertEqual(digest, hashing.HashCache().tree_digest(other_root, include={".ql"}))
+
+        (other_root / "b/two.ql").write_bytes(b"3")
+        self.assertNotEqual(digest, hashing.HashCache().tree_digest(other_root, include={".ql"}))
+
+    def test_database_digest_ignores_evaluation_byproducts(self):
+        self.write("db-java/trap/a.trap", b"facts")
+        cache = hashing.HashCache()
+        before = hashing.database_digest(cache, self.root)
+        for volatile in hashing.DATABASE_VOLATILE:
+            self.write(f"{volatile}/byproduct", b"noise")
+        self.assertEqual(before, hashing.database_digest(cache, self.root))
+
+    def test_pruned_drops_deleted_files_not_seen_this_run(self):
+        kept = self.write("kept.txt", b"1")
+        gone = self.write("gone.txt", b"2")
+        cache = hashing.HashCache()
+        cache.file_digest(kept)
+        cache.file_digest(gone)
+
+        restored = hashing.HashCache(cache.entries)
+        gone.unlink()
+        self.assertEqual({str(kept)}, set(restored.pruned()))
+
+
+if __name__ == "__main__":
+    unittest.main()
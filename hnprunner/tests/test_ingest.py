@@ -0,0 +1,196 @@
+import io
+import json
+import os
+import stat
+import sys
+import tempfile
+import unittest
+from pathlib import Path
+
+from hnprunner import ingest
+from hnprunner.ingest import Finding, JsonArrayStream, Location
+
+DATA = Path(__file__).with_name("data")
+
+# Stands in for the CodeQL CLI: `bqrs info` / `bqrs decode` print the checked-in samples next to the .bqrs path
+FAKE_CODEQL = r'''
+import sys
+from pathlib import Path
+
+args = sys.argv[1:]
+bqrs = Path(args[-1])
+if args[:2] == ["bqrs", "info"]:
+    info = bqrs.with_suffix(".info.json")
+    if bqrs.stem == "broken":
+        info = bqrs.with_name("java_hnp_detection.info.json")
+    if not info.exists():
+        sys.stderr.write("A fatal error occurred: no such file " + str(bqrs))
+        sys.exit(2)
+    sys.stdout.write(info.read_text(encoding="utf-8"))
+elif args[:2] == ["bqrs", "decode"]:
+    if bqrs.stem == "broken":
+        sys.stdout.write('{"#select": {"tuples": [')
+        sys.stderr.write("A fatal error occurred: corrupt result set")
+        sys.exit(2)
+    sys.stdout.write(bqrs.with_suffix(".bqrs.json").read_text(encoding="utf-8"))
+'''
+
+
+def stream(text, path, chunk):
+    return list(JsonArrayStream(io.StringIO(text), path, chunk))
+
+
+class JsonArrayStreamTest(unittest.TestCase):
+
+    TRICKY = ('{"skip": {"a": [1, "]", {"b": "}\\"{["}], "n": -12.5e3, "t": true},'
+              ' "x" : [ ], "target": [ -15.5, 1e10, 0, "s]\\\\", "\\u00e9\\"", {"k": [1, 2]}, [], null, true,'
+              ' false, 123456789012345678901234567890, -0.000001 ] , "after": [1]}')
+
+    def test_items_match_json_load_for_every_chunk_size(self):
+        expected = json.loads(self.TRICKY)["target"]
+        for chunk in range(1, len(self.TRICKY) + 1):
+            self.assertEqual(expected, stream(self.TRICKY, ("target",), chunk), f"chunk={chunk}")
+
+    def test_samples_match_json_load(self):
+        cases = [
+            ("java_hnp_detection.bqrs.json", ("#select", "tuples"),
+             lambda doc: doc["#select"]["tuples"]),
+            ("hnp_comprehensive.bqrs.json", ("#select", "tuples"),
+             lambda doc: doc["#select"]["tuples"]),
+            ("results.sarif", ("runs", "*", "results"),
+             lambda doc: [r for run in doc["runs"] for r in run["results"]]),
+        ]
+        for name, path, select in cases:
+            text = (DATA / name).read_text(encoding="utf-8")
+            expected = select(json.loads(text))
+            for chunk in (1, 2, 3, 7, 64, ingest.CHUNK):
+                self.assertEqual(expected, stream(text, path, chunk), f"{name} chunk={chunk}")
+
+    def test_wildcard_collects_every_matching_array(self):
+        text = '{"runs": [{"results": [1, 2]}, {"results": []}, {"other": [9]}, {"results": [3]}]}'
+        self.assertEqual([1, 2, 3], stream(text, ("runs", "*", "results"), 4))
+
+    def test_top_level_array(self):
+        self.assertEqual([1, {"a": 2}, "3"], stream(' [1, {"a": 2}, "3"] ', (), 2))
+
+    def test_absent_path_yields_nothing(self):
+        self.assertEqual([], stream('{"a": {"b": [1]}, "c": "tuples"}', ("#select", "tuples"), 3))
+        self.assertEqual([], stream("   ", ("#select", "tuples"), 3))
+
+    def test_truncated_stream_raises(self):
+        for text in ('{"target": [1, 2', '{"target": [{"a": "unterminated', '{"skip": [1, {"x": 2}'):
+            with self.assertRaises(ValueError, msg=text):
+                stream(text, ("target",), 3)
+
+
+class ColumnRolesTest(unittest.TestCase):
+
+    def test_path_problem_select(self):
+        columns = [{"name": "col0", "kind": "Entity"}, {"name": "source", "kind": "Entity"},
+                   {"name": "sink", "kind": "Entity"}, {"name": "col3", "kind": "String"}]
+        self.assertEqual((1, 2, 3), ingest.column_roles(columns))
+
+    def test_short_names(self):
+        columns = [{"name": "src", "kind": "e"}, {"name": "snk", "kind": "e"}, {"name": "msg", "kind": "s"}]
+        self.assertEqual((0, 1, 2), ingest.column_roles(columns))
+
+    def test_problem_select_without_source(self):
+        columns = [{"name": "sink", "kind": "Entity"}, {"name": "col1", "kind": "String"}]
+        self.assertEqual((None, 0, 1), ingest.column_roles(columns))
+
+    def test_unnamed_first_column_is_the_sink(self):
+        columns = [{"name": "node", "kind": "Entity"}, {"name": "col1", "kind": "String"}]
+        self.assertEqual((None, 0, 1), ingest.column_roles(columns))
+
+    def test_source_in_first_column_and_no_sink(self):
+        columns = [{"name": "source", "kind": "Entity"}, {"name": "other", "kind": "Entity"}]
+        self.assertEqual((0, None, None), ingest.column_roles(columns))
+
+    def test_last_sink_column_wins(self):
+        columns = [{"name": "sink", "kind": "Entity"}, {"name": "source", "kind": "Entity"},
+                   {"name": "sink", "kind": "Entity"}, {"name": "col3", "kind": "String"},
+                   {"name": "col4", "kind": "String"}]
+        self.assertEqual((1, 2, 3), ingest.column_roles(columns))
+
+    def test_no_columns(self):
+        self.assertEqual((None, None, None), ingest.column_roles([]))
+
+
+@unittest.skipIf(os.name == "nt", "fake CLI is a POSIX shell script")
+class ReadBqrsTest(unittest.TestCase):
+
+    def setUp(self):
+        tmp = tempfile.TemporaryDirectory()
+        self.addCleanup(tmp.cleanup)
+        script = Path(tmp.name) / "fake_codeql.py"
+        script.write_text(FAKE_CODEQL, encoding="utf-8")
+        self.codeql = Path(tmp.name) / "codeql"
+        self.codeql.write_text(f'#!/bin/sh\nexec "{sys.executable}" "{script}" "$@"\n', encoding="utf-8")
+        self.codeql.chmod(self.codeql.stat().st_mode | stat.S_IXUSR)
+
+    def read(self, name):
+        return list(ingest.read_bqrs(str(self.codeql), DATA / name, "java", "q.ql"))
+
+    def test_path_problem_rows(self):
+        findings = self.read("hnp_comprehensive.bqrs")
+        self.assertEqual([
+            Finding("java", "q.ql", "HNP flow: request.host -> send_mail",
+                    Location("/work/data/pyexample/flask/app.py", 30, 12, 30, 24, "ControlFlowNode for request.host"),
+                    Location("/work/data/pyexample/flask/app.py", 41, 5, 41, 14, "ControlFlowNode for send_mail()")),
+            Finding("java", "q.ql", "HNP flow: get_host \u2192 redirect \\ \"quoted\"",
+                    Location("C:/work/data/pyexample/django/views.py", 8, 9, 8, 29, "request.get_host()"),
+                    Location("C:/work/data/pyexample/django/views.py", 12, 1, 12, 40, "redirect(...)")),
+            Finding("java", "q.ql", "HNP flow: dict",
+                    Location("", label="plain string entity"),
+                    Location("/work/data/pyexample/path with space/app.py", 3, 2, 3, 9, "dict[...]")),
+        ], findings)
+
+    def test_problem_rows_have_no_source(self):
+        findings = self.read("java_hnp_detection.bqrs")
+        self.assertEqual(2, len(findings))
+        self.assertIsNone(findings[0].source)
+        self.assertEqual(Location("/work/data/javaexample/spring/app.java", 86, 23, 86, 29, "message"), findings[0].sink)
+        self.assertEqual('Host header read at struts2/app.java:36 reaches an outgoing email ["x"] {}',
+                         findings[1].message)
+
+    def test_cli_failures_raise(self):
+        with self.assertRaisesRegex(RuntimeError, "bqrs info failed"):
+            self.read("missing.bqrs")
+        with self.assertRaisesRegex(RuntimeError, "corrupt result set"):
+            self.read("broken.bqrs")
+
+
+class ReadSarifTest(unittest.TestCase):
+
+    def test_results_of_every_run(self):
+        with open(DATA / "results.sarif", encoding="utf-8") as f:
+            findings = list(ingest.read_sarif(f, "java"))
+        self.assertEqual([
+            Finding("java", "java/hnp-detection",
+                    "Host header read at [spring/app.java:35](1) reaches an outgoing email",
+                    Location("spring/app.java", 35, 23, 35, 50, "getHeader(...) : String"),
+                    Location("spring/app.java", 86, 23, 86, 29, "message")),
+            # No code flow: the primary location is the sink, its end line defaulting to the start line
+            Finding("java", "java/hnp-redirect", 'Redirect target built from the "Host" header',
+                    None, Location("jakarta/app.java", 120, 16, 120, 44, "")),
+            Finding("java", "java/hnp-json-response", "Host header reaches a JSON response \u00e9",
+                    None, Location("play/app.java", 157, 19, 157, 0, "")),
+        ], findings)
+
+
+class FindingsFileTest(unittest.TestCase):
+
+    def test_round_trip(self):
+        findings = [
+            Finding("java", "q.ql", "m\u00e9ssage", Location("a.java", 1, 2, 3, 4, "src"), None),
+            Finding("python", "p.ql", "", None, Location("b.py", label="sink")),
+        ]
+        with tempfile.TemporaryDirectory() as tmp:
+            path = Path(tmp) / "out" / "q.findings.jsonl"
+            self.assertEqual(2, ingest.write_findings(iter(findings), path))
+            self.assertEqual(findings, list(ingest.read_findings(path)))
+            self.assertEqual(["q.findings.jsonl"], os.listdir(path.parent))
+
+
+if __name__ == "__main__":
+    unittest.main()
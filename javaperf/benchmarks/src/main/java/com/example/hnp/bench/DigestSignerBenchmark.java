@@ -0,0 +1,83 @@
+// generateWeakSignature cost and contention: per-call getInstance baseline vs DigestSigner cache modes
+// The same shared signer is hit from 1, 8 and 64 threads; LEGACY is the fixture's original code verbatim.
+
+package com.example.hnp.bench;
+
+import com.example.hnp.crypto.DigestCache;
+import com.example.hnp.crypto.DigestSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DigestSignerBenchmark {
+
+    private static final String SECRET = "vulnerable-secret-key";
+    private static final String DATA =
+        "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.eyJlbWFpbCI6InVzZXJAZXhhbXBsZS5jb20iLCJob3N0IjoibG9jYWxob3N0OjgwODAiLCJpYXQiOjE3MDAwMDAwMDB9";
+
+    @Param({"LEGACY", "NONE", "THREAD_LOCAL", "POOLED"})
+    public String mode;
+
+    @Param({"MD5"})
+    public String algorithm;
+
+    private DigestSigner signer;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        if (!"LEGACY".equals(mode)) {
+            signer = new DigestSigner(algorithm, SECRET, DigestCache.valueOf(mode));
+            if (!signer.sign(DATA).equals(legacySign(DATA))) {
+                throw new IllegalStateException("DigestSigner disagrees with baseline");
+            }
+        }
+    }
+
+    private String legacySign(String data) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance(algorithm);
+        byte[] hash = md.digest((data + SECRET).getBytes());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private String sign() throws NoSuchAlgorithmException {
+        return signer == null ? legacySign(DATA) : signer.sign(DATA);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String threads1() throws NoSuchAlgorithmException {
+        return sign();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String threads8() throws NoSuchAlgorithmException {
+        return sign();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String threads64() throws NoSuchAlgorithmException {
+        return sign();
+    }
+}
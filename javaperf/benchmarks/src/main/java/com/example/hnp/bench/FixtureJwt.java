@@ -0,0 +1,55 @@
+// The jwt_bypass fixture's JWT helpers, called on the compiled JwtBypassHnpApplication through Fixtures
+// Signing follows the fixture's own settings (hnp.crypto.jwt.algorithm, hnp.crypto.digest-cache).
+
+package com.example.hnp.bench;
+
+import com.example.hnp.jwt.JwtView;
+
+import java.lang.invoke.MethodHandle;
+
+final class FixtureJwt {
+
+    private static final Object FIXTURE = Fixtures.instantiate("com.example.hnp.jwtbypass.JwtBypassHnpApplication");
+    private static final MethodHandle GENERATE =
+        Fixtures.helper(FIXTURE, "generateVulnerableJWT", String.class, String.class, String.class);
+    private static final MethodHandle BYPASSABLE =
+        Fixtures.helper(FIXTURE, "isJwtBypassable", boolean.class, JwtView.class);
+    private static final MethodHandle BYPASS =
+        Fixtures.helper(FIXTURE, "bypassJWT", String.class, JwtView.class, String.class);
+    private static final MethodHandle ALGORITHM =
+        Fixtures.helper(FIXTURE, "getJwtAlgorithm", String.class, JwtView.class);
+
+    private FixtureJwt() {}
+
+    static String generateVulnerableJWT(String email, String host) {
+        try {
+            return (String) GENERATE.invokeExact(email, host);
+        } catch (Throwable e) {
+            throw Fixtures.rethrow(e);
+        }
+    }
+
+    static boolean isJwtBypassable(JwtView jwt) {
+        try {
+            return (boolean) BYPASSABLE.invokeExact(jwt);
+        } catch (Throwable e) {
+            throw Fixtures.rethrow(e);
+        }
+    }
+
+    static String bypassJWT(JwtView jwt, String newHost) {
+        try {
+            return (String) BYPASS.invokeExact(jwt, newHost);
+        } catch (Throwable e) {
+            throw Fixtures.rethrow(e);
+        }
+    }
+
+    static String getJwtAlgorithm(JwtView jwt) {
+        try {
+            return (String) ALGORITHM.invokeExact(jwt);
+        } catch (Throwable e) {
+            throw Fixtures.rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// The oauth_bypass fixture's token and redirect URI helpers, called on the compiled OAuthBypassHnpApplication
+// through Fixtures. Tokens follow the fixture's own settings (hnp.crypto.oauth-vulnerable.*, hnp.crypto.rng).
+
+package com.example.hnp.bench;
+
+import java.lang.invoke.MethodHandle;
+
+final class FixtureOAuth {
+
+    private static final Object FIXTURE = Fixtures.instantiate("com.example.hnp.oauthbypass.OAuthBypassHnpApplication");
+    private static final MethodHandle GENERATE =
+        Fixtures.helper(FIXTURE, "generateVulnerableOAuthToken", String.class, String.class, String.class);
+    private static final MethodHandle REDIRECT_BYPASSABLE =
+        Fixtures.helper(FIXTURE, "isRedirectUriBypassable", boolean.class, String.class, String.class);
+
+    private FixtureOAuth() {}
+
+    static String generateVulnerableOAuthToken(String email, String host) {
+        try {
+            return (String) GENERATE.invokeExact(email, host);
+        } catch (Throwable e) {
+            throw Fixtures.rethrow(e);
+        }
+    }
+
+    static boolean isRedirectUriBypassable(String requestedUri, String storedUri) {
+        try {
+            return (boolean) REDIRECT_BYPASSABLE.invokeExact(requestedUri, storedUri);
+        } catch (Throwable e) {
+            throw Fixtures.rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+// Method handles on the compiled fixture applications' private helpers
+// The Spring fixtures (compiled by data/javaexample's launcher profile) keep their helpers in private instance
+// methods, so they are reached with a private lookup on one instance created outside Spring. Handles held in static
+// finals are constant-folded by the JIT, so a call costs what a direct call would, and a helper that is renamed or
+// re-typed fails the benchmark's class initialization instead of drifting from a copy.
+
+package com.example.hnp.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+final class Fixtures {
+
+    private Fixtures() {}
+
+    static Object instantiate(String className) {
+        try {
+            Class<?> type = Class.forName(className);
+            return lookup(type).findConstructor(type, MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create fixture " + className, e);
+        }
+    }
+
+    // The helper bound to the fixture, typed (params)returnType for invokeExact
+    static MethodHandle helper(Object fixture, String name, Class<?> returnType, Class<?>... params) {
+        Class<?> type = fixture.getClass();
+        try {
+            return lookup(type).findVirtual(type, name, MethodType.methodType(returnType, params)).bindTo(fixture);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(type.getSimpleName() + " has no helper " + name
+                + MethodType.methodType(returnType, params), e);
+        }
+    }
+
+    static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new IllegalStateException(e);
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> type) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+    }
+}
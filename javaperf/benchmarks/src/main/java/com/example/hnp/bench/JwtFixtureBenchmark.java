@@ -0,0 +1,82 @@
+// The jwt_bypass fixture's JWT methods as /forgot calls them, at 1 and 8 threads
+// issue* is a request without a jwt_token cookie (generateVulnerableJWT); presented* is one that carries a token:
+// isJwtBypassable, bypassJWT onto the request host, then isJwtBypassable and getJwtAlgorithm for the reset link.
+// Run with -prof gc to see allocation per operation next to the time.
+
+package com.example.hnp.bench;
+
+import com.example.hnp.jwt.JwtView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JwtFixtureBenchmark {
+
+    private static final String EMAIL = "user@example.com";
+    private static final String HOST = "attacker.example.net";
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        token = FixtureJwt.generateVulnerableJWT(EMAIL, "localhost:8080");
+        JwtView jwt = JwtView.parse(token);
+        if (!FixtureJwt.isJwtBypassable(jwt) || !"HS256".equals(FixtureJwt.getJwtAlgorithm(jwt))
+            || !FixtureJwt.bypassJWT(jwt, HOST).equals(LegacyJwt.bypassJWT(token, HOST))) {
+            throw new IllegalStateException("Fixture JWT helpers disagree with the baseline for " + token);
+        }
+    }
+
+    private void presented(Blackhole bh) {
+        JwtView jwt = JwtView.parse(token);
+        String jwtToken = token;
+        if (FixtureJwt.isJwtBypassable(jwt)) {
+            jwtToken = FixtureJwt.bypassJWT(jwt, HOST);
+            jwt.reset(jwtToken);
+        }
+        bh.consume(jwtToken);
+        bh.consume(FixtureJwt.isJwtBypassable(jwt));
+        bh.consume(FixtureJwt.getJwtAlgorithm(jwt));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String issue1() {
+        return FixtureJwt.generateVulnerableJWT(EMAIL, HOST);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String issue8() {
+        return FixtureJwt.generateVulnerableJWT(EMAIL, HOST);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void presented1(Blackhole bh) {
+        presented(bh);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void presented8(Blackhole bh) {
+        presented(bh);
+    }
+}
@@ -0,0 +1,65 @@
+// Baseline copy of the split/Base64/String JWT handling the jwt_bypass fixture used before JwtView
+// Kept verbatim so JwtCodecBenchmark measures against the original code path. It is a frozen baseline, not a copy
+// to keep in step: JwtFixtureBenchmark checks at setup that the fixture still bypasses tokens the same way.
+
+package com.example.hnp.bench;
+
+import java.util.Base64;
+
+final class LegacyJwt {
+
+    private LegacyJwt() {}
+
+    static boolean isJwtBypassable(String jwtToken) {
+        if (jwtToken == null || jwtToken.isEmpty()) {
+            return false;
+        }
+
+        String[] parts = jwtToken.split("\\.");
+        if (parts.length != 3) {
+            return false;
+        }
+
+        try {
+            String header = new String(Base64.getUrlDecoder().decode(parts[0]));
+            return header.contains("\"alg\":\"none\"") ||
+                   header.contains("\"alg\":\"HS256\"") ||
+                   parts[2].equals("") ||
+                   parts[2].equals("null");
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    static String bypassJWT(String originalJwt, String newHost) {
+        try {
+            String[] parts = originalJwt.split("\\.");
+            if (parts.length == 3) {
+                String payload = new String(Base64.getUrlDecoder().decode(parts[1]));
+                payload = payload.replaceAll("\"host\":\"[^\"]*\"", "\"host\":\"" + newHost + "\"");
+                String newPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(payload.getBytes());
+                return parts[0] + "." + newPayload + "." + parts[2];
+            }
+        } catch (Exception e) {
+            // If bypass fails, return original
+        }
+        return originalJwt;
+    }
+
+    static String getJwtAlgorithm(String jwtToken) {
+        try {
+            String[] parts = jwtToken.split("\\.");
+            if (parts.length >= 1) {
+                String header = new String(Base64.getUrlDecoder().decode(parts[0]));
+                if (header.contains("\"alg\":")) {
+                    int start = header.indexOf("\"alg\":\"") + 7;
+                    int end = header.indexOf("\"", start);
+                    return header.substring(start, end);
+                }
+            }
+        } catch (Exception e) {
+            // Return unknown if parsing fails
+        }
+        return "unknown";
+    }
+}
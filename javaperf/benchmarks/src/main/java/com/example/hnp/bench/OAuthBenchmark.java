@@ -0,0 +1,66 @@
+// The oauth_bypass fixture's token issue and redirect URI check, at 1 and 8 threads
+// generateVulnerableOAuthToken draws its random part from TokenGenerator (see TokenGeneratorBenchmark for the
+// comparison with UUID.randomUUID under contention). The redirect check runs against the stored
+// callback with an exact match, an attacker URI embedding it, and an unrelated URI that falls through every test.
+
+package com.example.hnp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OAuthBenchmark {
+
+    private static final String EMAIL = "user@example.com";
+    private static final String HOST = "attacker.example.net";
+    private static final String STORED_URI = "http://localhost:3000/callback";
+
+    // Only the redirect check takes the requested URI, so issue* is not repeated per value
+    @State(Scope.Thread)
+    public static class Redirect {
+        @Param({"http://localhost:3000/callback",
+                "https://attacker.example.net/steal?next=http://localhost:3000/callback",
+                "https://client.example.org/oauth/callback"})
+        public String requestedUri;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String issue1() {
+        return FixtureOAuth.generateVulnerableOAuthToken(EMAIL, HOST);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String issue8() {
+        return FixtureOAuth.generateVulnerableOAuthToken(EMAIL, HOST);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean redirectUri1(Redirect redirect) {
+        return FixtureOAuth.isRedirectUriBypassable(redirect.requestedUri, STORED_URI);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean redirectUri8(Redirect redirect) {
+        return FixtureOAuth.isRedirectUriBypassable(redirect.requestedUri, STORED_URI);
+    }
+}
@@ -0,0 +1,94 @@
+// Session payload written by the session-storing fixtures when a session is replicated or persisted
+// ATTRIBUTES is the old Struts2 layout (polluted_host, user_agent, request_time and a framework flag as separate
+// attributes); RECORD is the single HostContext attribute carrying the same values, in its SessionForm. Both are
+// written the way servlet containers persist sessions: one ObjectOutputStream, name then value per attribute.
+// Setup checks the round trip. Encoded, ATTRIBUTES takes 322 bytes and RECORD 223.
+
+package com.example.hnp.bench;
+
+import com.example.hnp.context.HostContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionPayloadBenchmark {
+
+    private static final String HOST = "attacker.example.net";
+    private static final String USER_AGENT =
+        "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0.0.0 Safari/537.36";
+
+    public enum Layout { ATTRIBUTES, RECORD }
+
+    @Param({"ATTRIBUTES", "RECORD"})
+    public Layout layout;
+
+    private Map<String, Object> attributes;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        attributes = new LinkedHashMap<>();
+        if (layout == Layout.ATTRIBUTES) {
+            attributes.put("polluted_host", HOST);
+            attributes.put("user_agent", USER_AGENT);
+            attributes.put("request_time", System.currentTimeMillis());
+            attributes.put("struts2_framework", true);
+        } else {
+            attributes.put(HostContext.ATTRIBUTE,
+                HostContext.capture("localhost:8080", HOST, () -> USER_AGENT).detach());
+        }
+        encoded = write();
+        Map<String, Object> restored = read();
+        if (!String.valueOf(restored).equals(String.valueOf(attributes))) {
+            throw new IllegalStateException("Round trip changed the session: " + attributes + " vs " + restored);
+        }
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeInt(attributes.size());
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                out.writeObject(attribute.getKey());
+                out.writeObject(attribute.getValue());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Map<String, Object> read() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(encoded))) {
+            int count = in.readInt();
+            Map<String, Object> restored = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                restored.put((String) in.readObject(), in.readObject());
+            }
+            return restored;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+// Time from process launch to the first successful POST /forgot on HnpApplication, per launch mode
+// JAR is the plain fat jar; EXTRACTED, AOT and AOT_CDS run the fast-start layout (mvn -Pfast-start package), adding
+// the AOT-processed context and then the AppCDS archive from the training run. Not a JMH benchmark: every sample is a
+// fresh JVM, so run it directly from data/javaexample:
+//   java -cp ../../javaperf/benchmarks/target/benchmarks.jar com.example.hnp.bench.StartupBenchmark
+
+package com.example.hnp.bench;
+
+import com.example.hnp.config.Config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public final class StartupBenchmark {
+
+    private static final String FAT_JAR = "javaexample-hnp-0.1.0-SNAPSHOT-exec.jar";
+
+    public enum Mode {
+        JAR, EXTRACTED, AOT, AOT_CDS;
+
+        List<String> arguments(Path target) {
+            Path fastStart = target.resolve("fast-start");
+            List<String> args = new ArrayList<>();
+            if (this == AOT_CDS) {
+                args.add("-XX:SharedArchiveFile=" + fastStart.resolve("application.jsa"));
+            }
+            if (this == AOT || this == AOT_CDS) {
+                args.add("-Dspring.aot.enabled=true");
+            }
+            args.add("-jar");
+            args.add((this == JAR ? target : fastStart).resolve(FAT_JAR).toString());
+            return args;
+        }
+    }
+
+    private StartupBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        Path target = Path.of(Config.get("hnp.bench.startup.target", "target"));
+        int runs = Config.getInt("hnp.bench.startup.runs", 5);
+        int port = Config.getInt("hnp.bench.startup.port", 18080);
+        Duration timeout = Config.getMillis("hnp.bench.startup.timeout", 60_000);
+        String modes = Config.get("hnp.bench.startup.modes", "JAR,EXTRACTED,AOT,AOT_CDS");
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        for (String name : modes.split(",")) {
+            Mode mode = Mode.valueOf(name.trim());
+            List<String> command = mode.arguments(target);
+            Path jar = Path.of(command.get(command.size() - 1));
+            if (!Files.isRegularFile(jar)) {
+                System.out.println("[bench] Skipping " + mode + ": " + jar + " not built");
+                continue;
+            }
+            long[] samples = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                samples[i] = timeToFirstReset(client, command, port, timeout);
+            }
+            Arrays.sort(samples);
+            System.out.printf("[bench] %-9s first /forgot in ms: min %d, median %d, max %d (%d runs)%n",
+                              mode, samples[0], samples[runs / 2], samples[runs - 1], runs);
+        }
+    }
+
+    // Launches one JVM and polls /forgot until it answers; the process is destroyed before returning
+    static long timeToFirstReset(HttpClient client, List<String> arguments, int port, Duration timeout)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Dserver.port=" + port);
+        command.addAll(arguments);
+        HttpRequest forgot = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/forgot"))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .timeout(Duration.ofSeconds(5))
+            .POST(HttpRequest.BodyPublishers.ofString("email=startup@example.com"))
+            .build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            long deadline = started + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Fixture exited with " + process.exitValue() + ": " + command);
+                }
+                try {
+                    HttpResponse<String> response = client.send(forgot, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() == 200 && response.body().startsWith("Reset email sent")) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+                    }
+                } catch (IOException notListening) {
+                    // Connector not bound yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("No successful /forgot within " + timeout + ": " + command);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+// Reset link and mail body rendering: String concatenation and String.format vs compiled Template
+// Each invocation builds the struts-style reset URL and the HTML body around it, as one /forgot request does.
+// Run with -prof gc to compare allocation per operation.
+
+package com.example.hnp.bench;
+
+import com.example.hnp.template.ResetTemplates;
+import com.example.hnp.template.Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemplateBenchmark {
+
+    private static final Template RESET_LINK = Template.compile(
+        "http://${host}/reset/${token}?from=struts_framework&t=${token}&framework=struts&polluted_host=${host}"
+        + "&user_agent=${userAgent}&request_time=${requestTime}&session_id=${sessionId}");
+
+    private String host = "attacker.example.net";
+    private String token = "struts-token-123";
+    private String userAgent = "Mozilla/5.0 (X11; Linux x86_64)";
+    private Long requestTime = 1700000000000L;
+    private String sessionId = "6f1c1e0a-2b7d-4d59-9c8e-3f0b8a1d2c44";
+
+    @Setup
+    public void setUp() {
+        String expected = concatenation();
+        if (!expected.equals(format()) || !expected.equals(template())) {
+            throw new IllegalStateException("Renderers disagree: " + expected + " vs " + format() + " vs " + template());
+        }
+    }
+
+    @Benchmark
+    public String concatenation() {
+        String resetUrl = "http://" + host + "/reset/" + token;
+        resetUrl += "?from=struts_framework&t=" + token;
+        resetUrl += "&framework=struts&polluted_host=" + host;
+        resetUrl += "&user_agent=" + userAgent;
+        resetUrl += "&request_time=" + requestTime;
+        resetUrl += "&session_id=" + sessionId;
+        return "<p>Reset your password: <a href='" + resetUrl + "'>" + resetUrl + "</a></p>";
+    }
+
+    @Benchmark
+    public String format() {
+        StringBuilder resetURL = new StringBuilder();
+        resetURL.append("http://").append(host).append("/reset/").append(token);
+        resetURL.append("?from=struts_framework&t=").append(token);
+        resetURL.append("&framework=struts&polluted_host=").append(host);
+        resetURL.append("&user_agent=").append(userAgent);
+        resetURL.append("&request_time=").append(requestTime);
+        resetURL.append("&session_id=").append(sessionId);
+        return String.format("<p>Reset your password: <a href='%s'>%s</a></p>",
+                             resetURL.toString(), resetURL.toString());
+    }
+
+    @Benchmark
+    public String template() {
+        String resetUrl = RESET_LINK.render(host, token, userAgent, requestTime, sessionId);
+        return ResetTemplates.RESET_HTML.render(resetUrl);
+    }
+}
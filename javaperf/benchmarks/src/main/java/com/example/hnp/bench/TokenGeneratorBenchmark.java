@@ -0,0 +1,78 @@
+// OAuth code/token generation: UUID.randomUUID baseline vs TokenGenerator source modes, at 1, 8 and 64 threads
+// RANDOM_UUID is what the oauth_bypass fixture called before; SHARED is TokenGenerator on one shared SecureRandom,
+// THREAD_LOCAL and POOLED keep per-thread or pooled DRBG instances. Override the output with -p format=HEX or
+// BASE64URL (and -p bytes=N); the baseline always produces UUIDs. Run with -prof gc for allocation per token.
+
+package com.example.hnp.bench;
+
+import com.example.hnp.crypto.RandomCache;
+import com.example.hnp.crypto.TokenFormat;
+import com.example.hnp.crypto.TokenGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenGeneratorBenchmark {
+
+    @Param({"RANDOM_UUID", "SHARED", "THREAD_LOCAL", "POOLED"})
+    public String mode;
+
+    @Param({"UUID"})
+    public String format;
+
+    @Param({"16"})
+    public int bytes;
+
+    private TokenGenerator generator;
+
+    @Setup
+    public void setUp() {
+        if (!"RANDOM_UUID".equals(mode)) {
+            generator = new TokenGenerator(TokenFormat.valueOf(format), bytes, "DRBG", RandomCache.valueOf(mode));
+            String token = generator.next();
+            if (generator.getFormat() == TokenFormat.UUID && UUID.fromString(token).version() != 4) {
+                throw new IllegalStateException("TokenGenerator produced a non-v4 UUID: " + token);
+            }
+        }
+    }
+
+    private String next() {
+        return generator == null ? UUID.randomUUID().toString() : generator.next();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String threads1() {
+        return next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String threads8() {
+        return next();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String threads64() {
+        return next();
+    }
+}
@@ -0,0 +1,109 @@
+// Token store put/get as the fixtures use it: /forgot puts a TokenBinding, /reset and /oauth/token get it back
+// MAP is the plain ConcurrentHashMap the fixtures started with; EXPIRING is ExpiringStore at the fixtures' default
+// size and TTL. One store is shared by all threads and pre-filled with KEYS tokens, fewer than the store holds,
+// so neither evicts in steady state and the numbers compare the maps rather than eviction.
+
+package com.example.hnp.bench;
+
+import com.example.hnp.store.ExpiringStore;
+import com.example.hnp.store.TokenBinding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenStoreBenchmark {
+
+    private static final int KEYS = 1 << 16;
+
+    @Param({"MAP", "EXPIRING"})
+    public String store;
+
+    private final String[] tokens = new String[KEYS];
+    private final TokenBinding binding = new TokenBinding("attacker.example.net", "user@example.com");
+    private Map<String, TokenBinding> map;
+    private ExpiringStore<String, TokenBinding> expiring;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < KEYS; i++) {
+            tokens[i] = UUID.randomUUID().toString();
+        }
+        if ("MAP".equals(store)) {
+            map = new ConcurrentHashMap<>();
+        } else {
+            expiring = new ExpiringStore<>(100_000, Duration.ofMinutes(30));
+        }
+        for (String token : tokens) {
+            put(token);
+        }
+    }
+
+    // Each thread walks the key space from its own offset so threads mostly touch different keys
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = ThreadLocalRandom.current().nextInt(KEYS);
+
+        int next() {
+            next = (next + 1) & (KEYS - 1);
+            return next;
+        }
+    }
+
+    private void put(String token) {
+        if (map != null) {
+            map.put(token, binding);
+        } else {
+            expiring.put(token, binding);
+        }
+    }
+
+    private TokenBinding get(String token) {
+        return map != null ? map.get(token) : expiring.get(token);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void put1(Cursor cursor) {
+        put(tokens[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void put8(Cursor cursor) {
+        put(tokens[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TokenBinding get1(Cursor cursor) {
+        return get(tokens[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public TokenBinding get8(Cursor cursor) {
+        return get(tokens[cursor.next()]);
+    }
+}
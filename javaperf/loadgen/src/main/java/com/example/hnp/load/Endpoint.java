@@ -0,0 +1,66 @@
+// Fixture endpoints the load driver can call, with the parameters each fixture expects
+// Not every fixture serves every endpoint: /login is in jwt_bypass and session_fixation, /oauth/* in oauth_bypass,
+// /session/{id} in session_fixation. Give each target a mix that only names the endpoints it has.
+
+package com.example.hnp.load;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+
+enum Endpoint {
+    FORGOT {
+        @Override
+        HttpRequest.Builder request(URI base, String callbackHost, long sequence) {
+            return form(base.resolve("/forgot"), "email=user" + (sequence % 1000) + "%40example.com");
+        }
+    },
+    RESET {
+        @Override
+        HttpRequest.Builder request(URI base, String callbackHost, long sequence) {
+            // The token the fixtures hand out
+            return HttpRequest.newBuilder(base.resolve("/reset/random-token-123")).GET();
+        }
+    },
+    LOGIN {
+        @Override
+        HttpRequest.Builder request(URI base, String callbackHost, long sequence) {
+            return form(base.resolve("/login"), "email=user%40example.com&password=password");
+        }
+    },
+    OAUTH_AUTHORIZE {
+        @Override
+        HttpRequest.Builder request(URI base, String callbackHost, long sequence) {
+            return HttpRequest.newBuilder(base.resolve("/oauth/authorize?response_type=code&client_id=hnp-load"
+                + "&redirect_uri=" + encode("http://" + callbackHost + "/callback") + "&state=" + sequence)).GET();
+        }
+    },
+    OAUTH_TOKEN {
+        @Override
+        HttpRequest.Builder request(URI base, String callbackHost, long sequence) {
+            return form(base.resolve("/oauth/token"), "grant_type=authorization_code&code=code-" + sequence
+                + "&redirect_uri=" + encode("http://" + callbackHost + "/callback")
+                + "&client_id=hnp-load&client_secret=secret");
+        }
+    },
+    SESSION {
+        @Override
+        HttpRequest.Builder request(URI base, String callbackHost, long sequence) {
+            return HttpRequest.newBuilder(base.resolve("/session/hnp-load-" + (sequence % 1000))).GET();
+        }
+    };
+
+    // callbackHost is the host the request claims to come from, used where an endpoint takes a redirect URI
+    abstract HttpRequest.Builder request(URI base, String callbackHost, long sequence);
+
+    private static HttpRequest.Builder form(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,27 @@
+// How a request carries the attacker-controlled host, chosen per request from hnp.load.headers
+// NONE sends only the Host the URI implies, as a benign client would.
+
+package com.example.hnp.load;
+
+import java.net.http.HttpRequest;
+
+enum HeaderVariant {
+    NONE,
+    // Needs -Djdk.httpclient.allowRestrictedHeaders=host, which LoadGenerator sets before the client is created
+    HOST,
+    FORWARDED_HOST,
+    FORWARDED_SERVER;
+
+    HttpRequest.Builder apply(HttpRequest.Builder request, String attackerHost) {
+        switch (this) {
+            case HOST:
+                return request.header("Host", attackerHost);
+            case FORWARDED_HOST:
+                return request.header("X-Forwarded-Host", attackerHost);
+            case FORWARDED_SERVER:
+                return request.header("X-Forwarded-Server", attackerHost);
+            default:
+                return request;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+// HTTP load driver for the fixtures' /forgot, /reset/{token}, /login, /oauth/* and /session/{id} endpoints
+// OPEN mode starts requests at a constant rate per target and measures each one from the moment it was due, so a
+// stalled fixture shows up in the percentiles instead of silently slowing the driver down (no coordinated
+// omission). CLOSED mode runs a fixed number of workers per target back to back and also reports percentiles
+// corrected for coordinated omission. Every request picks its endpoint from the target's mix and its host
+// header variant from hnp.load.headers. Run from the repository root:
+//   java -Dhnp.load.targets=spring=http://127.0.0.1:8080 -jar javaperf/loadgen/target/loadgen.jar
+
+package com.example.hnp.load;
+
+import com.example.hnp.concurrent.NamedThreadFactory;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public final class LoadGenerator {
+
+    static {
+        // HttpClient refuses to set Host unless told otherwise before its first use
+        if (System.getProperty("jdk.httpclient.allowRestrictedHeaders") == null) {
+            System.setProperty("jdk.httpclient.allowRestrictedHeaders", "host");
+        }
+    }
+
+    private final LoadSettings settings;
+    private final List<TargetStats> stats = new ArrayList<>();
+    private final ExecutorService clientExecutor;
+    private final HttpClient client;
+
+    private LoadGenerator(LoadSettings settings) {
+        this.settings = settings;
+        for (Target target : settings.getTargets()) {
+            stats.add(new TargetStats(target));
+        }
+        this.clientExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                                                           new NamedThreadFactory("hnp-load-http", true));
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(settings.getTimeout())
+            .executor(clientExecutor)
+            .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        run(LoadSettings.fromEnvironment(), System.out);
+    }
+
+    public static void run(LoadSettings settings, PrintStream out) throws InterruptedException, FileNotFoundException {
+        LoadGenerator generator = new LoadGenerator(settings);
+        try {
+            generator.execute(out);
+        } finally {
+            generator.clientExecutor.shutdownNow();
+        }
+    }
+
+    private void execute(PrintStream out) throws InterruptedException, FileNotFoundException {
+        out.println("[LOAD] " + settings.getMode() + " mode against " + stats.size() + " target(s), headers "
+            + settings.getHeaders() + ", warmup " + settings.getWarmup().toMillis() + " ms, measuring "
+            + settings.getDuration().toMillis() + " ms");
+        HistogramLogWriter log = null;
+        if (settings.getHistogramLog() != null) {
+            log = new HistogramLogWriter(settings.getHistogramLog());
+            log.outputLogFormatVersion();
+            log.outputStartTime(System.currentTimeMillis());
+            log.outputLegend();
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + settings.getWarmup().toNanos();
+        long end = measureFrom + settings.getDuration().toNanos();
+        List<Thread> drivers = new ArrayList<>();
+        AtomicInteger inFlight = new AtomicInteger();
+        for (TargetStats target : stats) {
+            if (settings.getMode() == LoadSettings.Mode.OPEN) {
+                drivers.add(startThread("hnp-load-" + target.target().name(),
+                    () -> openLoop(target, start, measureFrom, end, inFlight)));
+            } else {
+                for (int i = 1; i <= settings.getConcurrency(); i++) {
+                    drivers.add(startThread("hnp-load-" + target.target().name() + "-" + i,
+                        () -> closedLoop(target, measureFrom, end)));
+                }
+            }
+        }
+
+        // Nothing due during warmup is recorded; this drain only starts the first interval at measureFrom
+        sleepUntil(measureFrom);
+        drainAll(null, log);
+        long interval = settings.getReportInterval().toNanos();
+        for (long tick = measureFrom + interval; tick - end < 0; tick += interval) {
+            sleepUntil(tick);
+            drainAll(out, log);
+        }
+        for (Thread driver : drivers) {
+            driver.join();
+        }
+        // Requests started before the end still count once they answer or time out
+        long deadline = System.nanoTime() + settings.getTimeout().toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        drainAll(null, log);
+
+        double seconds = settings.getDuration().toNanos() / 1e9;
+        for (TargetStats target : stats) {
+            target.report(out, settings, seconds);
+        }
+        if (log != null) {
+            out.println("[LOAD] Interval histograms written to " + settings.getHistogramLog());
+        }
+    }
+
+    // Requests are attributed to the phase they were due in: one due during warmup never counts, even if it
+    // answers after measurement started
+    private void openLoop(TargetStats target, long start, long measureFrom, long end, AtomicInteger inFlight) {
+        long interval = Math.max(1, TimeUnit.SECONDS.toNanos(1) / settings.getRate());
+        AtomicInteger outstanding = new AtomicInteger();
+        AtomicLong sequence = new AtomicLong();
+        for (long due = start; due - end < 0; due += interval) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (outstanding.get() >= settings.getMaxOutstanding()) {
+                if (due - measureFrom >= 0) {
+                    target.dropped();
+                }
+                continue;
+            }
+            long scheduled = due;
+            Endpoint endpoint = target.target().mix().pick();
+            outstanding.incrementAndGet();
+            inFlight.incrementAndGet();
+            client.sendAsync(request(target.target(), endpoint, sequence.incrementAndGet()),
+                             HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    // Measured from when the request was due, not from when the driver got to send it
+                    long micros = (System.nanoTime() - scheduled) / 1_000;
+                    if (scheduled - measureFrom < 0) {
+                        // Warmup request
+                    } else if (failure != null) {
+                        target.failed();
+                    } else {
+                        target.record(endpoint, micros, response.statusCode());
+                    }
+                    outstanding.decrementAndGet();
+                    inFlight.decrementAndGet();
+                });
+        }
+    }
+
+    private void closedLoop(TargetStats target, long measureFrom, long end) {
+        AtomicLong sequence = new AtomicLong();
+        while (System.nanoTime() - end < 0) {
+            Endpoint endpoint = target.target().mix().pick();
+            HttpRequest request = request(target.target(), endpoint, sequence.incrementAndGet());
+            long started = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (started - measureFrom >= 0) {
+                    target.record(endpoint, (System.nanoTime() - started) / 1_000, response.statusCode());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (started - measureFrom >= 0) {
+                    target.failed();
+                }
+            }
+        }
+    }
+
+    private HttpRequest request(Target target, Endpoint endpoint, long sequence) {
+        HeaderVariant variant = settings.getHeaders().pick();
+        String claimedHost = variant == HeaderVariant.NONE ? target.authority() : settings.getAttackerHost();
+        return variant.apply(endpoint.request(target.base(), claimedHost, sequence), settings.getAttackerHost())
+            .header("User-Agent", "hnp-loadgen")
+            .timeout(settings.getTimeout())
+            .build();
+    }
+
+    private void drainAll(PrintStream out, HistogramLogWriter log) {
+        for (TargetStats target : stats) {
+            Histogram interval = target.drain();
+            if (log != null) {
+                log.outputIntervalHistogram(interval);
+            }
+            if (out != null) {
+                double seconds = (interval.getEndTimeStamp() - interval.getStartTimeStamp()) / 1000.0;
+                out.printf("[LOAD] %-16s %8.1f req/s  p50 %8.2f  p99 %8.2f  max %8.2f ms%n", target.target().name(),
+                           seconds > 0 ? interval.getTotalCount() / seconds : 0.0,
+                           interval.getValueAtPercentile(50) / 1000.0, interval.getValueAtPercentile(99) / 1000.0,
+                           interval.getMaxValue() / 1000.0);
+            }
+        }
+    }
+
+    private static Thread startThread(String name, Runnable body) {
+        Thread thread = new Thread(body, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long wait;
+        while ((wait = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
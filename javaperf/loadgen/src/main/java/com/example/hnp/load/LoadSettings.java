@@ -0,0 +1,136 @@
+// Settings for LoadGenerator, read from hnp.load.* system properties or HNP_LOAD_* environment variables (see Config)
+
+package com.example.hnp.load;
+
+import com.example.hnp.config.Config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+public final class LoadSettings {
+
+    public enum Mode {
+        // Constant arrival rate: requests are started on schedule whether or not earlier ones have answered
+        OPEN,
+        // Fixed concurrency: each worker sends its next request when the previous one answers
+        CLOSED
+    }
+
+    private final List<Target> targets;
+    private final Mode mode;
+    private final WeightedMix<HeaderVariant> headers;
+    private final String attackerHost;
+    private final int rate;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Duration timeout;
+    private final Duration reportInterval;
+    private final int maxOutstanding;
+    private final long expectedIntervalMicros;
+    private final String histogramLog;
+
+    private LoadSettings(Builder builder) {
+        this.targets = List.copyOf(builder.targets);
+        this.mode = builder.mode;
+        this.headers = builder.headers;
+        this.attackerHost = builder.attackerHost;
+        this.rate = builder.rate;
+        this.concurrency = builder.concurrency;
+        this.warmup = builder.warmup;
+        this.duration = builder.duration;
+        this.timeout = builder.timeout;
+        this.reportInterval = builder.reportInterval;
+        this.maxOutstanding = builder.maxOutstanding;
+        this.expectedIntervalMicros = builder.expectedIntervalMicros;
+        this.histogramLog = builder.histogramLog;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static LoadSettings fromEnvironment() {
+        return builder()
+            .targets(Config.get("hnp.load.targets", "spring=http://127.0.0.1:8080"),
+                     Config.get("hnp.load.mix", "forgot=70,reset=30"))
+            .mode(Mode.valueOf(Config.get("hnp.load.mode", "OPEN").toUpperCase(Locale.ROOT)))
+            .headers(Config.get("hnp.load.headers", "none=25,host=25,forwarded-host=25,forwarded-server=25"))
+            .attackerHost(Config.get("hnp.load.attacker-host", "attacker.example.net"))
+            .rate(Config.getInt("hnp.load.rate", 200))
+            .concurrency(Config.getInt("hnp.load.concurrency", 16))
+            .warmup(Config.getMillis("hnp.load.warmup-ms", 5_000))
+            .duration(Config.getMillis("hnp.load.duration-ms", 30_000))
+            .timeout(Config.getMillis("hnp.load.timeout-ms", 10_000))
+            .reportInterval(Config.getMillis("hnp.load.report-interval-ms", 5_000))
+            .maxOutstanding(Config.getInt("hnp.load.max-outstanding", 4_096))
+            .expectedIntervalMicros(Long.parseLong(Config.get("hnp.load.expected-interval-us", "0")))
+            .histogramLog(Config.get("hnp.load.histogram-log", null))
+            .build();
+    }
+
+    List<Target> getTargets() { return targets; }
+    public Mode getMode() { return mode; }
+    WeightedMix<HeaderVariant> getHeaders() { return headers; }
+    public String getAttackerHost() { return attackerHost; }
+    public int getRate() { return rate; }
+    public int getConcurrency() { return concurrency; }
+    public Duration getWarmup() { return warmup; }
+    public Duration getDuration() { return duration; }
+    public Duration getTimeout() { return timeout; }
+    public Duration getReportInterval() { return reportInterval; }
+    public int getMaxOutstanding() { return maxOutstanding; }
+    public long getExpectedIntervalMicros() { return expectedIntervalMicros; }
+    public String getHistogramLog() { return histogramLog; }
+
+    public static final class Builder {
+        private List<Target> targets;
+        private Mode mode = Mode.OPEN;
+        private WeightedMix<HeaderVariant> headers = WeightedMix.parse(HeaderVariant.class, "none");
+        private String attackerHost = "attacker.example.net";
+        private int rate = 200;
+        private int concurrency = 16;
+        private Duration warmup = Duration.ofSeconds(5);
+        private Duration duration = Duration.ofSeconds(30);
+        private Duration timeout = Duration.ofSeconds(10);
+        private Duration reportInterval = Duration.ofSeconds(5);
+        private int maxOutstanding = 4_096;
+        private long expectedIntervalMicros;
+        private String histogramLog;
+
+        private Builder() {}
+
+        // "name=http://host:port,..."; endpoint mix "forgot=70,reset=30", overridable per target by hnp.load.mix.<name>
+        public Builder targets(String targets, String defaultMix) { this.targets = Target.parseAll(targets, defaultMix); return this; }
+        public Builder mode(Mode mode) { this.mode = mode; return this; }
+        // "none=25,host=25,forwarded-host=25,forwarded-server=25"
+        public Builder headers(String headers) { this.headers = WeightedMix.parse(HeaderVariant.class, headers); return this; }
+        public Builder attackerHost(String attackerHost) { this.attackerHost = attackerHost; return this; }
+        // OPEN: requests per second to each target
+        public Builder rate(int rate) { this.rate = rate; return this; }
+        // CLOSED: workers per target
+        public Builder concurrency(int concurrency) { this.concurrency = concurrency; return this; }
+        public Builder warmup(Duration warmup) { this.warmup = warmup; return this; }
+        public Builder duration(Duration duration) { this.duration = duration; return this; }
+        public Builder timeout(Duration timeout) { this.timeout = timeout; return this; }
+        public Builder reportInterval(Duration reportInterval) { this.reportInterval = reportInterval; return this; }
+        // OPEN: requests in flight per target before new arrivals are counted as dropped
+        public Builder maxOutstanding(int maxOutstanding) { this.maxOutstanding = maxOutstanding; return this; }
+        // CLOSED: pacing assumed by the coordinated-omission correction; 0 uses the run's mean latency
+        public Builder expectedIntervalMicros(long expectedIntervalMicros) { this.expectedIntervalMicros = expectedIntervalMicros; return this; }
+        // File for the interval histograms in HdrHistogram log format, tagged by target
+        public Builder histogramLog(String histogramLog) { this.histogramLog = histogramLog; return this; }
+
+        public LoadSettings build() {
+            if (targets == null) {
+                throw new IllegalArgumentException("hnp.load.targets is required");
+            }
+            if (rate < 1 || concurrency < 1 || maxOutstanding < 1 || duration.isZero() || reportInterval.isZero()) {
+                throw new IllegalArgumentException(
+                    "hnp.load rate, concurrency, max-outstanding, duration-ms and report-interval-ms must be positive");
+            }
+            return new LoadSettings(this);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+// One fixture under load: a name for the report, its base URL and the endpoint mix sent to it
+
+package com.example.hnp.load;
+
+import com.example.hnp.config.Config;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+record Target(String name, URI base, WeightedMix<Endpoint> mix) {
+
+    // Parses "name=http://host:port,name=..."; each target's mix is hnp.load.mix.<name>, else defaultMix
+    static List<Target> parseAll(String spec, String defaultMix) {
+        List<Target> targets = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            if (equals < 1 || equals == entry.length() - 1) {
+                throw new IllegalArgumentException("Target entry must look like name=http://host:port, got: " + entry);
+            }
+            String name = entry.substring(0, equals);
+            String mix = Config.get("hnp.load.mix." + name, defaultMix);
+            targets.add(new Target(name, URI.create(entry.substring(equals + 1)),
+                                   WeightedMix.parse(Endpoint.class, mix)));
+        }
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("No load targets in: " + spec);
+        }
+        return targets;
+    }
+
+    String authority() {
+        return base.getAuthority();
+    }
+}
@@ -0,0 +1,126 @@
+// Latency and outcome counters for one target, recorded from any thread and drained by the reporter
+// Latencies are microseconds in HdrHistogram Recorders (one overall, one per endpoint). Each drain() hands back
+// the interval since the previous one and adds it to the run totals. Callers only record what was due after warmup.
+
+package com.example.hnp.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+final class TargetStats {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Target target;
+    private final Recorder all = new Recorder(HIGHEST_MICROS, 3);
+    private final Map<Endpoint, Recorder> byEndpoint = new EnumMap<>(Endpoint.class);
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Map<Integer, LongAdder> errorStatuses = new ConcurrentHashMap<>();
+
+    // Run totals, only touched by the reporter thread
+    private final Histogram total = new Histogram(HIGHEST_MICROS, 3);
+    private final Map<Endpoint, Histogram> endpointTotals = new EnumMap<>(Endpoint.class);
+    private final Map<Integer, Long> errorTotals = new TreeMap<>();
+    private long okTotal;
+    private long failedTotal;
+    private long droppedTotal;
+
+    TargetStats(Target target) {
+        this.target = target;
+        for (Endpoint endpoint : target.mix().choices()) {
+            byEndpoint.put(endpoint, new Recorder(HIGHEST_MICROS, 3));
+            endpointTotals.put(endpoint, new Histogram(HIGHEST_MICROS, 3));
+        }
+    }
+
+    Target target() {
+        return target;
+    }
+
+    // 2xx and 3xx count as served; anything else is an error response but its latency is still recorded
+    void record(Endpoint endpoint, long micros, int status) {
+        long value = Math.min(Math.max(micros, 0), HIGHEST_MICROS);
+        all.recordValue(value);
+        byEndpoint.get(endpoint).recordValue(value);
+        if (status < 400) {
+            ok.increment();
+        } else {
+            errorStatuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+        }
+    }
+
+    // Timeouts and connection errors; no latency to record
+    void failed() {
+        failed.increment();
+    }
+
+    // OPEN mode arrivals that found hnp.load.max-outstanding requests already in flight
+    void dropped() {
+        dropped.increment();
+    }
+
+    Histogram drain() {
+        Histogram interval = all.getIntervalHistogram();
+        for (Map.Entry<Endpoint, Recorder> endpoint : byEndpoint.entrySet()) {
+            endpointTotals.get(endpoint.getKey()).add(endpoint.getValue().getIntervalHistogram());
+        }
+        for (Map.Entry<Integer, LongAdder> status : errorStatuses.entrySet()) {
+            long count = status.getValue().sumThenReset();
+            if (count > 0) {
+                errorTotals.merge(status.getKey(), count, Long::sum);
+            }
+        }
+        total.add(interval);
+        okTotal += ok.sumThenReset();
+        failedTotal += failed.sumThenReset();
+        droppedTotal += dropped.sumThenReset();
+        interval.setTag(target.name());
+        return interval;
+    }
+
+    void report(PrintStream out, LoadSettings settings, double seconds) {
+        long requests = total.getTotalCount() + failedTotal;
+        long errors = errorTotals.values().stream().mapToLong(Long::longValue).sum();
+        String load = settings.getMode() == LoadSettings.Mode.OPEN
+            ? settings.getRate() + "/s" : settings.getConcurrency() + " workers";
+        out.printf("[LOAD] %s %s (%s %s): %d requests in %.1f s = %.1f req/s; %d ok, %d errors %s, %d failed, %d dropped%n",
+                   target.name(), target.base(), settings.getMode(), load, requests, seconds, requests / seconds,
+                   okTotal, errors, errorTotals, failedTotal, droppedTotal);
+        out.println(line("all", total));
+        if (settings.getMode() == LoadSettings.Mode.CLOSED && total.getTotalCount() > 0) {
+            // A closed loop stops sending while a request is slow, so the raw percentiles under-count the
+            // requests a steady client would have sent meanwhile; HdrHistogram back-fills them
+            long expected = settings.getExpectedIntervalMicros() > 0
+                ? settings.getExpectedIntervalMicros() : Math.max(1, Math.round(total.getMean()));
+            out.println(line("all, corrected", total.copyCorrectedForCoordinatedOmission(expected))
+                + String.format("  (expected interval %.2f ms)", expected / 1000.0));
+        }
+        for (Map.Entry<Endpoint, Histogram> endpoint : endpointTotals.entrySet()) {
+            out.println(line(endpoint.getKey().name().toLowerCase(Locale.ROOT), endpoint.getValue()));
+        }
+    }
+
+    private static String line(String label, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return String.format("[LOAD]   %-16s %8d", label, 0);
+        }
+        return String.format("[LOAD]   %-16s %8d  p50 %8.2f  p90 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms",
+                             label, histogram.getTotalCount(), millis(histogram, 50), millis(histogram, 90),
+                             millis(histogram, 99), millis(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
@@ -0,0 +1,81 @@
+// Weighted random choice over enum constants, parsed from "forgot=70,reset=30" style settings
+// Names match the constant case-insensitively with '-' for '_', so forwarded-host selects FORWARDED_HOST.
+
+package com.example.hnp.load;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+final class WeightedMix<E extends Enum<E>> {
+
+    private final List<E> choices = new ArrayList<>();
+    private final int[] cumulative;
+    private final int total;
+
+    private WeightedMix(Map<E, Integer> weights) {
+        cumulative = new int[weights.size()];
+        int sum = 0;
+        for (Map.Entry<E, Integer> weight : weights.entrySet()) {
+            sum += weight.getValue();
+            cumulative[choices.size()] = sum;
+            choices.add(weight.getKey());
+        }
+        total = sum;
+    }
+
+    static <E extends Enum<E>> WeightedMix<E> parse(Class<E> type, String spec) {
+        Map<E, Integer> weights = new EnumMap<>(type);
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            String name = equals < 0 ? entry : entry.substring(0, equals).trim();
+            int weight = equals < 0 ? 1 : Integer.parseInt(entry.substring(equals + 1).trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in mix: " + entry);
+            }
+            if (weight > 0) {
+                weights.merge(Enum.valueOf(type, name.toUpperCase(Locale.ROOT).replace('-', '_')), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Mix selects nothing: " + spec);
+        }
+        return new WeightedMix<>(weights);
+    }
+
+    E pick() {
+        int value = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (value < cumulative[i]) {
+                return choices.get(i);
+            }
+        }
+        return choices.get(choices.size() - 1);
+    }
+
+    List<E> choices() {
+        return choices;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        int previous = 0;
+        for (int i = 0; i < choices.size(); i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(choices.get(i).name().toLowerCase(Locale.ROOT).replace('_', '-')).append('=')
+                .append(cumulative[i] - previous);
+            previous = cumulative[i];
+        }
+        return text.toString();
+    }
+}
@@ -4,145 +4,80 @@ Complete HNP Analysis Runner
 Runs CodeQL query and provides meaningful classification
 """
 
-import subprocess
 import json
 import sys
 from pathlib import Path
 
-def run_codeql_analysis():
-    """Compile & run query to local BQRS (query run), not database analyze"""
+REPO_ROOT = Path(__file__).resolve().parent.parent
+sys.path.insert(0, str(REPO_ROOT))
+
+from hnprunner import packs
+from hnprunner.classify import Classifier, classify_findings
+from hnprunner.ingest import read_findings
+from hnprunner.runner import Runner, find_codeql
+
+QUERY = "hnp_comprehensive.ql"
+CLASSIFIER = Classifier()
+
+def run_codeql_analysis(codeql):
+    """Run the Python pack through the shared runner; reuses the last results if database and query are unchanged"""
     print("🔍 Running CodeQL HNP analysis...")
 
-    cmd = [
-        "C:\\Users\\brook\\code\\codeql\\codeql.exe",
-        "query", "run",
-        "-d", "..\\py-db\\pyexample-db",
-        "-o", "out.bqrs",
-        "hnp_comprehensive.ql",
-    ]
-
-    result = subprocess.run(cmd, capture_output=True, text=True)
-    if result.returncode != 0:
-        print(f"❌ CodeQL analysis failed: {result.stderr}")
+    try:
+        results = Runner(codeql, REPO_ROOT / "hnp-results").run(packs.discover(["python"]))
+    except RuntimeError as e:
+        print(f"❌ CodeQL analysis failed: {e}")
         return None
 
-    print("✅ CodeQL analysis completed")
-    return True
-
-def get_bqrs_results():
-    """Get BQRS results in text format from local out.bqrs"""
-    print("📊 Extracting BQRS results...")
-
-    cmd = [
-        "C:\\Users\\brook\\code\\codeql\\codeql.exe",
-        "bqrs", "decode",
-        "out.bqrs",
-        "--format=text",
-    ]
-
-    result = subprocess.run(cmd, capture_output=True, text=True)
-    if result.returncode != 0:
-        print(f"❌ BQRS decode failed: {result.stderr}")
+    result = next((r for r in results if r.query == QUERY), results[0] if results else None)
+    if result is None or not result.findings:
+        print(f"❌ CodeQL analysis failed: {result.message if result else 'pyqueries not found'}")
         return None
 
-    return result.stdout
+    print("✅ CodeQL analysis completed")
+    return result.findings
 
-def analyze_results(bqrs_output):
-    """Analyze results and provide meaningful classification"""
+def analyze_results(findings, workers=None):
+    """Classify findings as they stream in; only counts and a few samples per scenario are kept in memory"""
     print("🔬 Analyzing results...")
-    
-    lines = bqrs_output.strip().split('\n')
-    flows = []
-    
-    # Parse BQRS output
-    in_data_section = False
-    for line in lines:
-        if '|' in line and 'source' in line.lower() and 'col1' in line.lower():
-            in_data_section = True
-            continue
-        elif in_data_section and '|' in line and line.strip():
-            if '+' in line or '-' in line:
-                continue
-            flows.append(line)
-        elif in_data_section and not line.strip():
-            break
-    
-    print(f"📈 Found {len(flows)} data flows")
-    
-    # Analyze flows
+
     analysis = {
-        'total_flows': len(flows),
+        'total_flows': 0,
         'framework_distribution': {},
         'vulnerability_scenarios': {},
-        'detailed_findings': []
+        'sample_findings': {}
     }
-    
-    for i, flow in enumerate(flows):
-        # Extract information from flow
-        parts = flow.split('|')
-        if len(parts) >= 4:
-            source = parts[0].strip()
-            sink = parts[2].strip()
-            
-            # Classify based on sink content
-            vuln_type, framework = classify_flow(source, sink)
-            
-            # Update statistics
-            analysis['framework_distribution'][framework] = analysis['framework_distribution'].get(framework, 0) + 1
-            analysis['vulnerability_scenarios'][vuln_type] = analysis['vulnerability_scenarios'].get(vuln_type, 0) + 1
-            
-            # Store detailed finding
-            finding = {
+
+    # Classification runs on worker processes; results come back in input order
+    for i, (finding, vuln_type, framework) in enumerate(classify_findings(findings, workers)):
+        source = finding.source.label if finding.source else ""
+        sink = finding.sink.label if finding.sink else ""
+
+        # Update statistics
+        analysis['total_flows'] += 1
+        analysis['framework_distribution'][framework] = analysis['framework_distribution'].get(framework, 0) + 1
+        analysis['vulnerability_scenarios'][vuln_type] = analysis['vulnerability_scenarios'].get(vuln_type, 0) + 1
+
+        # Keep the first few findings of each scenario for the report
+        samples = analysis['sample_findings'].setdefault(vuln_type, [])
+        if len(samples) < 3:
+            samples.append({
                 'id': i + 1,
                 'source': source,
                 'sink': sink,
+                'file': finding.sink.file if finding.sink else "",
+                'line': finding.sink.start_line if finding.sink else 0,
                 'vulnerability_scenario': vuln_type,
                 'framework': framework,
                 'description': f"HNP: {vuln_type} in {framework}"
-            }
-            analysis['detailed_findings'].append(finding)
-    
+            })
+
+    print(f"📈 Found {analysis['total_flows']} data flows")
     return analysis
 
-def classify_flow(source, sink):
-    """Classify a flow based on source and sink - focus on vulnerability scenarios"""
-    source_lower = source.lower()
-    sink_lower = sink.lower()
-    
-    # Framework detection
-    framework = "Unknown"
-    if 'django' in source_lower or 'django' in sink_lower:
-        framework = "Django"
-    elif 'flask' in source_lower or 'flask' in sink_lower:
-        framework = "Flask"
-    elif 'fastapi' in source_lower or 'fastapi' in sink_lower:
-        framework = "FastAPI"
-    elif 'tornado' in source_lower or 'tornado' in sink_lower:
-        framework = "Tornado"
-    elif 'pyramid' in source_lower or 'pyramid' in sink_lower:
-        framework = "Pyramid"
-    
-    # Vulnerability scenario classification (no risk rating)
-    if 'send_mail' in sink_lower or 'email' in sink_lower:
-        return "Password Reset Attack", framework
-    elif 'redirect' in sink_lower:
-        return "Open Redirect", framework
-    elif 'render_template' in sink_lower or 'template' in sink_lower:
-        return "Template Injection", framework
-    elif 'url_for' in sink_lower or 'reverse' in sink_lower:
-        return "URL Generation Attack", framework
-    elif 'attribute' in sink_lower:
-        return "Attribute Manipulation", framework
-    elif 'form' in sink_lower:
-        return "Form Data Manipulation", framework
-    elif 'request' in sink_lower:
-        return "Request Parameter Pollution", framework
-    elif 'dict' in sink_lower:
-        return "Data Structure Pollution", framework
-    elif 'async' in sink_lower or 'await' in sink_lower:
-        return "Async Context Pollution", framework
-    else:
-        return "Unknown HNP Vulnerability", framework
+def classify_flow(source, sink, source_file="", sink_file=""):
+    """Classify a flow based on source and sink - focus on vulnerability scenarios (rules: hnprunner/rules.json)"""
+    return CLASSIFIER.classify(source, sink, source_file, sink_file)
 
 def print_results(analysis):
     """Print formatted results - focus on vulnerability scenarios"""
@@ -164,23 +99,16 @@ def print_results(analysis):
     print(f"\n🔍 DETAILED SCENARIOS:")
     print("-" * 80)
     
-    # Group by vulnerability scenario
-    by_scenario = {}
-    for finding in analysis['detailed_findings']:
-        scenario = finding['vulnerability_scenario']
-        if scenario not in by_scenario:
-            by_scenario[scenario] = []
-        by_scenario[scenario].append(finding)
-    
-    for scenario in sorted(by_scenario.keys()):
-        findings = by_scenario[scenario]
-        print(f"\n🔍 {scenario.upper()} SCENARIOS ({len(findings)} found):")
-        for finding in findings[:3]:  # Show first 3 of each type
+    for scenario in sorted(analysis['sample_findings'].keys()):
+        findings = analysis['sample_findings'][scenario]
+        total = analysis['vulnerability_scenarios'][scenario]
+        print(f"\n🔍 {scenario.upper()} SCENARIOS ({total} found):")
+        for finding in findings:
             print(f"  {finding['id']}. {finding['description']}")
             print(f"     Source: {finding['source'][:60]}...")
             print(f"     Sink: {finding['sink'][:60]}...")
-        if len(findings) > 3:
-            print(f"     ... and {len(findings) - 3} more similar scenarios")
+        if total > len(findings):
+            print(f"     ... and {total - len(findings)} more similar scenarios")
 
 def save_results(analysis):
     """Save results to JSON file"""
@@ -193,22 +121,25 @@ def main():
     print("🚀 Starting Complete HNP Analysis")
     print("="*50)
     
-    # Step 1: Run CodeQL analysis
-    if not run_codeql_analysis():
+    try:
+        codeql = find_codeql()
+    except FileNotFoundError as e:
+        print(f"❌ {e}")
         sys.exit(1)
-    
-    # Step 2: Get BQRS results
-    bqrs_output = get_bqrs_results()
-    if not bqrs_output:
+
+    # Step 1: Run CodeQL analysis (results are decoded into typed findings by the runner)
+    findings_file = run_codeql_analysis(codeql)
+    if not findings_file:
         sys.exit(1)
     
-    # Step 3: Analyze results
-    analysis = analyze_results(bqrs_output)
+    # Step 2: Analyze results
+    analysis = analyze_results(read_findings(findings_file))
+    analysis['findings_file'] = findings_file
     
-    # Step 4: Print results
+    # Step 3: Print results
     print_results(analysis)
     
-    # Step 5: Save results
+    # Step 4: Save results
     save_results(analysis)
     
     print(f"\n✅ Analysis complete! Found {analysis['total_flows']} HNP vulnerability scenarios")